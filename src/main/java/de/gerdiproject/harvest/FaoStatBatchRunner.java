@@ -0,0 +1,329 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+import de.gerdiproject.harvest.etls.FaoStatETL;
+import de.gerdiproject.harvest.etls.extractors.FaoStatExtractor;
+import de.gerdiproject.harvest.etls.transformers.FaoStatTransformer;
+import de.gerdiproject.harvest.fao.constants.FaoBatchConstants;
+import de.gerdiproject.harvest.fao.constants.FaoParameterConstants;
+import de.gerdiproject.harvest.fao.utils.FaoDocumentBatchIterator;
+import de.gerdiproject.json.GsonUtils;
+import de.gerdiproject.json.datacite.DataCiteJson;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class runs a single FAOSTAT harvest from the command line, without a servlet container.
+ * The harvested documents are written as one JSON object per line to a file, or to stdout.
+ * Everything else that would be printed to stdout, including log messages and the usage text,
+ * is redirected to stderr, so that stdout only contains documents.
+ * The ETL is configured with the same parameters as the harvester service, passed as
+ * arguments of the form --&lt;key&gt;=&lt;value&gt;.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoStatBatchRunner
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoStatBatchRunner.class);
+
+
+    /**
+     * Parses the command line arguments and runs a harvest.
+     * The process exits with a non-zero status if the harvest failed.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(final String[] args)
+    {
+        // keep stdout for the documents, and send console logs to stderr
+        final PrintStream documentStream = System.out;
+        System.setOut(System.err);
+
+        final Map<String, String> options;
+
+        try {
+            options = parseArguments(args);
+
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.printf(FaoBatchConstants.USAGE);
+            System.exit(FaoBatchConstants.EXIT_INVALID_ARGUMENTS);
+            return;
+        }
+
+        if (options.containsKey(FaoBatchConstants.HELP_OPTION)) {
+            System.err.printf(FaoBatchConstants.USAGE);
+            return;
+        }
+
+        final String output = options.getOrDefault(FaoBatchConstants.OUTPUT_OPTION, FaoBatchConstants.STDOUT);
+        final String groups = options.get(FaoBatchConstants.GROUPS_OPTION);
+        options.remove(FaoBatchConstants.OUTPUT_OPTION);
+        options.remove(FaoBatchConstants.GROUPS_OPTION);
+
+        final int batchMaxDocuments;
+        final long batchMaxBytes;
+        final long batchMaxWaitMillis;
+
+        try {
+            batchMaxDocuments = removeBatchLimit(options, FaoBatchConstants.BATCH_MAX_DOCUMENTS_OPTION);
+            batchMaxBytes = removeBatchLimit(options, FaoBatchConstants.BATCH_MAX_SIZE_OPTION) * 1024L;
+            batchMaxWaitMillis = TimeUnit.SECONDS.toMillis(removeBatchLimit(options, FaoBatchConstants.BATCH_MAX_WAIT_OPTION));
+
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(FaoBatchConstants.EXIT_INVALID_ARGUMENTS);
+            return;
+        }
+
+        final FaoStatETL etl = createETL(groups);
+        etl.init(FaoBatchConstants.MODULE_NAME);
+
+        try {
+            for (final Map.Entry<String, String> option : options.entrySet())
+                LOGGER.info(etl.setParameterValue(option.getKey(), option.getValue()));
+
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(FaoBatchConstants.EXIT_INVALID_ARGUMENTS);
+            return;
+        }
+
+        // stop pending requests when the process is terminated
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> etl.getAbortSignal().abort(), FaoBatchConstants.THREAD_NAME));
+
+        final long startTime = System.currentTimeMillis();
+        LOGGER.info(String.format(FaoBatchConstants.HARVEST_STARTED, etl.getName(), output));
+
+        try (Writer writer = createWriter(output, documentStream)) {
+            final int documentCount = harvest(etl, writer, batchMaxDocuments, batchMaxBytes, batchMaxWaitMillis);
+            LOGGER.info(String.format(FaoBatchConstants.HARVEST_FINISHED, documentCount, etl.getName(), System.currentTimeMillis() - startTime));
+
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.error(String.format(FaoBatchConstants.HARVEST_FAILED, etl.getName()), e);
+            System.exit(FaoBatchConstants.EXIT_FAILURE);
+        }
+    }
+
+
+    /**
+     * Extracts and transforms all documents of an ETL and writes them, one per line.
+     * If any batch limit is set, the documents are grouped into batches and
+     * the writer is flushed after each batch.
+     *
+     * @param etl the initialized and configured ETL
+     * @param writer the writer to which the documents are written
+     * @param batchMaxDocuments the maximum number of documents per batch, or 0 if the number is not limited
+     * @param batchMaxBytes the maximum size of a batch in bytes, or 0 if the size is not limited
+     * @param batchMaxWaitMillis the maximum time in milliseconds that the first document of a batch waits
+     *         for the batch to be completed, or 0 if batches are only handed on when they are full
+     *
+     * @throws IOException if a document could not be written
+     *
+     * @return the number of written documents
+     */
+    public static int harvest(final FaoStatETL etl, final Writer writer, final int batchMaxDocuments, final long batchMaxBytes, final long batchMaxWaitMillis) throws IOException
+    {
+        final Gson gson = GsonUtils.createGerdiDocumentGsonBuilder().create();
+        final FaoStatExtractor extractor = new FaoStatExtractor();
+        final FaoStatTransformer transformer = new FaoStatTransformer();
+        FaoDocumentBatchIterator batches = null;
+        int documentCount = 0;
+
+        try {
+            extractor.init(etl);
+            transformer.init(etl);
+
+            if (batchMaxDocuments > 0 || batchMaxBytes > 0 || batchMaxWaitMillis > 0) {
+                batches = transformer.transformInBatches(extractor.extract(), batchMaxDocuments, batchMaxBytes, batchMaxWaitMillis);
+
+                while (batches.hasNext()) {
+                    final List<DataCiteJson> batch = batches.next();
+
+                    for (final DataCiteJson document : batch)
+                        writeDocument(gson, document, writer);
+
+                    writer.flush();
+                    documentCount += batch.size();
+                }
+            } else {
+                final Iterator<DataCiteJson> documents = transformer.transform(extractor.extract());
+
+                while (documents.hasNext()) {
+                    final DataCiteJson document = documents.next();
+
+                    // documents may be skipped by the transformer
+                    if (document == null)
+                        continue;
+
+                    writeDocument(gson, document, writer);
+                    documentCount++;
+                }
+            }
+        } finally {
+            if (batches != null)
+                batches.cancel();
+
+            extractor.clear();
+            transformer.clear();
+        }
+
+        return documentCount;
+    }
+
+
+    /**
+     * Writes a document as a single line of JSON.
+     *
+     * @param gson the Gson instance that serializes the document
+     * @param document the document that is to be written
+     * @param writer the writer to which the document is written
+     *
+     * @throws IOException if the document could not be written
+     */
+    private static void writeDocument(final Gson gson, final DataCiteJson document, final Writer writer) throws IOException
+    {
+        writer.write(gson.toJson(document));
+        writer.write(System.lineSeparator());
+    }
+
+
+    /**
+     * Removes a batch limit from the parsed options and parses its value.
+     *
+     * @param options the parsed command line options
+     * @param key the key of the batch limit
+     *
+     * @throws IllegalArgumentException if the value is not a non-negative integer
+     *
+     * @return the value of the batch limit, or 0 if it is not set
+     */
+    private static int removeBatchLimit(final Map<String, String> options, final String key)
+    {
+        final String value = options.remove(key);
+
+        if (value == null)
+            return 0;
+
+        final String error = String.format(FaoBatchConstants.INVALID_BATCH_LIMIT_ERROR, value, key);
+        final int limit;
+
+        try {
+            limit = Integer.parseInt(value.trim());
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(error, e);
+        }
+
+        if (limit < 0)
+            throw new IllegalArgumentException(error);
+
+        return limit;
+    }
+
+
+    /**
+     * Creates an ETL that harvests all FAOSTAT groups, or only specified groups.
+     *
+     * @param groups a comma-separated list of group codes, or null if all groups are harvested
+     *
+     * @return a new ETL
+     */
+    private static FaoStatETL createETL(final String groups)
+    {
+        if (groups == null)
+            return new FaoStatETL();
+
+        final Set<String> groupCodes = new LinkedHashSet<>();
+
+        for (final String groupCode : groups.split(FaoParameterConstants.GROUP_CODE_SEPARATOR)) {
+            if (!groupCode.trim().isEmpty())
+                groupCodes.add(groupCode.trim());
+        }
+
+        return new FaoStatETL(groupCodes);
+    }
+
+
+    /**
+     * Creates a UTF-8 writer for a file, or for stdout.
+     *
+     * @param output the path of the output file, or "-" for stdout
+     * @param stdout the original stdout stream, which is reserved for documents
+     *
+     * @throws IOException if the file could not be opened
+     *
+     * @return a buffered writer
+     */
+    private static Writer createWriter(final String output, final PrintStream stdout) throws IOException
+    {
+        return FaoBatchConstants.STDOUT.equals(output)
+               ? new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8))
+               : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Parses arguments of the form --&lt;key&gt;=&lt;value&gt; or --&lt;key&gt;.
+     *
+     * @param args the command line arguments
+     *
+     * @throws IllegalArgumentException if an argument has an invalid form
+     *
+     * @return a map of argument keys to their values, in the order of the arguments
+     */
+    private static Map<String, String> parseArguments(final String[] args)
+    {
+        final Map<String, String> options = new LinkedHashMap<>();
+
+        for (final String arg : args) {
+            if (!arg.startsWith(FaoBatchConstants.OPTION_PREFIX) || arg.length() == FaoBatchConstants.OPTION_PREFIX.length())
+                throw new IllegalArgumentException(String.format(FaoBatchConstants.INVALID_ARGUMENT_ERROR, arg));
+
+            final String option = arg.substring(FaoBatchConstants.OPTION_PREFIX.length());
+            final int separatorIndex = option.indexOf(FaoBatchConstants.OPTION_SEPARATOR);
+
+            if (separatorIndex == -1)
+                options.put(option, "");
+            else
+                options.put(option.substring(0, separatorIndex), option.substring(separatorIndex + 1));
+        }
+
+        return options;
+    }
+}
@@ -15,26 +15,141 @@
  */
 package de.gerdiproject.harvest;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
+import javax.servlet.ServletContextEvent;
 import javax.servlet.annotation.WebListener;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import de.gerdiproject.harvest.application.ContextListener;
 import de.gerdiproject.harvest.etls.AbstractETL;
 import de.gerdiproject.harvest.etls.FaoStatETL;
+import de.gerdiproject.harvest.fao.constants.FaoParameterConstants;
+import de.gerdiproject.harvest.fao.scheduler.FaoReleaseScheduler;
+import de.gerdiproject.harvest.fao.utils.FaoGroupCodeStore;
 
 /**
  * This class initializes the FAOSTAT harvester and all objects that are required.
+ * By default, a single ETL harvests all FAOSTAT groups. If the system property or
+ * environment variable {@value FaoParameterConstants#GROUP_SETS_KEY} is set, one ETL
+ * is created per semicolon-separated set of comma-separated group codes instead,
+ * e.g. "QC,QA;TP". The wildcard {@value FaoParameterConstants#ALL_GROUPS_WILDCARD}
+ * creates one ETL per group that was listed by FAOSTAT when the domain list was last
+ * retrieved, so that the startup does not depend on FAOSTAT. If the groups are not
+ * known yet, a single ETL harvests all groups and stores them for the next startup.
+ * Additionally, a {@linkplain FaoReleaseScheduler} observes all ETLs.
  *
  * @author Robin Weiss
  */
 @WebListener
 public class FaoStatContextListener extends ContextListener
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoStatContextListener.class);
+
+    private final FaoReleaseScheduler releaseScheduler = new FaoReleaseScheduler();
+    private final List<FaoStatETL> createdEtls = new LinkedList<>();
+
+
+    @Override
+    public void contextInitialized(final ServletContextEvent sce)
+    {
+        super.contextInitialized(sce);
+        releaseScheduler.start();
+    }
+
+
+    @Override
+    public void contextDestroyed(final ServletContextEvent sce)
+    {
+        releaseScheduler.stop();
+        super.contextDestroyed(sce);
+
+        for (final FaoStatETL etl : createdEtls)
+            etl.unregisterMetrics();
+
+        createdEtls.clear();
+    }
+
+
     @Override
     protected List<? extends AbstractETL<?, ?>> createETLs()
     {
-        return Arrays.asList(new FaoStatETL());
+        final List<Set<String>> groupSets = getGroupSets();
+        final List<FaoStatETL> etls = new LinkedList<>();
+
+        if (groupSets.isEmpty())
+            etls.add(new FaoStatETL());
+        else {
+            for (final Set<String> groupCodes : groupSets)
+                etls.add(new FaoStatETL(groupCodes));
+        }
+
+        releaseScheduler.setETLs(etls);
+        createdEtls.clear();
+        createdEtls.addAll(etls);
+        return etls;
+    }
+
+
+    /**
+     * Parses the configured sets of group codes for which separate ETLs are to be created.
+     *
+     * @return a list of sets of group codes, or an empty list if a single ETL is to be created
+     */
+    private List<Set<String>> getGroupSets()
+    {
+        String groupSetsConfig = System.getProperty(FaoParameterConstants.GROUP_SETS_KEY);
+
+        if (groupSetsConfig == null)
+            groupSetsConfig = System.getenv(FaoParameterConstants.GROUP_SETS_KEY);
+
+        final List<Set<String>> groupSets = new LinkedList<>();
+
+        if (groupSetsConfig == null)
+            return groupSets;
+
+        if (groupSetsConfig.trim().equals(FaoParameterConstants.ALL_GROUPS_WILDCARD))
+            return getAllGroups();
+
+        for (final String groupSet : groupSetsConfig.split(FaoParameterConstants.GROUP_SET_SEPARATOR)) {
+            final Set<String> groupCodes = new LinkedHashSet<>();
+
+            for (final String groupCode : groupSet.split(FaoParameterConstants.GROUP_CODE_SEPARATOR)) {
+                if (!groupCode.trim().isEmpty())
+                    groupCodes.add(groupCode.trim());
+            }
+
+            if (!groupCodes.isEmpty())
+                groupSets.add(groupCodes);
+        }
+
+        return groupSets;
+    }
+
+
+    /**
+     * Retrieves all groups that were listed by FAOSTAT when the domain list was last
+     * retrieved by an ETL or the release scheduler, each in a set of its own.
+     *
+     * @return a list of single group code sets, or an empty list if the groups are not known yet
+     */
+    private List<Set<String>> getAllGroups()
+    {
+        final List<Set<String>> groupSets = new LinkedList<>();
+
+        for (final String groupCode : new FaoGroupCodeStore(StandardCharsets.UTF_8).load())
+            groupSets.add(new LinkedHashSet<>(Arrays.asList(groupCode)));
+
+        if (groupSets.isEmpty())
+            LOGGER.info(FaoParameterConstants.GROUPS_UNKNOWN);
+
+        return groupSets;
     }
 }
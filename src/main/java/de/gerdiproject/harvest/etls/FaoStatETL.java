@@ -16,12 +16,30 @@
  */
 package de.gerdiproject.harvest.etls;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.AbstractParameter;
+import de.gerdiproject.harvest.config.parameters.BooleanParameter;
+import de.gerdiproject.harvest.config.parameters.IntegerParameter;
 import de.gerdiproject.harvest.config.parameters.StringParameter;
 import de.gerdiproject.harvest.etls.extractors.FaoStatDomainVO;
 import de.gerdiproject.harvest.etls.extractors.FaoStatExtractor;
 import de.gerdiproject.harvest.etls.transformers.FaoStatTransformer;
 import de.gerdiproject.harvest.fao.constants.FaoParameterConstants;
+import de.gerdiproject.harvest.fao.utils.FaoAbortSignal;
+import de.gerdiproject.harvest.fao.utils.FaoCostProfiler;
+import de.gerdiproject.harvest.fao.utils.FaoDocumentHashRegistry;
+import de.gerdiproject.harvest.fao.utils.FaoDocumentSizeLimiter;
+import de.gerdiproject.harvest.fao.utils.FaoDomainFilter;
+import de.gerdiproject.harvest.fao.utils.FaoDomainSelector;
+import de.gerdiproject.harvest.fao.utils.FaoProgressTracker;
+import de.gerdiproject.harvest.fao.utils.FaoRetryMetrics;
 import de.gerdiproject.json.datacite.DataCiteJson;
 
 /**
@@ -31,14 +49,82 @@ import de.gerdiproject.json.datacite.DataCiteJson;
  */
 public class FaoStatETL extends StaticIteratorETL<FaoStatDomainVO, DataCiteJson>
 {
+    private final FaoDocumentHashRegistry hashRegistry = new FaoDocumentHashRegistry();
+    private final FaoAbortSignal abortSignal = new FaoAbortSignal();
+    private final FaoProgressTracker progressTracker = new FaoProgressTracker();
+    private final FaoCostProfiler costProfiler = new FaoCostProfiler();
+    private final FaoRetryMetrics retryMetrics = new FaoRetryMetrics();
+    private final FaoDocumentSizeLimiter documentSizeLimiter = new FaoDocumentSizeLimiter();
+    private final Set<String> groupCodes;
+    private final ThreadLocal<Set<String>> domainRestriction = ThreadLocal.withInitial(Collections::emptySet);
+    private volatile Set<String> completedDomainRestriction;
+    private volatile Map<String, AbstractParameter<?>> faoParameters;
+
     private volatile StringParameter languageParameter;
+    private volatile StringParameter includedDomainsParameter;
+    private volatile StringParameter excludedDomainsParameter;
+    private volatile StringParameter includedGroupsParameter;
+    private volatile StringParameter excludedGroupsParameter;
+    private volatile BooleanParameter changesOnlyParameter;
+    private volatile IntegerParameter shardIndexParameter;
+    private volatile IntegerParameter shardCountParameter;
+    private volatile BooleanParameter releaseSchedulerParameter;
+    private volatile BooleanParameter probeBulkDownloadsParameter;
+    private volatile BooleanParameter profileBulkDownloadsParameter;
+    private volatile IntegerParameter profileThreadsParameter;
+    private volatile IntegerParameter profileMemoryParameter;
+    private volatile BooleanParameter mirrorBulkDownloadsParameter;
+    private volatile StringParameter mirrorFolderParameter;
+    private volatile IntegerParameter mirrorThreadsParameter;
+    private volatile IntegerParameter mirrorBandwidthParameter;
+    private volatile StringParameter linkValidationParameter;
+    private volatile IntegerParameter linkThreadsParameter;
+    private volatile IntegerParameter linkRequestsPerSecondParameter;
+    private volatile IntegerParameter linkCacheHoursParameter;
+    private volatile IntegerParameter linkDocumentTimeoutParameter;
+    private volatile IntegerParameter linkHarvestBudgetParameter;
+    private volatile IntegerParameter requestConcurrencyParameter;
+    private volatile BooleanParameter virtualThreadsParameter;
+    private volatile IntegerParameter requestTimeoutParameter;
+    private volatile StringParameter endpointTimeoutsParameter;
+    private volatile IntegerParameter domainDeadlineParameter;
+    private volatile IntegerParameter requestRetriesParameter;
+    private volatile IntegerParameter retryBaseDelayParameter;
+    private volatile IntegerParameter retryMaxDelayParameter;
+    private volatile IntegerParameter circuitFailureThresholdParameter;
+    private volatile IntegerParameter circuitOpenSecondsParameter;
+    private volatile IntegerParameter releasePollIntervalParameter;
+    private volatile IntegerParameter idlePollIntervalParameter;
+    private volatile BooleanParameter staleWhileRevalidateParameter;
+    private volatile IntegerParameter revalidationTimeoutParameter;
+    private volatile BooleanParameter asyncInitParameter;
+    private volatile BooleanParameter costReportParameter;
+    private volatile StringParameter costReportFolderParameter;
+    private volatile IntegerParameter documentSizeBudgetParameter;
 
     /**
-     * Constructor
+     * Constructor for an ETL that harvests all FAOSTAT groups.
      */
     public FaoStatETL()
     {
         super(new FaoStatExtractor(), new FaoStatTransformer());
+        this.groupCodes = Collections.emptySet();
+    }
+
+
+    /**
+     * Constructor for an ETL that only harvests domains of specified FAOSTAT groups.
+     *
+     * @param groupCodes the codes of the groups that are to be harvested
+     */
+    public FaoStatETL(final Collection<String> groupCodes)
+    {
+        super(String.format(
+                  FaoParameterConstants.GROUP_ETL_NAME_FORMAT,
+                  String.join(FaoParameterConstants.GROUP_ETL_NAME_SEPARATOR, groupCodes)),
+              new FaoStatExtractor(),
+              new FaoStatTransformer());
+        this.groupCodes = Collections.unmodifiableSet(new LinkedHashSet<>(groupCodes));
     }
 
 
@@ -48,10 +134,305 @@ public class FaoStatETL extends StaticIteratorETL<FaoStatDomainVO, DataCiteJson>
         super.registerParameters();
 
         this.languageParameter =
-            Configuration.registerParameter(new StringParameter(
-                                                FaoParameterConstants.LANGUAGE_KEY,
-                                                getName(),
-                                                FaoParameterConstants.LANGUAGE_DEFAULT));
+            registerFaoParameter(new StringParameter(
+                                     FaoParameterConstants.LANGUAGE_KEY,
+                                     getName(),
+                                     FaoParameterConstants.LANGUAGE_DEFAULT));
+
+        this.includedDomainsParameter =
+            registerFaoParameter(new StringParameter(
+                                     FaoParameterConstants.INCLUDED_DOMAINS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.CODE_FILTER_DEFAULT));
+
+        this.excludedDomainsParameter =
+            registerFaoParameter(new StringParameter(
+                                     FaoParameterConstants.EXCLUDED_DOMAINS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.CODE_FILTER_DEFAULT));
+
+        this.includedGroupsParameter =
+            registerFaoParameter(new StringParameter(
+                                     FaoParameterConstants.INCLUDED_GROUPS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.CODE_FILTER_DEFAULT));
+
+        this.excludedGroupsParameter =
+            registerFaoParameter(new StringParameter(
+                                     FaoParameterConstants.EXCLUDED_GROUPS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.CODE_FILTER_DEFAULT));
+
+        this.changesOnlyParameter =
+            registerFaoParameter(new BooleanParameter(
+                                     FaoParameterConstants.CHANGES_ONLY_KEY,
+                                     getName(),
+                                     FaoParameterConstants.CHANGES_ONLY_DEFAULT));
+
+        this.shardIndexParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.SHARD_INDEX_KEY,
+                                     getName(),
+                                     FaoParameterConstants.SHARD_INDEX_DEFAULT));
+
+        this.shardCountParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.SHARD_COUNT_KEY,
+                                     getName(),
+                                     FaoParameterConstants.SHARD_COUNT_DEFAULT));
+
+        this.releaseSchedulerParameter =
+            registerFaoParameter(new BooleanParameter(
+                                     FaoParameterConstants.RELEASE_SCHEDULER_KEY,
+                                     getName(),
+                                     FaoParameterConstants.RELEASE_SCHEDULER_DEFAULT));
+
+        this.releasePollIntervalParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.RELEASE_POLL_INTERVAL_KEY,
+                                     getName(),
+                                     FaoParameterConstants.RELEASE_POLL_INTERVAL_DEFAULT));
+
+        this.idlePollIntervalParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.IDLE_POLL_INTERVAL_KEY,
+                                     getName(),
+                                     FaoParameterConstants.IDLE_POLL_INTERVAL_DEFAULT));
+
+        this.probeBulkDownloadsParameter =
+            registerFaoParameter(new BooleanParameter(
+                                     FaoParameterConstants.PROBE_BULK_DOWNLOADS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.PROBE_BULK_DOWNLOADS_DEFAULT));
+
+        this.profileBulkDownloadsParameter =
+            registerFaoParameter(new BooleanParameter(
+                                     FaoParameterConstants.PROFILE_BULK_DOWNLOADS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.PROFILE_BULK_DOWNLOADS_DEFAULT));
+
+        this.profileThreadsParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.PROFILE_THREADS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.PROFILE_THREADS_DEFAULT));
+
+        this.profileMemoryParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.PROFILE_MEMORY_KEY,
+                                     getName(),
+                                     FaoParameterConstants.PROFILE_MEMORY_DEFAULT));
+
+        this.mirrorBulkDownloadsParameter =
+            registerFaoParameter(new BooleanParameter(
+                                     FaoParameterConstants.MIRROR_BULK_DOWNLOADS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.MIRROR_BULK_DOWNLOADS_DEFAULT));
+
+        this.mirrorFolderParameter =
+            registerFaoParameter(new StringParameter(
+                                     FaoParameterConstants.MIRROR_FOLDER_KEY,
+                                     getName(),
+                                     FaoParameterConstants.MIRROR_FOLDER_DEFAULT));
+
+        this.mirrorThreadsParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.MIRROR_THREADS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.MIRROR_THREADS_DEFAULT));
+
+        this.mirrorBandwidthParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.MIRROR_BANDWIDTH_KEY,
+                                     getName(),
+                                     FaoParameterConstants.MIRROR_BANDWIDTH_DEFAULT));
+
+        this.linkValidationParameter =
+            registerFaoParameter(new StringParameter(
+                                     FaoParameterConstants.LINK_VALIDATION_KEY,
+                                     getName(),
+                                     FaoParameterConstants.LINK_VALIDATION_DEFAULT));
+
+        this.linkThreadsParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.LINK_THREADS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.LINK_THREADS_DEFAULT));
+
+        this.linkRequestsPerSecondParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.LINK_REQUESTS_PER_SECOND_KEY,
+                                     getName(),
+                                     FaoParameterConstants.LINK_REQUESTS_PER_SECOND_DEFAULT));
+
+        this.linkCacheHoursParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.LINK_CACHE_HOURS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.LINK_CACHE_HOURS_DEFAULT));
+
+        this.linkDocumentTimeoutParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.LINK_DOCUMENT_TIMEOUT_KEY,
+                                     getName(),
+                                     FaoParameterConstants.LINK_DOCUMENT_TIMEOUT_DEFAULT));
+
+        this.linkHarvestBudgetParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.LINK_HARVEST_BUDGET_KEY,
+                                     getName(),
+                                     FaoParameterConstants.LINK_HARVEST_BUDGET_DEFAULT));
+
+        this.requestConcurrencyParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.REQUEST_CONCURRENCY_KEY,
+                                     getName(),
+                                     FaoParameterConstants.REQUEST_CONCURRENCY_DEFAULT));
+
+        this.virtualThreadsParameter =
+            registerFaoParameter(new BooleanParameter(
+                                     FaoParameterConstants.VIRTUAL_THREADS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.VIRTUAL_THREADS_DEFAULT));
+
+        this.requestTimeoutParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.REQUEST_TIMEOUT_KEY,
+                                     getName(),
+                                     FaoParameterConstants.REQUEST_TIMEOUT_DEFAULT));
+
+        this.endpointTimeoutsParameter =
+            registerFaoParameter(new StringParameter(
+                                     FaoParameterConstants.ENDPOINT_TIMEOUTS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.ENDPOINT_TIMEOUTS_DEFAULT));
+
+        this.domainDeadlineParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.DOMAIN_DEADLINE_KEY,
+                                     getName(),
+                                     FaoParameterConstants.DOMAIN_DEADLINE_DEFAULT));
+
+        this.requestRetriesParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.REQUEST_RETRIES_KEY,
+                                     getName(),
+                                     FaoParameterConstants.REQUEST_RETRIES_DEFAULT));
+
+        this.retryBaseDelayParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.RETRY_BASE_DELAY_KEY,
+                                     getName(),
+                                     FaoParameterConstants.RETRY_BASE_DELAY_DEFAULT));
+
+        this.retryMaxDelayParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.RETRY_MAX_DELAY_KEY,
+                                     getName(),
+                                     FaoParameterConstants.RETRY_MAX_DELAY_DEFAULT));
+
+        this.circuitFailureThresholdParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.CIRCUIT_FAILURE_THRESHOLD_KEY,
+                                     getName(),
+                                     FaoParameterConstants.CIRCUIT_FAILURE_THRESHOLD_DEFAULT));
+
+        this.circuitOpenSecondsParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.CIRCUIT_OPEN_SECONDS_KEY,
+                                     getName(),
+                                     FaoParameterConstants.CIRCUIT_OPEN_SECONDS_DEFAULT));
+
+        this.staleWhileRevalidateParameter =
+            registerFaoParameter(new BooleanParameter(
+                                     FaoParameterConstants.STALE_WHILE_REVALIDATE_KEY,
+                                     getName(),
+                                     FaoParameterConstants.STALE_WHILE_REVALIDATE_DEFAULT));
+
+        this.revalidationTimeoutParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.REVALIDATION_TIMEOUT_KEY,
+                                     getName(),
+                                     FaoParameterConstants.REVALIDATION_TIMEOUT_DEFAULT));
+
+        this.asyncInitParameter =
+            registerFaoParameter(new BooleanParameter(
+                                     FaoParameterConstants.ASYNC_INIT_KEY,
+                                     getName(),
+                                     FaoParameterConstants.ASYNC_INIT_DEFAULT));
+
+        this.costReportParameter =
+            registerFaoParameter(new BooleanParameter(
+                                     FaoParameterConstants.COST_REPORT_KEY,
+                                     getName(),
+                                     FaoParameterConstants.COST_REPORT_DEFAULT));
+
+        this.costReportFolderParameter =
+            registerFaoParameter(new StringParameter(
+                                     FaoParameterConstants.COST_REPORT_FOLDER_KEY,
+                                     getName(),
+                                     FaoParameterConstants.COST_REPORT_FOLDER_DEFAULT));
+
+        this.documentSizeBudgetParameter =
+            registerFaoParameter(new IntegerParameter(
+                                     FaoParameterConstants.DOCUMENT_SIZE_BUDGET_KEY,
+                                     getName(),
+                                     FaoParameterConstants.DOCUMENT_SIZE_BUDGET_DEFAULT));
+
+    }
+
+
+    /**
+     * Registers a parameter of this ETL, so that it can also be changed
+     * via {@linkplain #setParameterValue(String, String)}.
+     *
+     * @param parameter the parameter that is to be registered
+     * @param <P> the type of the parameter
+     *
+     * @return the registered parameter
+     */
+    private <P extends AbstractParameter<?>> P registerFaoParameter(final P parameter)
+    {
+        // parameters may be registered before the fields of this class are initialized
+        if (faoParameters == null)
+            faoParameters = new ConcurrentHashMap<>();
+
+        final P registeredParameter = Configuration.registerParameter(parameter);
+        faoParameters.put(parameter.getKey(), registeredParameter);
+        return registeredParameter;
+    }
+
+
+    /**
+     * Changes the value of a parameter of this ETL, without requiring a
+     * servlet context. This is used to configure harvests that are run
+     * from the command line.
+     *
+     * @param key the key of the parameter, without the ETL name
+     * @param value the new value of the parameter
+     *
+     * @throws IllegalArgumentException if this ETL has no parameter with the specified key
+     *
+     * @return a message that describes the outcome of the change
+     */
+    public String setParameterValue(final String key, final String value)
+    {
+        final AbstractParameter<?> parameter = faoParameters == null ? null : faoParameters.get(key);
+
+        if (parameter == null)
+            throw new IllegalArgumentException(String.format(FaoParameterConstants.UNKNOWN_PARAMETER_ERROR, key, getName()));
+
+        return parameter.setValue(value);
+    }
+
+
+    @Override
+    public void abortHarvest()
+    {
+        super.abortHarvest();
+
+        // cancel running requests instead of waiting for the current domain to be completed
+        abortSignal.abort();
     }
 
 
@@ -65,4 +446,669 @@ public class FaoStatETL extends StaticIteratorETL<FaoStatDomainVO, DataCiteJson>
         return languageParameter.getStringValue();
     }
 
+
+    /**
+     * Retrieves a comma-separated list of domain codes or glob patterns,
+     * e.g. "QC,Q*". If it is not empty, only matching domains are harvested.
+     *
+     * @return a comma-separated list of included domain codes
+     */
+    public String getIncludedDomains()
+    {
+        return includedDomainsParameter.getStringValue();
+    }
+
+
+    /**
+     * Retrieves a comma-separated list of domain codes or glob patterns
+     * of domains that are not harvested.
+     *
+     * @return a comma-separated list of excluded domain codes
+     */
+    public String getExcludedDomains()
+    {
+        return excludedDomainsParameter.getStringValue();
+    }
+
+
+    /**
+     * Retrieves a comma-separated list of group codes or glob patterns.
+     * If it is not empty, only domains of matching groups are harvested.
+     *
+     * @return a comma-separated list of included group codes
+     */
+    public String getIncludedGroups()
+    {
+        return includedGroupsParameter.getStringValue();
+    }
+
+
+    /**
+     * Retrieves a comma-separated list of group codes or glob patterns
+     * of groups whose domains are not harvested.
+     *
+     * @return a comma-separated list of excluded group codes
+     */
+    public String getExcludedGroups()
+    {
+        return excludedGroupsParameter.getStringValue();
+    }
+
+
+    /**
+     * Checks if only documents that were added or changed since the
+     * last harvest are to be passed on to the loader. Documents of domains that
+     * were removed are logged, because the loader cannot delete them.
+     *
+     * @return true if unchanged documents are to be skipped
+     */
+    public boolean isChangesOnly()
+    {
+        return changesOnlyParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the zero-based index of the shard of domains that is harvested
+     * by this harvester instance.
+     *
+     * @return the index of the harvested shard
+     */
+    public int getShardIndex()
+    {
+        return shardIndexParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the number of harvester instances among which the domains
+     * are distributed.
+     *
+     * @return the number of shards
+     */
+    public int getShardCount()
+    {
+        return shardCountParameter.getValue();
+    }
+
+
+    /**
+     * Checks if harvests are to be triggered automatically when FAOSTAT
+     * releases new data of a domain.
+     *
+     * @return true if the release scheduler is enabled for this ETL
+     */
+    public boolean isReleaseSchedulerEnabled()
+    {
+        return releaseSchedulerParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the number of minutes between two polls of the domain list
+     * while an announced release date has passed without an update.
+     *
+     * @return the poll interval in minutes during releases
+     */
+    public int getReleasePollInterval()
+    {
+        return releasePollIntervalParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the number of minutes between two polls of the domain list
+     * while no release is due.
+     *
+     * @return the poll interval in minutes outside of releases
+     */
+    public int getIdlePollInterval()
+    {
+        return idlePollIntervalParameter.getValue();
+    }
+
+
+    /**
+     * Checks if the CSV files within bulk download archives are to be listed
+     * by reading the central directories of the archives.
+     *
+     * @return true if bulk download archives are to be probed
+     */
+    public boolean isProbingBulkDownloads()
+    {
+        return probeBulkDownloadsParameter.getValue();
+    }
+
+
+    /**
+     * Checks if the CSV files within bulk download archives are to be downloaded
+     * and profiled in order to enrich the documents.
+     *
+     * @return true if bulk download archives are to be profiled
+     */
+    public boolean isProfilingBulkDownloads()
+    {
+        return profileBulkDownloadsParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the number of bulk download archives that can be profiled in parallel.
+     *
+     * @return the number of profiling threads
+     */
+    public int getProfileThreads()
+    {
+        return profileThreadsParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the number of megabytes that may be occupied by the code sets
+     * of all profiled archives.
+     *
+     * @return the memory cap of profiling in megabytes
+     */
+    public int getProfileMemory()
+    {
+        return profileMemoryParameter.getValue();
+    }
+
+
+    /**
+     * Checks if the bulk download archives are to be mirrored to a local folder.
+     *
+     * @return true if bulk download archives are to be mirrored
+     */
+    public boolean isMirroringBulkDownloads()
+    {
+        return mirrorBulkDownloadsParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the path of the folder to which bulk download archives are mirrored.
+     *
+     * @return the mirror folder path, or an empty string if the cache folder is to be used
+     */
+    public String getMirrorFolder()
+    {
+        return mirrorFolderParameter.getStringValue();
+    }
+
+
+    /**
+     * Retrieves the number of archive chunks that can be downloaded in parallel.
+     *
+     * @return the number of mirroring threads
+     */
+    public int getMirrorThreads()
+    {
+        return mirrorThreadsParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the maximum number of kilobytes per second that may be downloaded
+     * by all mirroring threads combined.
+     *
+     * @return the mirroring bandwidth in kilobytes per second, or zero if it is unlimited
+     */
+    public int getMirrorBandwidth()
+    {
+        return mirrorBandwidthParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves how documents with broken links are treated. If it is "off",
+     * links are not validated. If it is "flag", broken links are marked as such.
+     * If it is "drop", broken links are removed from the documents.
+     *
+     * @return the link validation mode
+     */
+    public String getLinkValidation()
+    {
+        return linkValidationParameter.getStringValue();
+    }
+
+
+    /**
+     * Retrieves the number of links that can be validated in parallel.
+     *
+     * @return the number of link validation threads
+     */
+    public int getLinkThreads()
+    {
+        return linkThreadsParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the maximum number of link validation requests per second.
+     *
+     * @return the maximum number of requests per second, or zero if it is unlimited
+     */
+    public int getLinkRequestsPerSecond()
+    {
+        return linkRequestsPerSecondParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the number of hours for which the state of a validated link is cached.
+     *
+     * @return the time to live of cached link states in hours
+     */
+    public int getLinkCacheHours()
+    {
+        return linkCacheHoursParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the maximum number of milliseconds that a single document
+     * waits for its links to be validated.
+     *
+     * @return the link validation timeout per document in milliseconds
+     */
+    public int getLinkDocumentTimeout()
+    {
+        return linkDocumentTimeoutParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the maximum number of seconds that a harvest may be delayed
+     * by waiting for link validations.
+     *
+     * @return the link validation budget per harvest in seconds
+     */
+    public int getLinkHarvestBudget()
+    {
+        return linkHarvestBudgetParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the maximum number of FAOSTAT requests that are sent at the same time.
+     * If it is greater than one, the requests of multiple domains overlap.
+     *
+     * @return the maximum number of concurrent requests
+     */
+    public int getRequestConcurrency()
+    {
+        return requestConcurrencyParameter.getValue();
+    }
+
+
+    /**
+     * Checks if concurrent FAOSTAT requests are to run on virtual threads, which
+     * requires Java 21 or newer. This only has an effect if the request concurrency
+     * is greater than one.
+     *
+     * @return true if requests are to run on virtual threads
+     */
+    public boolean isUsingVirtualThreads()
+    {
+        return virtualThreadsParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the maximum number of seconds that a single FAOSTAT request may take,
+     * unless its endpoint type has its own timeout.
+     *
+     * @return the default request timeout in seconds, or zero if requests do not time out
+     */
+    public int getRequestTimeout()
+    {
+        return requestTimeoutParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves a comma-separated list of timeouts of specific endpoint types,
+     * e.g. "codes=20,dimensions=30". Each timeout is specified in seconds.
+     *
+     * @return a comma-separated list of endpoint timeouts
+     */
+    public String getEndpointTimeouts()
+    {
+        return endpointTimeoutsParameter.getStringValue();
+    }
+
+
+    /**
+     * Retrieves the maximum number of seconds that may be spent retrieving a single domain.
+     * Domains that exceed it are retried at the end of the harvest.
+     *
+     * @return the domain deadline in seconds, or zero if domains have no deadline
+     */
+    public int getDomainDeadline()
+    {
+        return domainDeadlineParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the number of times that a failed FAOSTAT request is retried.
+     *
+     * @return the number of retries, or zero if failed requests are not retried
+     */
+    public int getRequestRetries()
+    {
+        return requestRetriesParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the number of milliseconds to wait before the first retry.
+     * The delay doubles with every further retry.
+     *
+     * @return the initial retry delay in milliseconds
+     */
+    public int getRetryBaseDelay()
+    {
+        return retryBaseDelayParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the maximum number of milliseconds to wait before a retry,
+     * including delays that are requested by the server.
+     *
+     * @return the maximum retry delay in milliseconds
+     */
+    public int getRetryMaxDelay()
+    {
+        return retryMaxDelayParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the number of consecutive failed requests of an endpoint type
+     * after which all further requests of that type fail immediately.
+     *
+     * @return the failure threshold, or zero if requests never fail immediately
+     */
+    public int getCircuitFailureThreshold()
+    {
+        return circuitFailureThresholdParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the number of seconds during which requests of an endpoint type fail
+     * immediately, before a single request is sent to test if the endpoint recovered.
+     *
+     * @return the number of seconds that a circuit stays open
+     */
+    public int getCircuitOpenSeconds()
+    {
+        return circuitOpenSecondsParameter.getValue();
+    }
+
+
+    /**
+     * Checks if the responses of all requests are stored, and if stored responses are
+     * served straight away while they are refreshed in the background, so that a harvest
+     * is not delayed by a slow or unavailable FAOSTAT API.
+     *
+     * @return true if stored responses are served
+     */
+    public boolean isServingStaleResponses()
+    {
+        return staleWhileRevalidateParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the maximum number of seconds that the background refresh of a served
+     * stored response may take, including its retries.
+     *
+     * @return the timeout in seconds
+     */
+    public int getRevalidationTimeout()
+    {
+        return revalidationTimeoutParameter.getValue();
+    }
+
+
+    /**
+     * Checks if the extractor is initialized from the stored domain list of the previous
+     * harvest, while the current domain list is retrieved in the background.
+     *
+     * @return true if the domain list is retrieved in the background
+     */
+    public boolean isInitializingAsynchronously()
+    {
+        return asyncInitParameter.getValue();
+    }
+
+
+    /**
+     * Checks if the requests and transformations of each domain are to be measured
+     * and written to a cost report after each harvest.
+     *
+     * @return true if a cost report is to be created
+     */
+    public boolean isReportingCosts()
+    {
+        return costReportParameter.getValue();
+    }
+
+
+    /**
+     * Retrieves the path of the folder to which cost reports are written.
+     *
+     * @return the cost report folder path, or an empty string if the cache folder is to be used
+     */
+    public String getCostReportFolder()
+    {
+        return costReportFolderParameter.getStringValue();
+    }
+
+
+    /**
+     * Retrieves the maximum size of the JSON representation of a document.
+     * Subjects are trimmed from documents that exceed this budget.
+     *
+     * @return the document size budget in kilobytes, or 0 if the size is not limited
+     */
+    public int getDocumentSizeBudget()
+    {
+        return documentSizeBudgetParameter.getValue();
+    }
+
+
+    /**
+     * Prepares and runs a harvest that is restricted to a set of domains.
+     * The restriction is passed to the harvest that is started by the calling
+     * thread only, so harvests that are started concurrently by other threads
+     * still harvest all domains.
+     *
+     * @param domainCodes the codes of the domains that are to be harvested
+     *
+     * @throws ETLPreconditionException if the harvest could not be prepared
+     *
+     * @return true if the harvest handed all documents on to the loader
+     *          without being aborted, false if it failed, was aborted,
+     *          or was not started, because another harvest is running
+     */
+    public boolean harvestDomains(final Set<String> domainCodes) throws ETLPreconditionException
+    {
+        // the restriction is a new instance, which identifies the harvest when it is completed
+        final Set<String> restriction = Collections.unmodifiableSet(new LinkedHashSet<>(domainCodes));
+        domainRestriction.set(restriction);
+
+        try {
+            prepareHarvest();
+            harvest();
+        } finally {
+            domainRestriction.remove();
+        }
+
+        return completedDomainRestriction == restriction;
+    }
+
+
+    /**
+     * Retrieves the domains to which the harvest that is started by the calling
+     * thread is restricted.
+     *
+     * @return the codes of the harvested domains, or an empty set if all domains are harvested
+     */
+    public Set<String> getDomainRestriction()
+    {
+        return domainRestriction.get();
+    }
+
+
+    /**
+     * Records that a harvest handed all documents on to the loader without being aborted.
+     * This is called by the transformer.
+     *
+     * @param restriction the domain restriction of the completed harvest
+     */
+    public void onHarvestCompleted(final Set<String> restriction)
+    {
+        this.completedDomainRestriction = restriction;
+    }
+
+
+    /**
+     * Creates a selector of all domains that are harvested by this ETL, according
+     * to its groups, its shard, its domain and group filters, and the domains to
+     * which the harvest of the calling thread is restricted.
+     *
+     * @return a selector of the harvested domains
+     */
+    public FaoDomainSelector createDomainSelector()
+    {
+        return new FaoDomainSelector(
+                   groupCodes,
+                   getShardIndex(),
+                   getShardCount(),
+                   new FaoDomainFilter(getIncludedDomains(), getExcludedDomains(), getIncludedGroups(), getExcludedGroups()),
+                   domainRestriction.get());
+    }
+
+
+    /**
+     * Unregisters the JMX metrics of the progress, the document sizes, and the retries of this ETL,
+     * and removes its progress from the progresses of all ETLs.
+     */
+    public void unregisterMetrics()
+    {
+        progressTracker.unregister();
+        documentSizeLimiter.unregister();
+        retryMetrics.unregister();
+    }
+
+
+    /**
+     * Marks whether the domain list is currently being retrieved in the background.
+     *
+     * @param isRefreshing true if the domain list is being retrieved
+     */
+    public void setRefreshingDomains(final boolean isRefreshing)
+    {
+        progressTracker.setRefreshingDomains(getName(), isRefreshing);
+    }
+
+
+    /**
+     * Checks if the domain list is currently being retrieved in the background.
+     * While it is, the version and size of the ETL refer to the stored domain list
+     * of the previous harvest, or are unknown if there is none.
+     *
+     * @return true if the domain list is being retrieved
+     */
+    public boolean isRefreshingDomains()
+    {
+        return progressTracker.isRefreshingDomains();
+    }
+
+
+    /**
+     * Retrieves the codes of the groups of which domains are harvested.
+     *
+     * @return the codes of the harvested groups, or an empty set if all groups are harvested
+     */
+    public Set<String> getGroupCodes()
+    {
+        return groupCodes;
+    }
+
+
+    /**
+     * Retrieves the registry of document hashes that is shared by the
+     * extractor and transformer in order to detect changed documents.
+     *
+     * @return the registry of document hashes
+     */
+    public FaoDocumentHashRegistry getHashRegistry()
+    {
+        return hashRegistry;
+    }
+
+
+    /**
+     * Retrieves the signal that notifies the extractor and transformer
+     * when the harvest is aborted.
+     *
+     * @return the abort signal of this ETL
+     */
+    public FaoAbortSignal getAbortSignal()
+    {
+        return abortSignal;
+    }
+
+
+    /**
+     * Retrieves the tracker that estimates the progress and the remaining time
+     * of the harvests of this ETL.
+     *
+     * @return the progress tracker of this ETL
+     */
+    public FaoProgressTracker getProgressTracker()
+    {
+        return progressTracker;
+    }
+
+
+    /**
+     * Retrieves the profiler that measures the costs of harvesting each domain.
+     *
+     * @return the cost profiler of this ETL
+     */
+    public FaoCostProfiler getCostProfiler()
+    {
+        return costProfiler;
+    }
+
+
+    /**
+     * Retrieves the JMX metrics that count the retried and rejected requests
+     * of the harvests of this ETL.
+     *
+     * @return the retry metrics of this ETL
+     */
+    public FaoRetryMetrics getRetryMetrics()
+    {
+        return retryMetrics;
+    }
+
+
+    /**
+     * Retrieves the limiter that keeps documents within their size budget
+     * and measures the sizes of all documents.
+     *
+     * @return the document size limiter of this ETL
+     */
+    public FaoDocumentSizeLimiter getDocumentSizeLimiter()
+    {
+        return documentSizeLimiter;
+    }
 }
@@ -0,0 +1,38 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+/**
+ * This exception is thrown when the metadata of a domain could not be
+ * retrieved before the deadline of the domain.
+ *
+ * @author Robin Weiss
+ */
+class DomainDeadlineException extends RuntimeException
+{
+    private static final long serialVersionUID = 6302718475927714071L;
+
+
+    /**
+     * Constructor
+     *
+     * @param message a description of the request that exceeded the deadline
+     */
+    DomainDeadlineException(final String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+/**
+ * This exception is thrown when a FAOSTAT endpoint type is considered to be
+ * unavailable, because its requests keep failing. It only fails the domain
+ * that sent the request, not the whole harvest.
+ *
+ * @author Robin Weiss
+ */
+public class EndpointUnavailableException extends ExtractorException
+{
+    private static final long serialVersionUID = -2518934406215396813L;
+
+
+    /**
+     * Constructor
+     *
+     * @param message a description of the request that could not be sent or failed
+     */
+    public EndpointUnavailableException(final String message)
+    {
+        super(message);
+    }
+}
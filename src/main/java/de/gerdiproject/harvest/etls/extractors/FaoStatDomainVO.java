@@ -28,7 +28,9 @@ import lombok.Value;
 
 /**
  * This class is a value object that contains all elements of FAOSTAT server
- * responses regarding a {@linkplain FaoDomain}.
+ * responses regarding a {@linkplain FaoDomain}. The filters are kept per dimension,
+ * in the order of the dimensions, so that domains with equal dimensions share
+ * the same filter lists.
  *
  * @author Robin Weiss
  *
@@ -41,5 +43,34 @@ public class FaoStatDomainVO
     private final List<FaoMetadata> metadata;
     private final List<FaoDocument> documents;
     private final List<FaoDimension> dimensions;
-    private final List<FaoFilter> filters;
+    private final List<List<FaoFilter>> filters;
+    private final boolean deleted;
+    private final boolean unavailable;
+
+
+    /**
+     * Creates a value object that marks a domain as removed from FAOSTAT.
+     *
+     * @param domain the domain that no longer exists
+     *
+     * @return a value object without any metadata that marks the domain as deleted
+     */
+    public static FaoStatDomainVO createDeleted(final FaoDomain domain)
+    {
+        return new FaoStatDomainVO(domain, null, null, null, null, null, true, false);
+    }
+
+
+    /**
+     * Creates a value object that marks a domain as temporarily unavailable,
+     * because some of its metadata could not be retrieved.
+     *
+     * @param domain the domain that could not be retrieved
+     *
+     * @return a value object without any metadata that marks the domain as unavailable
+     */
+    public static FaoStatDomainVO createUnavailable(final FaoDomain domain)
+    {
+        return new FaoStatDomainVO(domain, null, null, null, null, null, false, true);
+    }
 }
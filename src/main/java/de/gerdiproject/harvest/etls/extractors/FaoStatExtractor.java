@@ -16,13 +16,34 @@
  */
 package de.gerdiproject.harvest.etls.extractors;
 
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.application.MainContextUtils;
 import de.gerdiproject.harvest.etls.AbstractETL;
 import de.gerdiproject.harvest.etls.FaoStatETL;
+import de.gerdiproject.harvest.fao.constants.FaoBulkDownloadConstants;
+import de.gerdiproject.harvest.fao.constants.FaoCacheConstants;
 import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+import de.gerdiproject.harvest.fao.constants.FaoProgressConstants;
+import de.gerdiproject.harvest.fao.enums.FaoEndpoint;
 import de.gerdiproject.harvest.fao.json.FaoBulkDownload;
 import de.gerdiproject.harvest.fao.json.FaoDimension;
 import de.gerdiproject.harvest.fao.json.FaoDocument;
@@ -30,7 +51,21 @@ import de.gerdiproject.harvest.fao.json.FaoDomain;
 import de.gerdiproject.harvest.fao.json.FaoFilter;
 import de.gerdiproject.harvest.fao.json.FaoMetadata;
 import de.gerdiproject.harvest.fao.json.GenericFaoResponse;
-import de.gerdiproject.harvest.utils.data.HttpRequester;
+import de.gerdiproject.harvest.fao.utils.FaoAbortSignal;
+import de.gerdiproject.harvest.fao.utils.FaoBulkDownloadMirror;
+import de.gerdiproject.harvest.fao.utils.FaoCostProfiler;
+import de.gerdiproject.harvest.fao.utils.FaoDimensionCache;
+import de.gerdiproject.harvest.fao.utils.FaoDocumentHashRegistry;
+import de.gerdiproject.harvest.fao.utils.FaoDomainSelector;
+import de.gerdiproject.harvest.fao.utils.FaoFlow;
+import de.gerdiproject.harvest.fao.utils.FaoGroupCodeStore;
+import de.gerdiproject.harvest.fao.utils.FaoHttpClient;
+import de.gerdiproject.harvest.fao.utils.FaoIteratorPublisher;
+import de.gerdiproject.harvest.fao.utils.FaoProgressTracker;
+import de.gerdiproject.harvest.fao.utils.FaoRetryHandler;
+import de.gerdiproject.harvest.fao.utils.FaoSingleFlightRequester;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.json.GsonUtils;
 
 /**
  * This {@linkplain JsonArrayExtractor} implementation extracts all
@@ -41,13 +76,40 @@ import de.gerdiproject.harvest.utils.data.HttpRequester;
  */
 public class FaoStatExtractor extends AbstractIteratorExtractor<FaoStatDomainVO>
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoStatExtractor.class);
+
     // these protected fields are used by the inner iterator class
-    protected final HttpRequester httpRequester = new HttpRequester();
+    protected final FaoHttpClient httpClient = new FaoHttpClient(StandardCharsets.UTF_8);
+    protected final FaoSingleFlightRequester requester = new FaoSingleFlightRequester(httpClient);
     protected Iterator<FaoDomain> domainIterator;
+    protected Iterator<FaoDomain> removedDomainIterator;
     protected String baseUrl;
-
-    private String version;
-    private int domainCount = -1;
+    protected volatile FaoBulkDownloadMirror bulkDownloadMirror;
+    protected FaoAbortSignal abortSignal;
+    protected volatile FaoStatRequestScheduler requestScheduler;
+
+    private volatile String version;
+    private volatile int domainCount = -1;
+    private int existingDomainCount;
+    private int requestConcurrency;
+    private boolean useVirtualThreads;
+    private long domainDeadline;
+    private String etlName;
+    private volatile FaoStatRequestPipeline requestPipeline;
+    private int shardIndex;
+    private int shardCount;
+    private FaoDomainSelector domainSelector;
+    private final Runnable abortHandler = this::cancelRequests;
+    private final AtomicInteger initCount = new AtomicInteger();
+    private volatile CompletableFuture<Void> domainRefresh;
+    private volatile List<String> domainCodes = Collections.emptyList();
+    private FaoProgressTracker progressTracker;
+    private File requestCountFile;
+    private Charset charset;
+    private FaoCostProfiler costProfiler;
+    private File costReportFolder;
+    private volatile FaoDimensionCache dimensionCache = new FaoDimensionCache();
+    private FaoGroupCodeStore groupCodeStore;
 
 
     @Override
@@ -55,21 +117,297 @@ public class FaoStatExtractor extends AbstractIteratorExtractor<FaoStatDomainVO>
     {
         super.init(etl);
 
-        this.httpRequester.setCharset(etl.getCharset());
+        final FaoStatETL faoEtl = (FaoStatETL) etl;
+
+        this.abortSignal = faoEtl.getAbortSignal();
+        abortSignal.reset();
+        abortSignal.addAbortHandler(abortHandler);
+
+        this.httpClient.setCharset(etl.getCharset());
         this.baseUrl = String.format(
                            FaoExtractorConstants.BASE_URL,
-                           ((FaoStatETL)etl).getLanguage()
+                           faoEtl.getLanguage()
                        );
 
+        this.requestConcurrency = faoEtl.getRequestConcurrency();
+        this.useVirtualThreads = faoEtl.isUsingVirtualThreads();
+        this.domainDeadline = faoEtl.getDomainDeadline();
+        this.etlName = etl.getName();
+        this.progressTracker = faoEtl.getProgressTracker();
+        this.charset = etl.getCharset();
+        this.costProfiler = faoEtl.isReportingCosts() ? faoEtl.getCostProfiler() : null;
+        this.costReportFolder = faoEtl.getCostReportFolder().isEmpty()
+                                ? new File(MainContextUtils.getCacheDirectory(getClass()), FaoCacheConstants.CACHE_FOLDER)
+                                : new File(faoEtl.getCostReportFolder());
+        this.requestCountFile = new File(
+            MainContextUtils.getCacheDirectory(getClass()),
+            FaoCacheConstants.CACHE_FOLDER + File.separatorChar
+            + String.format(FaoProgressConstants.REQUEST_COUNT_FILE_NAME, etl.getName(), faoEtl.getLanguage()));
+        this.shardIndex = faoEtl.getShardIndex();
+        this.shardCount = faoEtl.getShardCount();
+        this.domainSelector = faoEtl.createDomainSelector();
+        this.groupCodeStore = new FaoGroupCodeStore(etl.getCharset());
+
+        if (shardIndex < 0 || shardIndex >= shardCount)
+            throw new IllegalArgumentException(String.format(FaoExtractorConstants.INVALID_SHARD_ERROR, shardIndex, shardCount));
+
+        this.requestPipeline = new FaoStatRequestPipeline(
+            faoEtl,
+            requester,
+            new File(MainContextUtils.getCacheDirectory(getClass()), FaoCacheConstants.CACHE_FOLDER));
+
+        // the mirror is recreated, so that changed mirror parameters take effect
+        shutdownMirror();
+
+        if (faoEtl.isMirroringBulkDownloads())
+            this.bulkDownloadMirror = createMirror(faoEtl);
+
         // get list of all domains
+        final int initialization = initCount.incrementAndGet();
+
+        if (faoEtl.isInitializingAsynchronously())
+            initAsynchronously(faoEtl, initialization);
+        else {
+            this.domainRefresh = null;
+            setDomains(faoEtl, requestDomains().getData(), initialization);
+        }
+    }
+
+
+    /**
+     * Initializes the domains from the stored domain list of the previous harvest,
+     * and retrieves the current domain list in a background thread.
+     * If there is no stored domain list, the version and size remain unknown
+     * until the current domain list is retrieved.
+     *
+     * @param etl the ETL that is being initialized
+     * @param initialization a number that identifies the current initialization
+     */
+    private void initAsynchronously(final FaoStatETL etl, final int initialization)
+    {
+        final File snapshotFile = getDomainSnapshotFile(etl);
+        final DiskIO diskIO = new DiskIO(GsonUtils.createGerdiDocumentGsonBuilder().create(), etl.getCharset());
+        final GenericFaoResponse<FaoDomain> storedDomains = snapshotFile.exists()
+                                                            ? diskIO.getObject(snapshotFile, FaoExtractorConstants.DOMAIN_RESPONSE_TYPE)
+                                                            : null;
+
+        if (storedDomains == null) {
+            this.version = null;
+            this.domainCount = -1;
+            this.domainIterator = null;
+        } else
+            setDomains(etl, storedDomains.getData(), initialization);
+
+        etl.setRefreshingDomains(true);
+        LOGGER.info(String.format(FaoExtractorConstants.DOMAINS_REFRESHING, etlName));
+
+        this.domainRefresh = CompletableFuture.runAsync(() -> {
+            final GenericFaoResponse<FaoDomain> currentDomains = requestDomains();
+            diskIO.writeObjectToFile(snapshotFile, currentDomains);
+            setDomains(etl, currentDomains.getData(), initialization);
+        }, FaoStatExtractor::startRefreshThread);
+
+        domainRefresh.whenComplete((v, e) -> {
+            etl.setRefreshingDomains(false);
+
+            if (e == null)
+                LOGGER.info(String.format(FaoExtractorConstants.DOMAINS_REFRESHED, etlName));
+            else
+                LOGGER.warn(String.format(FaoExtractorConstants.DOMAIN_REFRESH_FAILED, etlName), e);
+        });
+    }
+
+
+    /**
+     * Runs a task in a new daemon thread.
+     *
+     * @param task the task that is to be run
+     */
+    private static void startRefreshThread(final Runnable task)
+    {
+        final Thread t = new Thread(task, FaoExtractorConstants.DOMAIN_REFRESH_THREAD_NAME);
+        t.setDaemon(true);
+        t.start();
+    }
+
+
+    /**
+     * Requests the list of all FAOSTAT domains.
+     *
+     * @throws ExtractorException if the domain list could not be retrieved
+     *
+     * @return the parsed domain list response
+     */
+    private GenericFaoResponse<FaoDomain> requestDomains()
+    {
         final GenericFaoResponse<FaoDomain> domainsResponse =
-            httpRequester.getObjectFromUrl(
+            requestPipeline.request(
                 baseUrl + FaoExtractorConstants.GROUPS_AND_DOMAINS_URL,
-                FaoExtractorConstants.DOMAIN_RESPONSE_TYPE);
+                FaoExtractorConstants.DOMAIN_RESPONSE_TYPE,
+                FaoEndpoint.GROUPS_AND_DOMAINS,
+                FaoCacheConstants.STALE_DOMAINS_KEY,
+                FaoExtractorConstants.NO_DEADLINE);
+
+        if (domainsResponse == null)
+            throw new ExtractorException(String.format(FaoExtractorConstants.NO_DOMAINS_ERROR, etlName));
 
-        this.version = getVersion(domainsResponse.getData());
-        this.domainCount = domainsResponse.getData().size();
-        this.domainIterator = domainsResponse.getData().iterator();
+        return domainsResponse;
+    }
+
+
+    /**
+     * Filters the domains that are to be harvested and derives the version and size
+     * of the extractor from them, unless the extractor was initialized again meanwhile.
+     * The group codes of all domains are stored for the creation of per-group ETLs.
+     *
+     * @param etl the ETL that is being initialized
+     * @param allDomains all domains that are listed by FAOSTAT
+     * @param initialization a number that identifies the initialization that retrieved the domains
+     */
+    private synchronized void setDomains(final FaoStatETL etl, final List<FaoDomain> allDomains, final int initialization)
+    {
+        groupCodeStore.save(allDomains);
+
+        if (initialization != initCount.get())
+            return;
+
+        final List<FaoDomain> domains = filterDomains(allDomains);
+        final List<FaoDomain> removedDomains = etl.isChangesOnly()
+                                               ? filterDomains(getRemovedDomains(etl, allDomains))
+                                               : Collections.emptyList();
+
+        this.version = shardCount == 1
+                       ? getVersion(domains)
+                       : String.format(FaoExtractorConstants.SHARD_VERSION_PREFIX, shardIndex, shardCount) + getVersion(domains);
+        this.existingDomainCount = domains.size();
+        this.domainCodes = domains.stream().map(FaoDomain::getDomainCode).collect(Collectors.toList());
+        this.domainCount = domains.size() + removedDomains.size();
+        this.domainIterator = domains.iterator();
+        this.removedDomainIterator = removedDomains.iterator();
+    }
+
+
+    /**
+     * Retrieves the file in which the domain list is stored for asynchronous initializations.
+     *
+     * @param etl the ETL of which the domain list is stored
+     *
+     * @return the file of the stored domain list
+     */
+    private File getDomainSnapshotFile(final FaoStatETL etl)
+    {
+        final String snapshotFileName = String.format(FaoCacheConstants.DOMAIN_SNAPSHOT_FILE_NAME, etl.getName(), etl.getLanguage());
+        return new File(
+                   MainContextUtils.getCacheDirectory(getClass()),
+                   FaoCacheConstants.CACHE_FOLDER + File.separatorChar + snapshotFileName);
+    }
+
+
+    /**
+     * Waits until the domain list was retrieved in the background, if the extractor
+     * was initialized asynchronously. If the retrieval failed, the stored domain list
+     * is harvested instead.
+     *
+     * @throws ExtractorException if neither a current nor a stored domain list is available
+     */
+    private void awaitDomainRefresh()
+    {
+        final CompletableFuture<Void> refresh = domainRefresh;
+
+        if (refresh == null)
+            return;
+
+        try {
+            refresh.join();
+
+        } catch (final CompletionException | CancellationException e) {
+            if (domainIterator == null)
+                throw new ExtractorException(String.format(FaoExtractorConstants.NO_DOMAINS_ERROR, etlName), e);
+        }
+    }
+
+
+    /**
+     * Creates a mirror that downloads bulk download archives to a local folder.
+     *
+     * @param etl the ETL that holds the mirror parameters
+     *
+     * @return a new bulk download mirror
+     */
+    private FaoBulkDownloadMirror createMirror(final FaoStatETL etl)
+    {
+        final File mirrorFolder = etl.getMirrorFolder().isEmpty()
+                                  ? new File(
+                                      MainContextUtils.getCacheDirectory(getClass()),
+                                      FaoCacheConstants.CACHE_FOLDER + File.separatorChar + FaoBulkDownloadConstants.MIRROR_FOLDER)
+                                  : new File(etl.getMirrorFolder());
+
+        return new FaoBulkDownloadMirror(
+                   mirrorFolder,
+                   etl.getMirrorThreads(),
+                   etl.getMirrorBandwidth() * 1024L,
+                   FaoStatRequestPipeline.createRetryPolicy(etl));
+    }
+
+
+    /**
+     * Stops the downloads of the bulk download mirror, if there is one.
+     * Completed chunks are kept, so the next mirror resumes the downloads.
+     */
+    private void shutdownMirror()
+    {
+        final FaoBulkDownloadMirror mirror = bulkDownloadMirror;
+
+        if (mirror != null) {
+            mirror.shutdown();
+            this.bulkDownloadMirror = null;
+        }
+    }
+
+
+    /**
+     * Retrieves all domains that are to be harvested by this extractor.
+     *
+     * @param domains all domains that are listed by FAOSTAT
+     *
+     * @return a list of domains that are to be harvested
+     */
+    private List<FaoDomain> filterDomains(final List<FaoDomain> domains)
+    {
+        if (domainSelector.isEmpty())
+            return domains;
+
+        final List<FaoDomain> filteredDomains = new LinkedList<>();
+
+        for (final FaoDomain d : domains) {
+            if (domainSelector.accepts(d))
+                filteredDomains.add(d);
+        }
+
+        return filteredDomains;
+    }
+
+
+    /**
+     * Loads the document hashes of the previous harvest and retrieves all domains
+     * that were harvested back then, but are no longer listed by FAOSTAT.
+     *
+     * @param etl the ETL that holds the document hashes
+     * @param domains all domains that are currently listed by FAOSTAT
+     *
+     * @return a list of domains that were removed since the last harvest
+     */
+    private List<FaoDomain> getRemovedDomains(final FaoStatETL etl, final List<FaoDomain> domains)
+    {
+        final String hashFileName = String.format(FaoCacheConstants.HASH_FILE_NAME, etl.getName(), etl.getLanguage());
+        final File hashFile = new File(
+            MainContextUtils.getCacheDirectory(getClass()),
+            FaoCacheConstants.CACHE_FOLDER + File.separatorChar + hashFileName);
+
+        final FaoDocumentHashRegistry hashRegistry = etl.getHashRegistry();
+        hashRegistry.load(hashFile, etl.getCharset());
+
+        return hashRegistry.getRemovedDomains(domains);
     }
 
 
@@ -89,9 +427,39 @@ public class FaoStatExtractor extends AbstractIteratorExtractor<FaoStatDomainVO>
 
 
 
+    /**
+     * Creates a publisher that emits the same elements as {@linkplain #extract()},
+     * but only retrieves them when the subscriber signals demand. The extraction starts
+     * with the first request of the subscriber and runs on the specified executor.
+     * Cancelling the subscription clears the extractor.
+     * The extractor must be initialized before subscribing.
+     *
+     * @param executor the executor on which the domains are retrieved
+     *
+     * @return a publisher of all extracted domains, which accepts a single subscriber
+     */
+    public FaoFlow.Publisher<FaoStatDomainVO> extractAsPublisher(final Executor executor)
+    {
+        return new FaoIteratorPublisher<>(this::extract, executor, this::clear);
+    }
+
+
     @Override
     protected Iterator<FaoStatDomainVO> extractAll() throws ExtractorException
     {
+        awaitDomainRefresh();
+        progressTracker.start(etlName, requestCountFile, charset, domainCodes, requestConcurrency);
+
+        if (costProfiler != null)
+            costProfiler.start(etlName);
+
+        // share identical dimension and filter lists among the domains of this harvest
+        this.dimensionCache = new FaoDimensionCache();
+
+        // overlap the requests of multiple domains if more than one request may run at a time
+        if (requestConcurrency > 1)
+            this.requestScheduler = new FaoStatRequestScheduler(this, domainIterator, existingDomainCount, requestConcurrency, useVirtualThreads);
+
         return new FaoStatDomainIterator();
     }
 
@@ -116,10 +484,239 @@ public class FaoStatExtractor extends AbstractIteratorExtractor<FaoStatDomainVO>
     }
 
 
+    /**
+     * Cancels all queued requests of the request scheduler and disconnects
+     * all requests that are in flight, in both the parallel and the sequential
+     * extraction, as well as the background refreshes of stored responses,
+     * so that an aborted harvest does not wait for their responses.
+     */
+    private void cancelRequests()
+    {
+        final FaoStatRequestScheduler scheduler = requestScheduler;
+
+        if (scheduler != null)
+            scheduler.cancel();
+
+        final FaoStatRequestPipeline pipeline = requestPipeline;
+
+        if (pipeline != null)
+            pipeline.cancelRevalidation();
+
+        httpClient.disconnectAll();
+    }
+
+
     @Override
     public void clear()
     {
-        // nothing to clean up
+        if (progressTracker != null)
+            progressTracker.finish(abortSignal.isAborted());
+
+        if (requestScheduler != null) {
+            requestScheduler.cancel();
+            requestScheduler = null;
+        }
+
+        if (requestPipeline != null)
+            requestPipeline.finish();
+
+        shutdownMirror();
+
+        if (costProfiler != null)
+            costProfiler.finish(costReportFolder, charset);
+
+        if (dimensionCache.getSharedFilterListCount() + dimensionCache.getSharedDimensionListCount() > 0)
+            LOGGER.info(String.format(
+                            FaoCacheConstants.DIMENSION_CACHE_REPORT,
+                            etlName,
+                            dimensionCache.getSharedFilterListCount(),
+                            dimensionCache.getFilterListCount(),
+                            dimensionCache.getSharedDimensionListCount(),
+                            dimensionCache.getDimensionListCount()));
+    }
+
+
+    /**
+     * Retrieves the handler that retries failed requests and counts retries,
+     * opened circuits, and rejected requests.
+     *
+     * @return the retry handler of the current harvest, or null if no harvest was prepared
+     */
+    public FaoRetryHandler getRetryHandler()
+    {
+        final FaoStatRequestPipeline pipeline = requestPipeline;
+
+        return pipeline == null
+               ? null
+               : pipeline.getRetryHandler();
+    }
+
+
+    /**
+     * Creates the deadline by which a domain must be retrieved, starting now.
+     *
+     * @return a {@linkplain System#nanoTime()} deadline, or {@linkplain FaoExtractorConstants#NO_DEADLINE}
+     */
+    long createDomainDeadline()
+    {
+        return domainDeadline > 0
+               ? System.nanoTime() + TimeUnit.SECONDS.toNanos(domainDeadline)
+               : FaoExtractorConstants.NO_DEADLINE;
+    }
+
+
+    /**
+     * Retrieves an array of "documents". Each document represents a PDF download link that is related
+     * to a domain.
+     *
+     * @param domainCode a unique ID of the domain of which the metadata is to be retrieved
+     * @param deadline the {@linkplain System#nanoTime()} by which the domain must be retrieved
+     *
+     * @return an object representation of the JSON server response to a documents request
+     */
+    List<FaoDocument> getDocuments(final String domainCode, final long deadline)
+    {
+        final String url = String.format(FaoExtractorConstants.DOCUMENTS_URL, baseUrl, domainCode);
+        final GenericFaoResponse<FaoDocument> response =
+            requestPipeline.request(url, FaoExtractorConstants.DOCUMENT_RESPONSE_TYPE, FaoEndpoint.DOCUMENTS, domainCode, deadline);
+        return getRequiredData(response, url);
+    }
+
+
+    /**
+     * Retrieves an array of "bulk-downloads". Each bulk-download represents a ZIP download link that
+     * allows to download complete datasets.
+     *
+     * @param domainCode a unique ID of the domain of which the metadata is to be retrieved
+     * @param deadline the {@linkplain System#nanoTime()} by which the domain must be retrieved
+     *
+     * @return an object representation of the JSON server response to a bulkDownloads request
+     */
+    List<FaoBulkDownload> getBulkDownloads(final String domainCode, final long deadline)
+    {
+        final String url = String.format(FaoExtractorConstants.BULK_DOWNLOADS_URL, baseUrl, domainCode);
+        final GenericFaoResponse<FaoBulkDownload> response =
+            requestPipeline.request(url, FaoExtractorConstants.BULK_DOWNLOAD_RESPONSE_TYPE, FaoEndpoint.BULK_DOWNLOADS, domainCode, deadline);
+        return getRequiredData(response, url);
+    }
+
+
+    /**
+     * Retrieves an array of metadata.
+     *
+     * @param domainCode a unique ID of the domain of which the metadata is to be retrieved
+     * @param deadline the {@linkplain System#nanoTime()} by which the domain must be retrieved
+     *
+     * @return an object representation of the JSON server response to a metadata request
+     */
+    List<FaoMetadata> getMetaData(final String domainCode, final long deadline)
+    {
+        final String url = String.format(FaoExtractorConstants.METADATA_URL, baseUrl, domainCode);
+        final GenericFaoResponse<FaoMetadata> response =
+            requestPipeline.request(url, FaoExtractorConstants.METADATA_RESPONSE_TYPE, FaoEndpoint.METADATA, domainCode, deadline);
+        return getRequiredData(response, url);
+    }
+
+
+    /**
+     * Retrieves an array of "dimensions". Each dimension represents a filter category for the
+     * domain dataset.
+     *
+     * @param domainCode a unique ID of the domain of which the metadata is to be retrieved
+     * @param deadline the {@linkplain System#nanoTime()} by which the domain must be retrieved
+     *
+     * @return an object representation of the JSON server response to a dimensions request
+     */
+    List<FaoDimension> getDimensions(final String domainCode, final long deadline)
+    {
+        final String url = String.format(FaoExtractorConstants.DIMENSIONS_URL, baseUrl, domainCode);
+        final GenericFaoResponse<FaoDimension> response =
+            requestPipeline.request(url, FaoExtractorConstants.DIMENSION_RESPONSE_TYPE, FaoEndpoint.DIMENSIONS, domainCode, deadline);
+        return dimensionCache.getDimensions(getRequiredData(response, url));
+    }
+
+
+    /**
+     * Retrieves the data of a response without which a domain cannot be harvested.
+     *
+     * @param response the parsed response, or null if the request failed
+     * @param url the URL of the response
+     * @param <T> the type of the response elements
+     *
+     * @throws EndpointUnavailableException if the request failed
+     *
+     * @return the data of the response
+     */
+    private static <T> List<T> getRequiredData(final GenericFaoResponse<T> response, final String url)
+    {
+        if (response == null)
+            throw new EndpointUnavailableException(String.format(FaoExtractorConstants.MISSING_RESPONSE_ERROR, url));
+
+        return response.getData();
+    }
+
+
+    /**
+     * Retrieves the "filters" of all dimensions of a domain. Each filter is a term that can be
+     * used to filter the dataset of a domain.
+     *
+     * @param dimensions the dimensions of the domain
+     * @param domainCode a unique ID of the domain of which the metadata is to be retrieved
+     * @param deadline the {@linkplain System#nanoTime()} by which the domain must be retrieved
+     *
+     * @return a list of shared filter lists, one per dimension in the order of the dimensions
+     */
+    List<List<FaoFilter>> getFilters(final List<FaoDimension> dimensions, final String domainCode, final long deadline)
+    {
+        final List<List<FaoFilter>> filtersPerDimension = new ArrayList<>(dimensions.size());
+
+        for (final FaoDimension d : dimensions) {
+
+            // exclude the pure numbers of the years filter
+            filtersPerDimension.add(hasFilters(d)
+                                    ? getFilters(d, domainCode, deadline)
+                                    : Collections.emptyList());
+        }
+
+        return filtersPerDimension;
+    }
+
+
+    /**
+     * Checks if the filters of a dimension are to be retrieved.
+     *
+     * @param dimension the dimension that is to be checked
+     *
+     * @return false if the dimension only consists of the pure numbers of years
+     */
+    boolean hasFilters(final FaoDimension dimension)
+    {
+        return !dimension.getId().equals(FaoExtractorConstants.YEAR_DIMENSION_ID);
+    }
+
+
+    /**
+     * Retrieves the "filters" of a single dimension of a domain.
+     *
+     * @param dimension the dimension of which the filters are retrieved
+     * @param domainCode a unique ID of the domain of which the metadata is to be retrieved
+     * @param deadline the {@linkplain System#nanoTime()} by which the domain must be retrieved
+     *
+     * @return an unmodifiable list of filters, or an empty list if they could not be retrieved
+     */
+    List<FaoFilter> getFilters(final FaoDimension dimension, final String domainCode, final long deadline)
+    {
+        // assemble filter URL
+        final String filterUrlPrefix = baseUrl.substring(0, baseUrl.length() - 1);
+        final String filterUrl = filterUrlPrefix + dimension.getHref() + domainCode + FaoExtractorConstants.SHOW_LIST_SUFFIX;
+
+        // get filters from URL
+        final GenericFaoResponse<FaoFilter> response =
+            requestPipeline.request(filterUrl, FaoExtractorConstants.FILTER_RESPONSE_TYPE, FaoEndpoint.CODES, domainCode, deadline);
+
+        return response == null
+               ? Collections.emptyList()
+               : dimensionCache.getFilters(response.getData());
     }
 
 
@@ -131,129 +728,129 @@ public class FaoStatExtractor extends AbstractIteratorExtractor<FaoStatDomainVO>
      */
     private class FaoStatDomainIterator implements Iterator<FaoStatDomainVO>
     {
+        private final Queue<FaoDomain> deferredDomains = new LinkedList<>();
+
         @Override
         public boolean hasNext()
         {
-            return domainIterator.hasNext();
+            return hasNextDomain() || removedDomainIterator.hasNext();
         }
 
 
         @Override
         public FaoStatDomainVO next()
         {
-            final FaoDomain domain = domainIterator.next();
-            final String domainCode = domain.getDomainCode();
-            final List<FaoDimension> dimensions = getDimensions(domainCode);
+            // removed domains are only marked as deleted after all existing domains were harvested
+            if (!hasNextDomain())
+                return FaoStatDomainVO.createDeleted(removedDomainIterator.next());
 
-            return new FaoStatDomainVO(
-                       domain,
-                       getBulkDownloads(domainCode),
-                       getMetaData(domainCode),
-                       getDocuments(domainCode),
-                       dimensions,
-                       getFilters(dimensions, domainCode));
-        }
+            final FaoStatDomainVO domainVO = requestScheduler == null
+                                             ? retrieveNextDomain()
+                                             : requestScheduler.next();
 
-        /**
-         * Retrieves an array of "documents". Each document represents a PDF download link that is related
-         * to a domain.
-         *
-         * @param domainCode a unique ID of the domain of which the metadata is to be retrieved
-         *
-         * @return an object representation of the JSON server response to a documents request
-         */
-        private List<FaoDocument> getDocuments(final String domainCode)
-        {
-            final String url = String.format(FaoExtractorConstants.DOCUMENTS_URL, baseUrl, domainCode);
-            final GenericFaoResponse<FaoDocument> response =
-                httpRequester.getObjectFromUrl(url, FaoExtractorConstants.DOCUMENT_RESPONSE_TYPE);
-            return response.getData();
+            progressTracker.onDomainHarvested(domainVO.getDomain().getDomainCode(), countRequests(domainVO));
+
+            final FaoBulkDownloadMirror mirror = bulkDownloadMirror;
+
+            if (mirror != null && domainVO.getBulkDownloads() != null) {
+                for (final FaoBulkDownload b : domainVO.getBulkDownloads())
+                    mirror.submit(b);
+            }
+
+            return domainVO;
         }
 
 
         /**
-         * Retrieves an array of "bulk-downloads". Each bulk-download represents a ZIP download link that
-         * allows to download complete datasets.
+         * Checks if there are domains left that are not marked as deleted.
          *
-         * @param domainCode a unique ID of the domain of which the metadata is to be retrieved
-         *
-         * @return an object representation of the JSON server response to a bulkDownloads request
+         * @return true if there are more existing domains to be harvested
          */
-        private List<FaoBulkDownload> getBulkDownloads(final String domainCode)
+        private boolean hasNextDomain()
         {
-            final String url = String.format(FaoExtractorConstants.BULK_DOWNLOADS_URL, baseUrl, domainCode);
-            final GenericFaoResponse<FaoBulkDownload> response =
-                httpRequester.getObjectFromUrl(url, FaoExtractorConstants.BULK_DOWNLOAD_RESPONSE_TYPE);
-            return response.getData();
+            return requestScheduler == null
+                   ? domainIterator.hasNext() || !deferredDomains.isEmpty()
+                   : requestScheduler.hasNext();
         }
 
 
         /**
-         * Retrieves an array of metadata.
+         * Counts the requests that were needed to retrieve a domain.
          *
-         * @param domainCode a unique ID of the domain of which the metadata is to be retrieved
+         * @param domainVO the retrieved domain
          *
-         * @return an object representation of the JSON server response to a metadata request
+         * @return the number of requests that were sent for the domain
          */
-        private List<FaoMetadata> getMetaData(final String domainCode)
+        private int countRequests(final FaoStatDomainVO domainVO)
         {
-            final String url = String.format(FaoExtractorConstants.METADATA_URL, baseUrl, domainCode);
-            final GenericFaoResponse<FaoMetadata> response =
-                httpRequester.getObjectFromUrl(url, FaoExtractorConstants.METADATA_RESPONSE_TYPE);
-            return response.getData();
+            int requestCount = FaoProgressConstants.FIXED_REQUESTS_PER_DOMAIN;
+
+            if (domainVO.getDimensions() != null) {
+                for (final FaoDimension d : domainVO.getDimensions()) {
+                    if (hasFilters(d))
+                        requestCount++;
+                }
+            }
+
+            return requestCount;
         }
 
 
         /**
-         * Retrieves an array of "dimensions". Each dimension represents a filter category for the
-         * domain dataset.
-         *
-         * @param domainCode a unique ID of the domain of which the metadata is to be retrieved
+         * Retrieves the next domain within its deadline. Domains that exceed their
+         * deadline or whose endpoint types are unavailable are deferred and retried without
+         * a deadline after all other domains were retrieved, so that a single slow domain
+         * does not hold up the harvest. Deferred domains that fail again are marked as
+         * unavailable instead of failing the harvest.
          *
-         * @return an object representation of the JSON server response to a dimensions request
+         * @return a value object that contains all metadata of the domain
          */
-        private List<FaoDimension> getDimensions(final String domainCode)
+        private FaoStatDomainVO retrieveNextDomain()
         {
-            final String url = String.format(FaoExtractorConstants.DIMENSIONS_URL, baseUrl, domainCode);
-            final GenericFaoResponse<FaoDimension> response =
-                httpRequester.getObjectFromUrl(url, FaoExtractorConstants.DIMENSION_RESPONSE_TYPE);
-            return response.getData();
+            while (domainIterator.hasNext()) {
+                final FaoDomain domain = domainIterator.next();
+
+                try {
+                    return retrieveDomain(domain, createDomainDeadline());
+                } catch (final DomainDeadlineException | EndpointUnavailableException e) {
+                    LOGGER.warn(String.format(FaoExtractorConstants.DOMAIN_DEFERRED, domain.getDomainCode(), e.getMessage()));
+                    deferredDomains.add(domain);
+                }
+            }
+
+            final FaoDomain deferredDomain = deferredDomains.remove();
+
+            try {
+                return retrieveDomain(deferredDomain, FaoExtractorConstants.NO_DEADLINE);
+            } catch (final EndpointUnavailableException e) {
+                LOGGER.warn(String.format(FaoExtractorConstants.DOMAIN_UNAVAILABLE, deferredDomain.getDomainCode(), e.getMessage()));
+                return FaoStatDomainVO.createUnavailable(deferredDomain);
+            }
         }
 
 
         /**
-         * Retrieves an array of "filters". Each filter is a term that can be used to filter the
-         * dataset of a domain.
+         * Retrieves all metadata of a domain, sending one request after the other.
          *
-         * @param dimensions the dimensions of the domain
-         * @param domainCode a unique ID of the domain of which the metadata is to be retrieved
+         * @param domain the domain of which the metadata is to be retrieved
+         * @param deadline the {@linkplain System#nanoTime()} by which the domain must be retrieved
          *
-         * @return an object representation of the JSON server response to a request of the filterUrl
+         * @return a value object that contains all metadata of the domain
          */
-        private List<FaoFilter> getFilters(final List<FaoDimension> dimensions, final String domainCode)
+        private FaoStatDomainVO retrieveDomain(final FaoDomain domain, final long deadline)
         {
-            final List<FaoFilter> filters = new LinkedList<>();
-
-            final String filterUrlPrefix = baseUrl.substring(0, baseUrl.length() - 1);
-
-            for (final FaoDimension d : dimensions) {
-
-                // exclude the pure numbers of the years filter
-                if (d.getId().equals("year"))
-                    continue;
-
-                // assemble filter URL
-                final String filterUrl = filterUrlPrefix + d.getHref() + domainCode + FaoExtractorConstants.SHOW_LIST_SUFFIX;
-
-                // get filters from URL
-                final GenericFaoResponse<FaoFilter> response =
-                    httpRequester.getObjectFromUrl(filterUrl, FaoExtractorConstants.FILTER_RESPONSE_TYPE);
-
-                if (response != null)
-                    filters.addAll(response.getData());
-            }
+            final String domainCode = domain.getDomainCode();
+            final List<FaoDimension> dimensions = getDimensions(domainCode, deadline);
 
-            return filters;
+            return new FaoStatDomainVO(
+                       domain,
+                       getBulkDownloads(domainCode, deadline),
+                       getMetaData(domainCode, deadline),
+                       getDocuments(domainCode, deadline),
+                       dimensions,
+                       getFilters(dimensions, domainCode, deadline),
+                       false,
+                       false);
         }
     }
 }
@@ -0,0 +1,443 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.io.File;
+import java.lang.reflect.Type;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+import de.gerdiproject.harvest.etls.FaoStatETL;
+import de.gerdiproject.harvest.fao.constants.FaoCacheConstants;
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+import de.gerdiproject.harvest.fao.constants.FaoParameterConstants;
+import de.gerdiproject.harvest.fao.constants.FaoRetryConstants;
+import de.gerdiproject.harvest.fao.enums.FaoEndpoint;
+import de.gerdiproject.harvest.fao.utils.FaoAbortSignal;
+import de.gerdiproject.harvest.fao.utils.FaoCostProfiler;
+import de.gerdiproject.harvest.fao.utils.FaoHttpResponse;
+import de.gerdiproject.harvest.fao.utils.FaoProgressTracker;
+import de.gerdiproject.harvest.fao.utils.FaoResponseStore;
+import de.gerdiproject.harvest.fao.utils.FaoRetryHandler;
+import de.gerdiproject.harvest.fao.utils.FaoRetryPolicy;
+import de.gerdiproject.harvest.fao.utils.FaoSingleFlightRequester;
+import de.gerdiproject.json.GsonUtils;
+
+/**
+ * This class executes the FAOSTAT requests of a {@linkplain FaoStatExtractor}.
+ * Every request passes the same stages: identical requests that are in flight
+ * are coalesced, failed requests are retried while unavailable endpoint types
+ * are failed fast, connections time out when they exceed the timeout of their
+ * endpoint type or the deadline of their domain, and stored responses are served
+ * straight away while they are refreshed in the background.
+ * The durations of all requests are reported to the progress tracker and,
+ * if a cost report is created, to the cost profiler.
+ *
+ * @author Robin Weiss
+ */
+class FaoStatRequestPipeline
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoStatRequestPipeline.class);
+
+    private final String etlName;
+    private final FaoSingleFlightRequester requester;
+    private final FaoAbortSignal abortSignal;
+    private final Gson gson = GsonUtils.createGerdiDocumentGsonBuilder().create();
+    private final FaoRetryHandler retryHandler;
+    private final FaoResponseStore responseStore;
+    private final ExecutorService revalidationExecutor;
+    private final Set<String> revalidatedUrls = ConcurrentHashMap.newKeySet();
+    private final long revalidationTimeout;
+    private final long defaultRequestTimeout;
+    private final Map<FaoEndpoint, Long> requestTimeouts;
+    private final FaoProgressTracker progressTracker;
+    private final FaoCostProfiler costProfiler;
+
+
+    /**
+     * Constructor
+     *
+     * @param etl the ETL that holds the request parameters
+     * @param requester the requester that sends the actual requests and coalesces identical ones
+     * @param cacheFolder the folder in which responses are stored, if stale responses are served
+     */
+    FaoStatRequestPipeline(final FaoStatETL etl, final FaoSingleFlightRequester requester, final File cacheFolder)
+    {
+        this.etlName = etl.getName();
+        this.requester = requester;
+        this.abortSignal = etl.getAbortSignal();
+        this.defaultRequestTimeout = etl.getRequestTimeout();
+        this.requestTimeouts = parseEndpointTimeouts(etl.getEndpointTimeouts());
+        this.progressTracker = etl.getProgressTracker();
+        this.costProfiler = etl.isReportingCosts() ? etl.getCostProfiler() : null;
+        this.retryHandler = new FaoRetryHandler(
+            createRetryPolicy(etl),
+            abortSignal,
+            etl.getCircuitFailureThreshold(),
+            etl.getCircuitOpenSeconds());
+        etl.getRetryMetrics().track(etlName, retryHandler);
+        this.revalidationTimeout = Math.max(0, etl.getRevalidationTimeout());
+
+        if (etl.isServingStaleResponses()) {
+            this.responseStore = new FaoResponseStore(new File(cacheFolder, FaoCacheConstants.RESPONSE_STORE_FOLDER), etl.getCharset());
+            this.revalidationExecutor = Executors.newFixedThreadPool(Math.max(1, etl.getRequestConcurrency()), r -> {
+                final Thread t = new Thread(r, FaoCacheConstants.REVALIDATION_THREAD_NAME);
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            this.responseStore = null;
+            this.revalidationExecutor = null;
+        }
+    }
+
+
+    /**
+     * Creates the policy that defines how failed requests are retried.
+     *
+     * @param etl the ETL that holds the retry parameters
+     *
+     * @return a new retry policy
+     */
+    static FaoRetryPolicy createRetryPolicy(final FaoStatETL etl)
+    {
+        return new FaoRetryPolicy(
+                   1 + Math.max(0, etl.getRequestRetries()),
+                   etl.getRetryBaseDelay(),
+                   etl.getRetryMaxDelay());
+    }
+
+
+    /**
+     * Parses the timeouts of specific endpoint types.
+     *
+     * @param endpointTimeouts a comma-separated list of endpoint timeouts, e.g. "codes=20,dimensions=30"
+     *
+     * @return a map of endpoint types to their timeouts in seconds
+     */
+    private static Map<FaoEndpoint, Long> parseEndpointTimeouts(final String endpointTimeouts)
+    {
+        final Map<FaoEndpoint, Long> timeouts = new EnumMap<>(FaoEndpoint.class);
+
+        for (final String entry : endpointTimeouts.split(FaoParameterConstants.CODE_FILTER_SEPARATOR)) {
+            if (entry.trim().isEmpty())
+                continue;
+
+            final String[] keyValue = entry.split(FaoExtractorConstants.ENDPOINT_TIMEOUT_SEPARATOR);
+            final FaoEndpoint endpoint = keyValue.length == 2 ? FaoEndpoint.fromKey(keyValue[0].trim()) : null;
+
+            try {
+                if (endpoint == null)
+                    throw new NumberFormatException();
+
+                timeouts.put(endpoint, Long.parseLong(keyValue[1].trim()));
+
+            } catch (final NumberFormatException e) {
+                LOGGER.warn(String.format(FaoExtractorConstants.INVALID_ENDPOINT_TIMEOUT, entry));
+            }
+        }
+
+        return timeouts;
+    }
+
+
+    /**
+     * Sends a request, unless the harvest was aborted. Requests that yield no response
+     * are retried, and requests of unavailable endpoint types are rejected.
+     * If stale responses are served, a stored response is returned straight away
+     * and refreshed in the background, so that the next harvest retrieves the
+     * current response.
+     *
+     * @param url the URL that is to be requested
+     * @param targetType the type of the parsed response
+     * @param endpoint the endpoint type of the URL
+     * @param domainCode the domain to which the response belongs
+     * @param deadline the {@linkplain System#nanoTime()} by which the domain must be retrieved,
+     *         or {@linkplain FaoExtractorConstants#NO_DEADLINE}
+     * @param <T> the type of the parsed response
+     *
+     * @throws java.util.concurrent.CancellationException if the harvest was aborted
+     * @throws DomainDeadlineException if the deadline of the domain was exceeded
+     * @throws EndpointUnavailableException if the endpoint type is considered to be unavailable
+     *
+     * @return the parsed response, or null if all attempts failed or timed out
+     */
+    <T> T request(final String url, final Type targetType, final FaoEndpoint endpoint, final String domainCode, final long deadline)
+    {
+        if (responseStore == null)
+            return parse(requestWithRetries(url, endpoint, domainCode, deadline), targetType);
+
+        final T storedResponse = responseStore.get(url, targetType);
+
+        if (storedResponse != null) {
+            progressTracker.onStaleResponse(domainCode);
+            revalidate(url, endpoint, domainCode);
+            return storedResponse;
+        }
+
+        final FaoHttpResponse response = requestWithRetries(url, endpoint, domainCode, deadline);
+
+        if (response.isSuccessful())
+            responseStore.put(url, response.getBody());
+
+        return parse(response, targetType);
+    }
+
+
+    /**
+     * Queues a background request that replaces the stored response of a URL,
+     * unless the URL was already refreshed during this harvest. The request,
+     * including its retries, is given up when it exceeds the revalidation timeout,
+     * counting from the moment it was queued, or when the harvest is aborted.
+     *
+     * @param url the URL of the stored response
+     * @param endpoint the endpoint type of the URL
+     * @param domainCode the domain to which the response belongs
+     */
+    private void revalidate(final String url, final FaoEndpoint endpoint, final String domainCode)
+    {
+        if (!revalidatedUrls.add(url))
+            return;
+
+        final long revalidationDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(revalidationTimeout);
+
+        try {
+            revalidationExecutor.execute(() -> {
+                try {
+                    final FaoHttpResponse response =
+                        retryHandler.call(endpoint, url, revalidationDeadline, () -> requestOnce(url, endpoint, domainCode, revalidationDeadline));
+
+                    if (response.isSuccessful())
+                        responseStore.put(url, response.getBody());
+                    else
+                        LOGGER.warn(String.format(FaoCacheConstants.REVALIDATION_FAILED, url));
+
+                } catch (final DomainDeadlineException | EndpointUnavailableException e) {
+                    LOGGER.warn(String.format(FaoCacheConstants.REVALIDATION_FAILED, url));
+
+                } catch (final CancellationException e) {
+                    // the harvest was aborted, the stored response remains
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // the harvest is finished or aborted, the stored response remains
+        }
+    }
+
+
+    /**
+     * Sends a request and retries it if it fails transiently, unless its endpoint
+     * type is considered to be unavailable. The duration of all attempts is reported
+     * to the progress tracker.
+     *
+     * @param url the URL that is to be requested
+     * @param endpoint the endpoint type of the URL
+     * @param domainCode the domain to which the response belongs
+     * @param deadline the {@linkplain System#nanoTime()} by which the domain must be retrieved,
+     *         or {@linkplain FaoExtractorConstants#NO_DEADLINE}
+     *
+     * @throws java.util.concurrent.CancellationException if the harvest was aborted
+     * @throws DomainDeadlineException if the deadline of the domain was exceeded
+     * @throws EndpointUnavailableException if the endpoint type is considered to be unavailable
+     *
+     * @return the response of the last attempt
+     */
+    private FaoHttpResponse requestWithRetries(final String url, final FaoEndpoint endpoint, final String domainCode, final long deadline)
+    {
+        final long startTime = System.nanoTime();
+
+        try {
+            return retryHandler.call(endpoint, url, deadline, () -> requestOnce(url, endpoint, domainCode, deadline));
+        } finally {
+            // the progress counts each request once, regardless of its attempts
+            progressTracker.onRequest(System.nanoTime() - startTime);
+        }
+    }
+
+
+    /**
+     * Parses a response.
+     *
+     * @param response the response that is to be parsed
+     * @param targetType the type of the parsed response
+     * @param <T> the type of the parsed response
+     *
+     * @return the parsed response, or null if the request failed
+     */
+    private <T> T parse(final FaoHttpResponse response, final Type targetType)
+    {
+        return response.isSuccessful()
+               ? gson.fromJson(response.getBody(), targetType)
+               : null;
+    }
+
+
+    /**
+     * Sends a single request, unless the harvest was aborted. The connection times out
+     * if it exceeds the timeout of its endpoint type or the deadline of its domain.
+     *
+     * @param url the URL that is to be requested
+     * @param endpoint the endpoint type of the URL
+     * @param domainCode the domain to which the response belongs
+     * @param deadline the {@linkplain System#nanoTime()} by which the domain must be retrieved,
+     *         or {@linkplain FaoExtractorConstants#NO_DEADLINE}
+     *
+     * @throws java.util.concurrent.CancellationException if the harvest was aborted
+     * @throws DomainDeadlineException if the deadline of the domain was exceeded
+     *
+     * @return the response, which has no body if the request failed or timed out
+     */
+    private FaoHttpResponse requestOnce(final String url, final FaoEndpoint endpoint, final String domainCode, final long deadline)
+    {
+        abortSignal.throwIfAborted();
+
+        final long endpointTimeout = requestTimeouts.getOrDefault(endpoint, defaultRequestTimeout);
+        long timeoutMillis = endpointTimeout > 0
+                             ? TimeUnit.SECONDS.toMillis(endpointTimeout)
+                             : 0;
+
+        if (deadline != FaoExtractorConstants.NO_DEADLINE) {
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+
+            if (remainingMillis <= 0)
+                throw new DomainDeadlineException(String.format(FaoExtractorConstants.DEADLINE_EXCEEDED_ERROR, url));
+
+            timeoutMillis = timeoutMillis > 0
+                            ? Math.min(timeoutMillis, remainingMillis)
+                            : remainingMillis;
+        }
+
+        try {
+            final FaoHttpResponse response = requestAndMeasure(url, endpoint, domainCode, (int) Math.min(Integer.MAX_VALUE, timeoutMillis));
+
+            // requests that were disconnected by an abortion must not be retried
+            abortSignal.throwIfAborted();
+            return response;
+
+        } catch (final SocketTimeoutException e) {
+            abortSignal.throwIfAborted();
+
+            if (deadline != FaoExtractorConstants.NO_DEADLINE && deadline - System.nanoTime() <= 0)
+                throw new DomainDeadlineException(String.format(FaoExtractorConstants.DEADLINE_EXCEEDED_ERROR, url));
+
+            LOGGER.warn(String.format(FaoExtractorConstants.REQUEST_TIMED_OUT, endpointTimeout, url));
+            return new FaoHttpResponse(FaoExtractorConstants.NO_STATUS_CODE, null, -1);
+        }
+    }
+
+
+    /**
+     * Sends a single request and, if a cost report is created, reports its duration
+     * to the cost profiler.
+     *
+     * @param url the URL that is to be requested
+     * @param endpoint the endpoint type of the URL
+     * @param domainCode the domain to which the response belongs
+     * @param timeoutMillis the connect and read timeout, or zero if the request does not time out
+     *
+     * @throws SocketTimeoutException if the request exceeded its timeout
+     *
+     * @return the response, which has no body if the request failed
+     */
+    private FaoHttpResponse requestAndMeasure(final String url, final FaoEndpoint endpoint, final String domainCode, final int timeoutMillis)
+    throws SocketTimeoutException
+    {
+        final long startTime = System.nanoTime();
+        final FaoHttpResponse response = requester.get(url, timeoutMillis);
+        final long duration = System.nanoTime() - startTime;
+
+        if (costProfiler != null) {
+            final long responseBytes = response.isSuccessful()
+                                       ? response.getBody().getBytes(StandardCharsets.UTF_8).length
+                                       : 0;
+            costProfiler.onRequest(domainCode, endpoint, duration, responseBytes);
+        }
+
+        return response;
+    }
+
+
+    /**
+     * Waits for the background refreshes of stored responses, which are bounded
+     * by the revalidation timeout, and logs which domains were harvested from stored
+     * responses, and how often requests were retried or rejected.
+     */
+    void finish()
+    {
+        if (revalidationExecutor != null) {
+            revalidationExecutor.shutdown();
+
+            try {
+                if (!revalidationExecutor.awaitTermination(revalidationTimeout, TimeUnit.SECONDS))
+                    cancelRevalidation();
+
+            } catch (final InterruptedException e) {
+                cancelRevalidation();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        final Set<String> staleDomains = progressTracker.getProgress().getStaleDomains();
+
+        if (!staleDomains.isEmpty())
+            LOGGER.warn(String.format(FaoCacheConstants.STALE_DOMAINS_REPORT, etlName, staleDomains.size(), staleDomains));
+
+        if (retryHandler.getRetryCount() + retryHandler.getRejectedRequestCount() > 0)
+            LOGGER.info(String.format(
+                            FaoRetryConstants.RETRY_SUMMARY,
+                            etlName,
+                            retryHandler.getRetryCount(),
+                            retryHandler.getOpenedCircuitCount(),
+                            retryHandler.getRejectedRequestCount()));
+    }
+
+
+    /**
+     * Cancels all queued background refreshes of stored responses, and interrupts
+     * the running ones. This is called when the harvest is aborted.
+     */
+    void cancelRevalidation()
+    {
+        if (revalidationExecutor != null)
+            revalidationExecutor.shutdownNow();
+    }
+
+
+    /**
+     * Retrieves the handler that retries failed requests and counts retries,
+     * opened circuits, and rejected requests.
+     *
+     * @return the retry handler of this pipeline
+     */
+    FaoRetryHandler getRetryHandler()
+    {
+        return retryHandler;
+    }
+}
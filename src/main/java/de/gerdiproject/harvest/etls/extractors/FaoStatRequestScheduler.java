@@ -0,0 +1,499 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+import de.gerdiproject.harvest.fao.json.FaoBulkDownload;
+import de.gerdiproject.harvest.fao.json.FaoDimension;
+import de.gerdiproject.harvest.fao.json.FaoDocument;
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+import de.gerdiproject.harvest.fao.json.FaoFilter;
+import de.gerdiproject.harvest.fao.json.FaoMetadata;
+import de.gerdiproject.harvest.fao.utils.FaoExecutors;
+
+/**
+ * This class models the requests of a harvest as a dependency graph and executes all
+ * requests whose dependencies are met from one global priority queue, using a fixed
+ * number of threads. Each domain requires its documents, bulk downloads, metadata, and
+ * dimensions. Every dimension in turn requires a filter request once it is known.
+ * Requests of domains that were admitted earlier are preferred, and dimensions
+ * are requested first, because they unlock further requests.<br>
+ * Requests run either on a fixed pool of platform threads, or each on its own virtual
+ * thread, while a dispatcher thread enforces the concurrency limit.<br>
+ * A {@linkplain FaoStatDomainVO} is emitted as soon as all requests of its domain
+ * are done. In order to limit the memory usage, only a few domains are processed
+ * at a time. The deadline of a domain starts when its first request is dispatched.
+ * Domains that exceed their deadline or whose endpoint types are unavailable are
+ * retried without a deadline after all other domains were admitted. If they fail
+ * again, they are marked as unavailable instead of failing the harvest.
+ *
+ * @author Robin Weiss
+ */
+class FaoStatRequestScheduler implements Iterator<FaoStatDomainVO>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoStatRequestScheduler.class);
+    private static final int DIMENSIONS_PRIORITY = 0;
+    private static final int METADATA_PRIORITY = 1;
+    private static final int FILTERS_PRIORITY = 2;
+    private static final int INITIAL_REQUEST_COUNT = 4;
+
+    private final FaoStatExtractor extractor;
+    private final Iterator<FaoDomain> domainIterator;
+    private final int domainCount;
+    private final int maxOpenDomains;
+    private final ExecutorService dispatcher;
+    private final ExecutorService requestExecutor;
+    private final Semaphore requestPermits;
+    private final PriorityBlockingQueue<RequestTask> readyRequests = new PriorityBlockingQueue<>();
+    private final BlockingQueue<DomainResult> completedDomains = new LinkedBlockingQueue<>();
+    private final AtomicLong requestSequence = new AtomicLong();
+    private final Queue<FaoDomain> deferredDomains = new LinkedList<>();
+
+    private int admittedDomains;
+    private int openDomains;
+    private int emittedDomains;
+
+
+    /**
+     * Constructor that immediately starts requesting the first domains.
+     *
+     * @param extractor the extractor that sends the requests
+     * @param domainIterator an iterator of the domains that are to be retrieved
+     * @param domainCount the number of domains that are to be retrieved
+     * @param concurrency the maximum number of requests that are sent at the same time
+     * @param useVirtualThreads if true, each request runs on its own virtual thread
+     */
+    FaoStatRequestScheduler(final FaoStatExtractor extractor, final Iterator<FaoDomain> domainIterator, final int domainCount, final int concurrency, final boolean useVirtualThreads)
+    {
+        this.extractor = extractor;
+        this.domainIterator = domainIterator;
+        this.domainCount = domainCount;
+        this.maxOpenDomains = concurrency * FaoExtractorConstants.OPEN_DOMAINS_PER_THREAD;
+        this.requestPermits = new Semaphore(concurrency);
+        this.requestExecutor = FaoExecutors.newRequestExecutor(useVirtualThreads, concurrency, FaoExtractorConstants.SCHEDULER_THREAD_NAME);
+        this.dispatcher = Executors.newSingleThreadExecutor(r -> {
+            final Thread t = new Thread(r, FaoExtractorConstants.SCHEDULER_THREAD_NAME);
+            t.setDaemon(true);
+            return t;
+        });
+
+        dispatcher.execute(this::dispatchRequests);
+        admitDomains();
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+        return emittedDomains < domainCount;
+    }
+
+
+    @Override
+    public FaoStatDomainVO next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        DomainResult result;
+
+        while (true) {
+            try {
+                result = completedDomains.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new IllegalStateException(FaoExtractorConstants.SCHEDULER_INTERRUPTED_ERROR, e);
+            }
+
+            if (result.deferredDomain == null)
+                break;
+
+            LOGGER.warn(String.format(
+                            FaoExtractorConstants.DOMAIN_DEFERRED,
+                            result.deferredDomain.getDomainCode(),
+                            result.failure.getMessage()));
+            deferredDomains.add(result.deferredDomain);
+            openDomains--;
+            admitDomains();
+        }
+
+        if (result.failure != null) {
+            cancel();
+            throw result.failure;
+        }
+
+        emittedDomains++;
+        openDomains--;
+
+        if (hasNext())
+            admitDomains();
+        else
+            shutdown();
+
+        return result.domainVO;
+    }
+
+
+    /**
+     * Stops all worker threads and discards all pending requests.
+     * A thread that is waiting for the next domain is released with a
+     * {@linkplain CancellationException}.
+     */
+    void cancel()
+    {
+        shutdown();
+        readyRequests.clear();
+        completedDomains.add(new DomainResult(null, null, new CancellationException(FaoExtractorConstants.SCHEDULER_CANCELLED_ERROR)));
+    }
+
+
+    /**
+     * Queues the initial requests of as many domains as the memory limit allows.
+     * Deferred domains are admitted without a deadline once all other domains
+     * were admitted.
+     */
+    private void admitDomains()
+    {
+        while (openDomains < maxOpenDomains) {
+            final DomainRequests domain;
+
+            if (domainIterator.hasNext())
+                domain = new DomainRequests(domainIterator.next(), admittedDomains++, false);
+
+            else if (!deferredDomains.isEmpty())
+                domain = new DomainRequests(deferredDomains.remove(), admittedDomains++, true);
+
+            else
+                break;
+
+            openDomains++;
+            domain.start();
+        }
+    }
+
+
+    /**
+     * Interrupts the dispatcher and all running requests.
+     */
+    private void shutdown()
+    {
+        dispatcher.shutdownNow();
+        requestExecutor.shutdownNow();
+    }
+
+
+    /**
+     * Passes requests from the priority queue to the request executor whenever
+     * the concurrency limit allows it, until the dispatcher is interrupted.
+     */
+    private void dispatchRequests()
+    {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                requestPermits.acquire();
+                final RequestTask request = readyRequests.take();
+
+                requestExecutor.execute(() -> {
+                    try {
+                        request.run();
+                    } finally {
+                        requestPermits.release();
+                    }
+                });
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        } catch (final RejectedExecutionException e) {
+            // the scheduler was shut down
+        }
+    }
+
+
+    /**
+     * This class holds the responses of all requests of a single domain,
+     * and emits the domain when all of them are done.
+     *
+     * @author Robin Weiss
+     */
+    private class DomainRequests
+    {
+        private final FaoDomain domain;
+        private final int domainIndex;
+        private final boolean isDeferred;
+        private final AtomicInteger pendingRequests = new AtomicInteger();
+        private final AtomicBoolean isCompleted = new AtomicBoolean();
+
+        private volatile List<FaoDocument> documents;
+        private volatile List<FaoBulkDownload> bulkDownloads;
+        private volatile List<FaoMetadata> metadata;
+        private volatile List<FaoDimension> dimensions;
+        private volatile List<List<FaoFilter>> filtersPerDimension;
+        private long deadline;
+        private boolean isDeadlineStarted;
+
+
+        /**
+         * Constructor
+         *
+         * @param domain the domain of which the metadata is retrieved
+         * @param domainIndex the order in which the domain was admitted
+         * @param isDeferred if true, the domain failed before and is retrieved without a deadline
+         */
+        DomainRequests(final FaoDomain domain, final int domainIndex, final boolean isDeferred)
+        {
+            this.domain = domain;
+            this.domainIndex = domainIndex;
+            this.isDeferred = isDeferred;
+        }
+
+
+        /**
+         * Retrieves the deadline of the domain, which starts when the
+         * first request of the domain is dispatched.
+         *
+         * @return the {@linkplain System#nanoTime()} by which the domain must be retrieved,
+         *         or {@linkplain FaoExtractorConstants#NO_DEADLINE}
+         */
+        private synchronized long getDeadline()
+        {
+            if (!isDeadlineStarted) {
+                deadline = isDeferred
+                           ? FaoExtractorConstants.NO_DEADLINE
+                           : extractor.createDomainDeadline();
+                isDeadlineStarted = true;
+            }
+
+            return deadline;
+        }
+
+
+        /**
+         * Queues all requests that do not depend on other requests.
+         */
+        void start()
+        {
+            final String domainCode = domain.getDomainCode();
+
+            pendingRequests.set(INITIAL_REQUEST_COUNT);
+            queue(DIMENSIONS_PRIORITY, () -> onDimensions(extractor.getDimensions(domainCode, getDeadline())));
+            queue(METADATA_PRIORITY, () -> bulkDownloads = extractor.getBulkDownloads(domainCode, getDeadline()));
+            queue(METADATA_PRIORITY, () -> metadata = extractor.getMetaData(domainCode, getDeadline()));
+            queue(METADATA_PRIORITY, () -> documents = extractor.getDocuments(domainCode, getDeadline()));
+        }
+
+
+        /**
+         * Stores the dimensions of the domain and queues the filter request of every dimension.
+         *
+         * @param retrievedDimensions the dimensions of the domain
+         */
+        private void onDimensions(final List<FaoDimension> retrievedDimensions)
+        {
+            final List<List<FaoFilter>> filterLists = new ArrayList<>(retrievedDimensions.size());
+
+            for (int i = 0; i < retrievedDimensions.size(); i++)
+                filterLists.add(Collections.emptyList());
+
+            this.filtersPerDimension = filterLists;
+            this.dimensions = retrievedDimensions;
+
+            for (int i = 0; i < retrievedDimensions.size(); i++) {
+                final FaoDimension dimension = retrievedDimensions.get(i);
+
+                // exclude the pure numbers of the years filter
+                if (!extractor.hasFilters(dimension))
+                    continue;
+
+                final int dimensionIndex = i;
+                pendingRequests.incrementAndGet();
+                queue(FILTERS_PRIORITY, () -> {
+                    final List<FaoFilter> filters = extractor.getFilters(dimension, domain.getDomainCode(), getDeadline());
+
+                    synchronized (filterLists) {
+                        filterLists.set(dimensionIndex, filters);
+                    }
+                });
+            }
+        }
+
+
+        /**
+         * Adds a request of this domain to the global priority queue.
+         *
+         * @param priority the priority of the request within the domain,
+         *         where lower values are executed first
+         * @param request the request and the processing of its response
+         */
+        private void queue(final int priority, final Runnable request)
+        {
+            readyRequests.add(new RequestTask(domainIndex, priority, requestSequence.getAndIncrement(), () -> {
+                // skip the remaining requests of a domain that already failed
+                if (isCompleted.get())
+                    return;
+
+                try {
+                    request.run();
+                } catch (final DomainDeadlineException | EndpointUnavailableException e) {
+                    if (isCompleted.compareAndSet(false, true))
+                        completedDomains.add(isDeferred ? createUnavailableResult(e) : new DomainResult(null, domain, e));
+                    return;
+                } catch (final RuntimeException e) {
+                    if (isCompleted.compareAndSet(false, true))
+                        completedDomains.add(new DomainResult(null, null, e));
+                    return;
+                }
+
+                if (pendingRequests.decrementAndGet() == 0 && isCompleted.compareAndSet(false, true))
+                    completedDomains.add(new DomainResult(assemble(), null, null));
+            }));
+        }
+
+
+        /**
+         * Marks the domain as unavailable, because it failed even when it was retried
+         * without a deadline. Only this domain is skipped, not the whole harvest.
+         *
+         * @param failure the error that prevented the completion of the domain
+         *
+         * @return a result that holds a value object which marks the domain as unavailable
+         */
+        private DomainResult createUnavailableResult(final RuntimeException failure)
+        {
+            LOGGER.warn(String.format(FaoExtractorConstants.DOMAIN_UNAVAILABLE, domain.getDomainCode(), failure.getMessage()));
+            return new DomainResult(FaoStatDomainVO.createUnavailable(domain), null, null);
+        }
+
+
+        /**
+         * Assembles a value object of all responses of the domain.
+         *
+         * @return a value object that contains all metadata of the domain
+         */
+        private FaoStatDomainVO assemble()
+        {
+            // the shared filter lists are passed on as they are, so that they stay shared
+            synchronized (filtersPerDimension) {
+                return new FaoStatDomainVO(domain, bulkDownloads, metadata, documents, dimensions, filtersPerDimension, false, false);
+            }
+        }
+    }
+
+
+    /**
+     * This class represents a request whose dependencies are met.
+     * Requests are ordered by the admission of their domain, their priority
+     * within the domain, and the order in which they were queued.
+     *
+     * @author Robin Weiss
+     */
+    private static class RequestTask implements Comparable<RequestTask>, Runnable
+    {
+        private final int domainIndex;
+        private final int priority;
+        private final long sequence;
+        private final Runnable request;
+
+
+        /**
+         * Constructor
+         *
+         * @param domainIndex the order in which the domain of the request was admitted
+         * @param priority the priority of the request within its domain
+         * @param sequence the order in which the request was queued
+         * @param request the request that is to be executed
+         */
+        RequestTask(final int domainIndex, final int priority, final long sequence, final Runnable request)
+        {
+            this.domainIndex = domainIndex;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.request = request;
+        }
+
+
+        @Override
+        public void run()
+        {
+            request.run();
+        }
+
+
+        @Override
+        public int compareTo(final RequestTask other)
+        {
+            if (domainIndex != other.domainIndex)
+                return Integer.compare(domainIndex, other.domainIndex);
+
+            if (priority != other.priority)
+                return Integer.compare(priority, other.priority);
+
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+
+    /**
+     * This class holds either a completed domain, a domain that is to be retried later,
+     * or the error that prevented its completion.
+     *
+     * @author Robin Weiss
+     */
+    private static class DomainResult
+    {
+        private final FaoStatDomainVO domainVO;
+        private final FaoDomain deferredDomain;
+        private final RuntimeException failure;
+
+
+        /**
+         * Constructor
+         *
+         * @param domainVO the completed domain, or null if it failed
+         * @param deferredDomain the domain that is to be retried later, or null
+         * @param failure the error that prevented the completion, or null
+         */
+        DomainResult(final FaoStatDomainVO domainVO, final FaoDomain deferredDomain, final RuntimeException failure)
+        {
+            this.domainVO = domainVO;
+            this.deferredDomain = deferredDomain;
+            this.failure = failure;
+        }
+    }
+}
@@ -16,19 +16,47 @@
  */
 package de.gerdiproject.harvest.etls.transformers;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.application.MainContextUtils;
 import de.gerdiproject.harvest.etls.AbstractETL;
 import de.gerdiproject.harvest.etls.FaoStatETL;
 import de.gerdiproject.harvest.etls.extractors.FaoStatDomainVO;
+import de.gerdiproject.harvest.fao.constants.FaoBulkDownloadConstants;
+import de.gerdiproject.harvest.fao.constants.FaoCacheConstants;
 import de.gerdiproject.harvest.fao.constants.FaoDataCiteConstants;
+import de.gerdiproject.harvest.fao.constants.FaoLinkConstants;
 import de.gerdiproject.harvest.fao.json.FaoBulkDownload;
 import de.gerdiproject.harvest.fao.json.FaoDocument;
 import de.gerdiproject.harvest.fao.json.FaoDomain;
 import de.gerdiproject.harvest.fao.json.FaoFilter;
 import de.gerdiproject.harvest.fao.json.FaoMetadata;
+import de.gerdiproject.harvest.fao.utils.FaoAbortSignal;
+import de.gerdiproject.harvest.fao.utils.FaoCostProfiler;
+import de.gerdiproject.harvest.fao.utils.FaoCsvProfile;
+import de.gerdiproject.harvest.fao.utils.FaoCsvProfiler;
+import de.gerdiproject.harvest.fao.utils.FaoDocumentBatchIterator;
+import de.gerdiproject.harvest.fao.utils.FaoDocumentHashRegistry;
+import de.gerdiproject.harvest.fao.utils.FaoDocumentSizeLimiter;
+import de.gerdiproject.harvest.fao.utils.FaoLinkStatus;
+import de.gerdiproject.harvest.fao.utils.FaoLinkValidator;
+import de.gerdiproject.harvest.fao.utils.FaoZipEntry;
+import de.gerdiproject.harvest.fao.utils.FaoZipProbe;
 import de.gerdiproject.json.datacite.Contributor;
 import de.gerdiproject.json.datacite.DataCiteJson;
 import de.gerdiproject.json.datacite.Date;
@@ -56,19 +84,211 @@ import de.gerdiproject.json.datacite.nested.PersonName;
  */
 public class FaoStatTransformer extends AbstractIteratorTransformer<FaoStatDomainVO, DataCiteJson>
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoStatTransformer.class);
+
+    private final FaoZipProbe zipProbe = new FaoZipProbe();
     private String language;
+    private boolean changesOnly;
+    private boolean isProbingBulkDownloads;
+    private boolean isProfilingBulkDownloads;
+    private int profileThreads;
+    private long profileMemory;
+    private volatile FaoCsvProfiler csvProfiler;
+    private FaoDocumentHashRegistry hashRegistry;
+    private Charset charset;
+    private String linkValidationMode;
+    private int linkThreads;
+    private int linkRequestsPerSecond;
+    private long linkCacheTime;
+    private long linkDocumentTimeout;
+    private long linkHarvestBudget;
+    private volatile FaoLinkValidator linkValidator;
+    private FaoCostProfiler costProfiler;
+    private FaoDocumentSizeLimiter documentSizeLimiter;
+    private final Runnable abortHandler = this::cancelRequests;
+    private FaoAbortSignal abortSignal;
+    private volatile boolean isHarvestComplete;
+    private FaoStatETL faoEtl;
+    private Set<String> domainRestriction;
 
 
     @Override
     public void init(final AbstractETL<?, ?> etl)
     {
-        this.language = ((FaoStatETL)etl).getLanguage();
+        final FaoStatETL faoEtl = (FaoStatETL) etl;
+        this.faoEtl = faoEtl;
+        this.domainRestriction = faoEtl.getDomainRestriction();
+        this.language = faoEtl.getLanguage();
+        this.changesOnly = faoEtl.isChangesOnly();
+        this.isProbingBulkDownloads = faoEtl.isProbingBulkDownloads();
+        this.isProfilingBulkDownloads = faoEtl.isProfilingBulkDownloads();
+        this.profileThreads = faoEtl.getProfileThreads();
+        this.profileMemory = faoEtl.getProfileMemory() * 1024L * 1024L;
+        this.hashRegistry = faoEtl.getHashRegistry();
+        this.abortSignal = faoEtl.getAbortSignal();
+        abortSignal.addAbortHandler(abortHandler);
+        this.charset = etl.getCharset();
+        this.linkValidationMode = parseLinkValidationMode(faoEtl.getLinkValidation());
+        this.linkThreads = faoEtl.getLinkThreads();
+        this.linkRequestsPerSecond = faoEtl.getLinkRequestsPerSecond();
+        this.linkCacheTime = TimeUnit.HOURS.toMillis(faoEtl.getLinkCacheHours());
+        this.linkDocumentTimeout = faoEtl.getLinkDocumentTimeout();
+        this.linkHarvestBudget = TimeUnit.SECONDS.toMillis(faoEtl.getLinkHarvestBudget());
+        this.costProfiler = faoEtl.isReportingCosts() ? faoEtl.getCostProfiler() : null;
+        this.documentSizeLimiter = faoEtl.getDocumentSizeLimiter();
+        documentSizeLimiter.start(etl.getName(), faoEtl.getDocumentSizeBudget() * 1024L);
+    }
+
+
+    /**
+     * Normalizes the link validation mode, falling back to "off" if it is unknown.
+     *
+     * @param mode the link validation mode parameter value
+     *
+     * @return one of the link validation modes of {@linkplain FaoLinkConstants}
+     */
+    private static String parseLinkValidationMode(final String mode)
+    {
+        final String normalizedMode = mode.trim().toLowerCase();
+
+        switch (normalizedMode) {
+            case FaoLinkConstants.MODE_OFF:
+            case FaoLinkConstants.MODE_FLAG:
+            case FaoLinkConstants.MODE_DROP:
+                return normalizedMode;
+
+            default:
+                LOGGER.warn(String.format(FaoLinkConstants.INVALID_MODE, mode));
+                return FaoLinkConstants.MODE_OFF;
+        }
+    }
+
+
+    /**
+     * Transforms domainVOs to documents and notes when all domainVOs were
+     * transformed without the harvest being aborted. The document hashes of
+     * the harvest are only committed if it was completed, and the ETL is notified
+     * of the completion.
+     * <br>
+     * The returned iterator never yields null. Domains that have not changed since
+     * the last harvest, that could not be retrieved, or that were removed from FAOSTAT
+     * do not produce a document, so the loader only receives documents that are to be indexed.
+     *
+     * @param elements the domainVOs that are to be transformed
+     *
+     * @return an iterator of documents
+     */
+    @Override
+    public Iterator<DataCiteJson> transform(final Iterator<FaoStatDomainVO> elements)
+    {
+        isHarvestComplete = false;
+
+        final Iterator<DataCiteJson> documents = super.transform(new Iterator<FaoStatDomainVO>() {
+            @Override
+            public boolean hasNext()
+            {
+                final boolean hasNext = elements.hasNext();
+
+                if (!hasNext && !isHarvestComplete && !abortSignal.isAborted()) {
+                    isHarvestComplete = true;
+                    faoEtl.onHarvestCompleted(domainRestriction);
+                }
+
+                return hasNext;
+            }
+
+
+            @Override
+            public FaoStatDomainVO next()
+            {
+                return elements.next();
+            }
+        });
+
+        // skip domains that did not produce a document
+        return new Iterator<DataCiteJson>() {
+            private DataCiteJson nextDocument;
+
+
+            @Override
+            public boolean hasNext()
+            {
+                while (nextDocument == null && documents.hasNext())
+                    nextDocument = documents.next();
+
+                return nextDocument != null;
+            }
+
+
+            @Override
+            public DataCiteJson next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                final DataCiteJson document = nextDocument;
+                nextDocument = null;
+                return document;
+            }
+        };
+    }
+
+
+    /**
+     * Transforms domainVOs to documents and groups them into batches that are limited
+     * by the number of documents, by their size, and by the time that they wait
+     * for the batch to be completed. This is used by the command line runner only,
+     * because the loaders of the harvester service consume the single documents of
+     * {@linkplain #transform(Iterator)} and limit their bulk submissions themselves.
+     *
+     * @param elements the domainVOs that are to be transformed
+     * @param maxDocuments the maximum number of documents per batch, or 0 if the number is not limited
+     * @param maxBytes the maximum size of a batch in bytes, or 0 if the size is not limited
+     * @param maxWaitMillis the maximum time in milliseconds that the first document of a batch waits
+     *         for the batch to be completed, or 0 if batches are only handed on when they are full
+     *
+     * @return an iterator of batches of documents
+     */
+    public FaoDocumentBatchIterator transformInBatches(final Iterator<FaoStatDomainVO> elements, final int maxDocuments, final long maxBytes, final long maxWaitMillis)
+    {
+        return new FaoDocumentBatchIterator(transform(elements), maxDocuments, maxBytes, maxWaitMillis);
     }
 
 
     @Override
     protected DataCiteJson transformElement(final FaoStatDomainVO source)
     {
+        if (costProfiler == null)
+            return createDocument(source);
+
+        final long startTime = System.nanoTime();
+        final DataCiteJson document = createDocument(source);
+        costProfiler.onTransform(source.getDomain().getDomainCode(), System.nanoTime() - startTime, document);
+        return document;
+    }
+
+
+    /**
+     * Transforms a domainVO to a document.
+     *
+     * @param source the domainVO that is to be transformed
+     *
+     * @return the document of the domain, or null if it has not changed since the last harvest,
+     *         could not be retrieved, or was removed from FAOSTAT
+     */
+    private DataCiteJson createDocument(final FaoStatDomainVO source)
+    {
+        // the loader cannot delete documents, so removed domains are only forgotten and logged
+        if (source.isDeleted()) {
+            hashRegistry.remove(source.getDomain());
+            LOGGER.warn(String.format(FaoCacheConstants.DOCUMENT_REMOVED, source.getDomain().getDomainCode(), createIdentifier(source.getDomain())));
+            return null;
+        }
+
+        // domains that could not be retrieved keep their document of the last harvest
+        if (source.isUnavailable())
+            return null;
+
         // create the document
         final DataCiteJson document = new DataCiteJson(createIdentifier(source.getDomain()));
 
@@ -85,27 +305,40 @@ public class FaoStatTransformer extends AbstractIteratorTransformer<FaoStatDomai
         // get a readable name of the domain
         document.addTitles(parseTitles(source.getDomain()));
 
+        // check if the links of related documents and bulk downloads resolve
+        final Map<String, FaoLinkStatus> linkStates = validateLinks(source);
+
         // get bulk-download URL
-        document.addResearchData(parseFiles(source.getBulkDownloads()));
+        document.addResearchData(parseFiles(source.getBulkDownloads(), linkStates));
 
         // get description
         document.addDescriptions(parseDescriptions(source.getMetadata()));
 
-        // get URLs of all filters that can be applied to the domain
-        document.addSubjects(parseSubjects(source.getFilters()));
-
         // get dates
         document.addDates(parseDates(source.getMetadata()));
 
         // get web links
-        document.addWebLinks(parseWebLinks(source));
+        document.addWebLinks(parseWebLinks(source, linkStates));
 
         // get contact person
         document.addContributors(parseContributors(source.getMetadata()));
 
+        // get statistics of the bulk download files
+        if (isProfilingBulkDownloads)
+            addProfiles(document, source.getBulkDownloads());
+
         // get creator
         document.addCreators(FaoDataCiteConstants.CREATORS);
 
+        // get URLs of all filters that can be applied to the domain, within the size budget of the document
+        final List<Subject> subjects = parseSubjects(source.getFilters());
+        document.addSubjects(documentSizeLimiter.limitSubjects(document, subjects));
+        documentSizeLimiter.onDocument(document);
+
+        // skip documents that have not changed since the last harvest
+        if (changesOnly && !hashRegistry.update(source.getDomain(), document))
+            return null;
+
         return document;
     }
 
@@ -226,42 +459,206 @@ public class FaoStatTransformer extends AbstractIteratorTransformer<FaoStatDomai
     }
 
 
+    /**
+     * Validates the download paths of related documents and the URLs of bulk downloads
+     * of a domain, waiting no longer than the link validation timeout of a document.
+     *
+     * @param source the domainVO of which the links are validated
+     *
+     * @return a map of links to their states, which lacks links that could not be validated in time
+     */
+    private Map<String, FaoLinkStatus> validateLinks(final FaoStatDomainVO source)
+    {
+        if (linkValidationMode.equals(FaoLinkConstants.MODE_OFF))
+            return Collections.emptyMap();
+
+        if (linkValidator == null) {
+            final File cacheFile = new File(
+                MainContextUtils.getCacheDirectory(getClass()),
+                FaoCacheConstants.CACHE_FOLDER + File.separatorChar + FaoCacheConstants.LINK_CACHE_FILE_NAME);
+
+            linkValidator = new FaoLinkValidator(
+                cacheFile,
+                charset,
+                linkThreads,
+                linkRequestsPerSecond,
+                linkCacheTime,
+                linkHarvestBudget);
+        }
+
+        final List<String> urls = new LinkedList<>();
+
+        for (final FaoDocument d : source.getDocuments()) {
+            if (!d.getFileTitle().equals(FaoDataCiteConstants.TEMPLATE_DOCUMENT_NAME))
+                urls.add(d.getDownloadPath());
+        }
+
+        for (final FaoBulkDownload bdl : source.getBulkDownloads())
+            urls.add(bdl.getUrl());
+
+        return linkValidator.validate(urls, linkDocumentTimeout);
+    }
+
+
+    /**
+     * Retrieves the state of a link if it was validated and found to be broken.
+     *
+     * @param url the link of which the state is retrieved
+     * @param linkStates a map of validated links to their states
+     *
+     * @return the state of the broken link, or null if the link is fine or its state is unknown
+     */
+    private static FaoLinkStatus getBrokenLinkStatus(final String url, final Map<String, FaoLinkStatus> linkStates)
+    {
+        final FaoLinkStatus status = linkStates.get(url);
+        return status != null && status.isBroken() ? status : null;
+    }
+
+
     /**
      * Parses a list of{@linkplain FaoBulkDownload}s, converting each
-     * to a {@linkplain ResearchData}.
+     * to a {@linkplain ResearchData}. If bulk downloads are probed,
+     * each CSV file within the archives is added as well.
+     * Broken links are flagged or dropped, depending on the link validation mode.
      *
      * @param bulkDownloads the bulk downloads of the domain
+     * @param linkStates a map of validated links to their states
      *
      * @return a list of downloadable files of a domain
      */
-    private List<ResearchData> parseFiles(final List<FaoBulkDownload> bulkDownloads)
+    private List<ResearchData> parseFiles(final List<FaoBulkDownload> bulkDownloads, final Map<String, FaoLinkStatus> linkStates)
     {
         final List<ResearchData> files = new LinkedList<>();
 
         for (final FaoBulkDownload bdl : bulkDownloads) {
             final String url = bdl.getUrl();
-            final String label = bdl.getFileContent();
+            final FaoLinkStatus brokenLinkStatus = getBrokenLinkStatus(url, linkStates);
+
+            if (brokenLinkStatus != null && linkValidationMode.equals(FaoLinkConstants.MODE_DROP))
+                continue;
+
+            final String label = brokenLinkStatus == null
+                                 ? bdl.getFileContent()
+                                 : String.format(FaoLinkConstants.BROKEN_LINK_FLAG, bdl.getFileContent(), brokenLinkStatus.getStatusDescription());
             final String type = bdl.getFileName().substring(bdl.getFileName().lastIndexOf('.') + 1);
 
             final ResearchData file = new ResearchData(url, label);
             file.setType(type);
 
             files.add(file);
+
+            if (isProbingBulkDownloads)
+                files.addAll(parseArchiveContents(url, label));
         }
 
         return files;
     }
 
 
+    /**
+     * Lists the CSV files within a bulk download archive without downloading it,
+     * converting each to a {@linkplain ResearchData}.
+     *
+     * @param url the URL of the bulk download archive
+     * @param label the label of the bulk download archive
+     *
+     * @return a list of CSV files within the archive, or an empty list if it could not be read
+     */
+    private List<ResearchData> parseArchiveContents(final String url, final String label)
+    {
+        final List<ResearchData> csvFiles = new LinkedList<>();
+
+        try {
+            for (final FaoZipEntry entry : zipProbe.getCsvEntries(url)) {
+                final String csvLabel = String.format(
+                                            FaoBulkDownloadConstants.ENTRY_LABEL_FORMAT,
+                                            label,
+                                            entry.getName(),
+                                            entry.getUncompressedSize(),
+                                            entry.getCompressedSize());
+
+                final ResearchData csvFile = new ResearchData(url, csvLabel);
+                csvFile.setType(FaoBulkDownloadConstants.CSV_TYPE);
+                csvFiles.add(csvFile);
+            }
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(FaoBulkDownloadConstants.PROBE_FAILED, url), e);
+        }
+
+        return csvFiles;
+    }
+
+
+    /**
+     * Profiles the CSV files of all bulk download archives in parallel, and adds
+     * the covered years and a description of each archive to a document.
+     *
+     * @param document the document to which the profiles are added
+     * @param bulkDownloads the bulk downloads of the domain
+     */
+    private void addProfiles(final DataCiteJson document, final List<FaoBulkDownload> bulkDownloads)
+    {
+        final List<String> urls = new LinkedList<>();
+
+        for (final FaoBulkDownload bdl : bulkDownloads)
+            urls.add(bdl.getUrl());
+
+        if (csvProfiler == null)
+            csvProfiler = new FaoCsvProfiler(profileThreads, profileMemory);
+
+        final Map<String, FaoCsvProfile> profiles = csvProfiler.profileAll(urls);
+        final List<Description> descriptions = new LinkedList<>();
+        int minYear = Integer.MAX_VALUE;
+        int maxYear = Integer.MIN_VALUE;
+
+        for (final FaoBulkDownload bdl : bulkDownloads) {
+            final FaoCsvProfile profile = profiles.get(bdl.getUrl());
+
+            if (profile == null || !profile.hasYears())
+                continue;
+
+            minYear = Math.min(minYear, profile.getMinYear());
+            maxYear = Math.max(maxYear, profile.getMaxYear());
+
+            final String approximatePrefix = profile.isApproximate()
+                                             ? FaoBulkDownloadConstants.PROFILE_APPROXIMATE_PREFIX
+                                             : "";
+            final String descriptionText = String.format(
+                                               FaoBulkDownloadConstants.PROFILE_DESCRIPTION_FORMAT,
+                                               bdl.getFileContent(),
+                                               profile.getRowCount(),
+                                               profile.getMinYear(),
+                                               profile.getMaxYear(),
+                                               approximatePrefix,
+                                               profile.getDistinctAreaCount(),
+                                               approximatePrefix,
+                                               profile.getDistinctItemCount());
+
+            final Description desc = new Description(descriptionText, DescriptionType.TechnicalInfo);
+            desc.setLang(language);
+            descriptions.add(desc);
+        }
+
+        document.addDescriptions(descriptions);
+
+        if (minYear <= maxYear) {
+            final List<AbstractDate> dates = new LinkedList<>();
+            dates.add(new DateRange(String.valueOf(minYear), String.valueOf(maxYear), DateType.Collected));
+            document.addDates(dates);
+        }
+    }
+
+
     /**
      * Parses the {@linkplain FaoStatDomainVO}, looking for relevant web links and returning
-     * them in a list.
+     * them in a list. Broken links are flagged or dropped, depending on the link validation mode.
      *
      * @param source the domainVO that is to be parsed
+     * @param linkStates a map of validated links to their states
      *
      * @return a list of web links that are related to a domain
      */
-    private List<WebLink> parseWebLinks(final FaoStatDomainVO source)
+    private List<WebLink> parseWebLinks(final FaoStatDomainVO source, final Map<String, FaoLinkStatus> linkStates)
     {
         final List<WebLink> webLinks = new LinkedList<>();
         // add view url
@@ -281,8 +678,15 @@ public class FaoStatTransformer extends AbstractIteratorTransformer<FaoStatDomai
             if (d.getFileTitle().equals(FaoDataCiteConstants.TEMPLATE_DOCUMENT_NAME))
                 continue;
 
+            final FaoLinkStatus brokenLinkStatus = getBrokenLinkStatus(d.getDownloadPath(), linkStates);
+
+            if (brokenLinkStatus != null && linkValidationMode.equals(FaoLinkConstants.MODE_DROP))
+                continue;
+
             final WebLink link = new WebLink(d.getDownloadPath());
-            link.setName(d.getFileTitle());
+            link.setName(brokenLinkStatus == null
+                         ? d.getFileTitle()
+                         : String.format(FaoLinkConstants.BROKEN_LINK_FLAG, d.getFileTitle(), brokenLinkStatus.getStatusDescription()));
             link.setType(WebLinkType.Related);
             webLinks.add(link);
         }
@@ -292,23 +696,35 @@ public class FaoStatTransformer extends AbstractIteratorTransformer<FaoStatDomai
 
 
     /**
-     * Parses a list of {@linkplain FaoFilter} object, converting each filter term to a {@linkplain Subject}
-     * and returning them in a list.
+     * Parses the {@linkplain FaoFilter}s of all dimensions, converting each filter term to a
+     * {@linkplain Subject} and returning them in a list. Filter terms that occur more than once
+     * are only converted once, and are counted as duplicates by the document size limiter.
      *
-     * @param filters a list of domain filter categories
+     * @param filtersPerDimension the filter lists of all dimensions of a domain
      *
      * @return a list of subjects of a domain filter category
      */
-    private List<Subject> parseSubjects(final List<FaoFilter> filters)
+    private List<Subject> parseSubjects(final List<List<FaoFilter>> filtersPerDimension)
     {
         final List<Subject> subjects = new LinkedList<>();
-
-        for (final FaoFilter f : filters) {
-            final Subject sub = new Subject(f.getLabel());
-            sub.setLang(language);
-            subjects.add(sub);
+        final Set<String> labels = new HashSet<>();
+        int duplicateCount = 0;
+
+        for (final List<FaoFilter> filters : filtersPerDimension) {
+            for (final FaoFilter f : filters) {
+                // the same filter can be part of multiple dimensions
+                if (!labels.add(f.getLabel())) {
+                    duplicateCount++;
+                    continue;
+                }
+
+                final Subject sub = new Subject(f.getLabel());
+                sub.setLang(language);
+                subjects.add(sub);
+            }
         }
 
+        documentSizeLimiter.onDuplicateSubjects(duplicateCount);
         return subjects;
     }
 
@@ -356,9 +772,44 @@ public class FaoStatTransformer extends AbstractIteratorTransformer<FaoStatDomai
     }
 
 
+    /**
+     * Cancels all running profiling and link validation requests when the harvest is aborted.
+     * The helpers themselves are released by {@linkplain #clear()}.
+     */
+    private void cancelRequests()
+    {
+        final FaoCsvProfiler profiler = csvProfiler;
+        final FaoLinkValidator validator = linkValidator;
+
+        if (profiler != null)
+            profiler.shutdown();
+
+        if (validator != null)
+            validator.shutdown();
+    }
+
+
     @Override
     public void clear()
     {
-        // nothing to clean up
+        if (documentSizeLimiter != null)
+            documentSizeLimiter.finish();
+
+        // only remember the documents of the harvest if all of them were emitted
+        if (changesOnly && isHarvestComplete)
+            hashRegistry.commit();
+        else
+            hashRegistry.discard();
+
+        if (csvProfiler != null) {
+            csvProfiler.shutdown();
+            csvProfiler = null;
+        }
+
+        if (linkValidator != null) {
+            linkValidator.save();
+            linkValidator.shutdown();
+            linkValidator = null;
+        }
     }
 }
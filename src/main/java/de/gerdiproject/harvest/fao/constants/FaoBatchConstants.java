@@ -0,0 +1,63 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.constants;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class contains constants that are used by the
+ * {@linkplain de.gerdiproject.harvest.FaoStatBatchRunner}.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoBatchConstants
+{
+    public static final String MODULE_NAME = "FaoStat";
+    public static final String THREAD_NAME = "FaoStatBatchRunner";
+
+    // ARGUMENTS
+    public static final String OPTION_PREFIX = "--";
+    public static final String OPTION_SEPARATOR = "=";
+    public static final String OUTPUT_OPTION = "output";
+    public static final String GROUPS_OPTION = "groups";
+    public static final String HELP_OPTION = "help";
+    public static final String STDOUT = "-";
+    public static final String BATCH_MAX_DOCUMENTS_OPTION = "batchMaxDocuments";
+    public static final String BATCH_MAX_SIZE_OPTION = "batchMaxKilobytes";
+    public static final String BATCH_MAX_WAIT_OPTION = "batchMaxWaitSeconds";
+
+    // EXIT CODES
+    public static final int EXIT_SUCCESS = 0;
+    public static final int EXIT_FAILURE = 1;
+    public static final int EXIT_INVALID_ARGUMENTS = 2;
+
+    // LOG
+    public static final String USAGE = "Usage: java -cp <classpath> de.gerdiproject.harvest.FaoStatBatchRunner"
+                                       + " [--output=<file>|-] [--groups=<group codes>]"
+                                       + " [--batchMaxDocuments=<count>] [--batchMaxKilobytes=<size>] [--batchMaxWaitSeconds=<seconds>]"
+                                       + " [--<parameter>=<value>]...%n"
+                                       + "Harvests FAOSTAT and writes one DataCite JSON document per line to a file, or to stdout by default.%n"
+                                       + "Log messages are written to stderr.%n"
+                                       + "If any batch limit is set, documents are grouped into batches and the output is flushed after each batch.%n"
+                                       + "Parameters are the same as those of the harvester service, e.g. --language=fr --requestConcurrency=8%n";
+    public static final String INVALID_ARGUMENT_ERROR = "Invalid argument '%s'! Arguments must have the form --<key>=<value>.";
+    public static final String INVALID_BATCH_LIMIT_ERROR = "Invalid value '%s' of --%s! Batch limits must be non-negative integers.";
+    public static final String HARVEST_STARTED = "Harvesting %s to %s.";
+    public static final String HARVEST_FINISHED = "Harvested %d documents with %s in %d ms.";
+    public static final String HARVEST_FAILED = "Could not harvest %s!";
+}
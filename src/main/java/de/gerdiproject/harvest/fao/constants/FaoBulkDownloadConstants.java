@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.constants;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class contains constants that are used for reading the contents
+ * of FAOSTAT bulk download archives.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoBulkDownloadConstants
+{
+    // HTTP
+    public static final String RANGE_HEADER = "Range";
+    public static final String CONTENT_RANGE_HEADER = "Content-Range";
+    public static final String SUFFIX_RANGE = "bytes=-%d";
+    public static final String BYTE_RANGE = "bytes=%d-%d";
+    public static final int CONNECT_TIMEOUT = 10000;
+    public static final int READ_TIMEOUT = 30000;
+
+    // ZIP STRUCTURE
+    public static final int EOCD_SIGNATURE = 0x06054b50;
+    public static final int EOCD_MIN_SIZE = 22;
+    public static final int EOCD_MAX_SIZE = EOCD_MIN_SIZE + 0xFFFF;
+    public static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    public static final int ZIP64_LOCATOR_SIZE = 20;
+    public static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    public static final int ZIP64_EOCD_SIZE = 56;
+    public static final int CENTRAL_FILE_HEADER_SIGNATURE = 0x02014b50;
+    public static final int CENTRAL_FILE_HEADER_SIZE = 46;
+    public static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+    public static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    // ENTRIES
+    public static final String CSV_SUFFIX = ".csv";
+    public static final String CSV_TYPE = "csv";
+    public static final String ENTRY_LABEL_FORMAT = "%s: %s (%d bytes, %d bytes compressed)";
+
+    // PROFILING
+    public static final int STREAM_BUFFER_SIZE = 65536;
+    public static final String[] AREA_CODE_COLUMNS = {"Area Code", "Country Code", "Reporter Country Code"};
+    public static final String[] ITEM_CODE_COLUMNS = {"Item Code"};
+    public static final String[] YEAR_COLUMNS = {"Year"};
+    public static final int YEAR_DIGITS = 4;
+    public static final String BYTE_ORDER_MARK = "\uFEFF";
+    public static final int BYTES_PER_DISTINCT_CODE = 32;
+    public static final int MAX_EXACT_CODE_BYTES = Long.BYTES;
+    public static final String PROFILE_THREAD_NAME = "FaoCsvProfiler";
+    public static final String PROFILE_DESCRIPTION_FORMAT = "%s: %d rows, %d-%d, %s%d areas, %s%d items";
+    public static final String PROFILE_APPROXIMATE_PREFIX = "at least ";
+    public static final String PROFILE_FAILED = "Could not profile bulk download: %s";
+
+    // MIRROR
+    public static final String MIRROR_FOLDER = "mirror";
+    public static final String PART_FILE_SUFFIX = ".part";
+    public static final String STATE_FILE_SUFFIX = ".state.json";
+    public static final String ACCEPT_RANGES_HEADER = "Accept-Ranges";
+    public static final String ACCEPT_RANGES_BYTES = "bytes";
+    public static final String HEAD_METHOD = "HEAD";
+    public static final long MIRROR_CHUNK_SIZE = 8L * 1024L * 1024L;
+    public static final int MIRROR_PROGRESS_SAVE_INTERVAL = 16;
+    public static final String MIRROR_THREAD_NAME = "FaoBulkDownloadMirror";
+    public static final String MIRROR_STARTED = "Mirroring bulk download: %s";
+    public static final String MIRROR_SKIPPED = "Skipping unchanged bulk download: %s";
+    public static final String MIRROR_DONE = "Mirrored bulk download to: %s";
+    public static final String MIRROR_FAILED = "Could not mirror bulk download: %s";
+    public static final String INCOMPLETE_CHUNK_ERROR = "Received %d instead of %d bytes for range %d-%d of: %s";
+    public static final String INCOMPLETE_FILE_ERROR = "Expected %d bytes, but the file has %d bytes: %s";
+    public static final String INVALID_RESPONSE_ERROR = "Unexpected HTTP status %d for: %s";
+
+    // ERRORS
+    public static final String RANGE_NOT_SUPPORTED_ERROR = "The server does not support range requests: %s";
+    public static final String NO_EOCD_ERROR = "Could not find the end of the central directory: %s";
+    public static final String INVALID_CENTRAL_DIRECTORY_ERROR = "Invalid central directory: %s";
+    public static final String PROBE_FAILED = "Could not read the contents of bulk download: %s";
+}
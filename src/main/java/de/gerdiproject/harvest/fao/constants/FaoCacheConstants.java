@@ -0,0 +1,77 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.constants;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import com.google.gson.reflect.TypeToken;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class contains constants of files that are persisted
+ * in the cache folder between harvests.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoCacheConstants
+{
+    public static final String CACHE_FOLDER = "faostat";
+
+    // CHANGE DETECTION
+    public static final String HASH_FILE_NAME = "%s_%s_documentHashes.json";
+    public static final String HASH_ALGORITHM = "SHA-256";
+    public static final String HASH_ALGORITHM_ERROR = "Could not create document hashes: ";
+    public static final String HASH_LOAD_ERROR = "Could not load document hashes from: %s";
+    public static final String DOCUMENT_REMOVED = "Domain '%s' was removed from FAOSTAT. Its document '%s' has to be removed from the index manually!";
+
+    // DOMAIN LIST
+    public static final String DOMAIN_SNAPSHOT_FILE_NAME = "%s_%s_domains.json";
+
+    // GROUP CODES
+    public static final String GROUP_CODES_FILE_NAME = "groupCodes.json";
+    public static final Type GROUP_CODES_TYPE = new TypeToken<List<String>>() {} .getType();
+
+    // LINK VALIDATION
+    public static final String LINK_CACHE_FILE_NAME = "linkStatus.json";
+
+    // RESPONSE STORE
+    public static final String RESPONSE_STORE_FOLDER = "responses";
+    public static final String RESPONSE_FILE_NAME = "%s.json";
+    public static final String REVALIDATION_THREAD_NAME = "FaoResponseRevalidator";
+    public static final String STALE_DOMAINS_KEY = "groupsanddomains";
+    public static final String STORED_RESPONSE_INVALID = "Ignoring unreadable stored response of: %s";
+    public static final String REVALIDATION_FAILED = "Could not refresh the stored response of: %s";
+    public static final String STALE_DOMAINS_REPORT = "%s harvested %d domain(s) from stored responses, which were refreshed in the background for the next harvest: %s";
+
+    // MOCKED HTTP RESPONSES
+    public static final String HTTP_REQUESTS_CATEGORY = "HttpRequests";
+    public static final String READ_FROM_DISK_KEY = "readFromDisk";
+    public static final String WRITE_TO_DISK_KEY = "writeToDisk";
+    public static final String SCHEME_SEPARATOR = "://";
+    public static final String QUERY_SEPARATOR = "?";
+    public static final String QUERY_FOLDER = "/%query%/";
+    public static final String PORT_SEPARATOR = ":";
+    public static final String ESCAPED_PORT_SEPARATOR = "%colon%";
+    public static final String REPEATED_SLASHES_REGEX = "/{2,}";
+    public static final String RESPONSE_FILE_EXTENSION = ".response";
+
+    // DIMENSION CACHE
+    public static final String DIMENSION_CACHE_REPORT = "%s shared %d of %d filter list(s) and %d of %d dimension list(s) between domains.";
+}
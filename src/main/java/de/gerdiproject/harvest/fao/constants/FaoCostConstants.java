@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.constants;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class contains constants that are used for measuring
+ * the costs of harvesting each domain.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoCostConstants
+{
+    public static final String REPORT_FILE_NAME = "%s_costReport.json";
+    public static final String REPORT_WRITTEN = "Wrote the cost report of %d domain(s) of %s to '%s'.";
+    public static final String REPORT_FOLDER_NOT_WRITABLE = "Could not write the cost report of %s, because the folder '%s' is not writable!";
+
+    // REST
+    public static final String COSTS_PATH = "faostat/costs";
+}
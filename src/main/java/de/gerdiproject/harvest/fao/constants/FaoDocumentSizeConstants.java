@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.constants;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class contains constants that are used for limiting
+ * and measuring the sizes of documents.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoDocumentSizeConstants
+{
+    // the JSON field that is added to a document that has subjects
+    public static final int SUBJECT_LIST_OVERHEAD = "\"subjects\":[],".length();
+
+    public static final String SUBJECTS_TRIMMED = "Removed %d of %d subject(s) of document '%s' to stay within the size budget of %d bytes.";
+    public static final String SIZE_SUMMARY =
+        "%s transformed %d document(s) with %d bytes on average and at most %d bytes. "
+        + "Removed %d duplicate subject(s), and %d subject(s) of %d oversized document(s).";
+
+    // BATCHES
+    public static final String BATCH_THREAD_NAME = "FaoStatDocumentBatcher";
+    public static final int BATCH_QUEUE_CAPACITY = 100;
+}
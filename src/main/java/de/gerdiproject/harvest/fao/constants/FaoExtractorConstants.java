@@ -44,6 +44,38 @@ public class FaoExtractorConstants
     public static final String METADATA_URL = "%smetadata/%s/";
     public static final String DIMENSIONS_URL = "%sdimensions/%s/?full=true";
     public static final String SHOW_LIST_SUFFIX = "/?show_lists=true";
+    public static final String YEAR_DIMENSION_ID = "year";
+
+    public static final String SHARD_VERSION_PREFIX = "shard%d/%d_";
+    public static final String REQUEST_KEY_FORMAT = "%s %s";
+    public static final String SCHEDULER_THREAD_NAME = "FaoStatRequestScheduler";
+    public static final int OPEN_DOMAINS_PER_THREAD = 2;
+    public static final String VIRTUAL_EXECUTOR_METHOD = "newVirtualThreadPerTaskExecutor";
+    public static final long PLATFORM_THREAD_STACK_SIZE = 256L * 1024L;
+    public static final String VIRTUAL_THREADS_UNSUPPORTED = "Virtual threads require Java 21 or newer! Using platform threads instead.";
+    public static final String SCHEDULER_INTERRUPTED_ERROR = "Interrupted while waiting for the metadata of a domain!";
+    public static final String SCHEDULER_CANCELLED_ERROR = "The extraction was cancelled!";
+    public static final String SINGLE_SUBSCRIBER_ERROR = "The extraction can only be published to a single subscriber!";
+    public static final String INVALID_DEMAND_ERROR = "The requested number of elements must be positive, but was %d!";
+    public static final String HARVEST_ABORTED_ERROR = "The harvest was aborted!";
+    public static final String ABORT_HANDLER_FAILED = "Could not release resources of the aborted harvest!";
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+    public static final String ENDPOINT_TIMEOUT_SEPARATOR = "=";
+    public static final String INVALID_ENDPOINT_TIMEOUT = "Ignoring invalid endpoint timeout: %s";
+    public static final int NO_STATUS_CODE = -1;
+    public static final int READ_BUFFER_SIZE = 8192;
+    public static final String REQUEST_FAILED = "Request failed: %s";
+    public static final String REQUEST_TIMED_OUT = "Request exceeded its timeout of %d seconds: %s";
+    public static final String DEADLINE_EXCEEDED_ERROR = "Domain deadline exceeded before requesting: %s";
+    public static final String DOMAIN_DEFERRED = "Domain '%s' will be retried at the end of the harvest: %s";
+    public static final String DOMAIN_UNAVAILABLE = "Domain '%s' is skipped, because it could not be retrieved: %s";
+    public static final String MISSING_RESPONSE_ERROR = "Could not retrieve: %s";
+    public static final String DOMAIN_REFRESH_THREAD_NAME = "FaoDomainRefresh";
+    public static final String DOMAINS_REFRESHING = "Initialized %s from the stored domain list, refreshing it in the background.";
+    public static final String DOMAINS_REFRESHED = "Refreshed the domain list of %s.";
+    public static final String DOMAIN_REFRESH_FAILED = "Could not refresh the domain list of %s!";
+    public static final String NO_DOMAINS_ERROR = "Could not retrieve the domain list of %s!";
+    public static final String INVALID_SHARD_ERROR = "Invalid shard index %d! It must be at least 0 and less than the shard count %d.";
 
     public static final Type METADATA_RESPONSE_TYPE = new TypeToken<GenericFaoResponse<FaoMetadata>>() {} .getType();
     public static final Type FILTER_RESPONSE_TYPE = new TypeToken<GenericFaoResponse<FaoFilter>>() {} .getType();
@@ -0,0 +1,66 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.constants;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import com.google.gson.reflect.TypeToken;
+
+import de.gerdiproject.harvest.fao.utils.FaoLinkStatus;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class contains constants that are used for validating
+ * the links of harvested documents.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoLinkConstants
+{
+    // MODES
+    public static final String MODE_OFF = "off";
+    public static final String MODE_FLAG = "flag";
+    public static final String MODE_DROP = "drop";
+
+    // HTTP
+    public static final String HEAD_METHOD = "HEAD";
+    public static final String GET_METHOD = "GET";
+    public static final String RANGE_HEADER = "Range";
+    public static final String FIRST_BYTE_RANGE = "bytes=0-0";
+    public static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    public static final int CONNECT_TIMEOUT = 5000;
+    public static final int READ_TIMEOUT = 5000;
+    public static final int UNREACHABLE_STATUS = 0;
+    public static final int MIN_ALIVE_STATUS = 200;
+    public static final int MAX_ALIVE_STATUS = 399;
+
+    // CACHE
+    public static final Type LINK_STATUS_LIST_TYPE = new TypeToken<List<FaoLinkStatus>>() {} .getType();
+
+    // FLAGS
+    public static final String BROKEN_LINK_FLAG = "%s [broken link: %s]";
+    public static final String UNREACHABLE_FLAG = "unreachable";
+    public static final String HTTP_STATUS_FLAG = "HTTP %d";
+
+    // LOGGING
+    public static final String THREAD_NAME = "FaoLinkValidator";
+    public static final String BROKEN_LINK = "Broken link (%s): %s";
+    public static final String BUDGET_EXHAUSTED = "The time budget of the link validation is exhausted. Only cached link states are used for the rest of the harvest.";
+    public static final String INVALID_MODE = "Unknown link validation mode '%s'. Links are not validated.";
+}
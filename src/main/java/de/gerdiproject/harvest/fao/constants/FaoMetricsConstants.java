@@ -0,0 +1,35 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.constants;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class contains constants that are used for exposing
+ * metrics of harvests via JMX.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoMetricsConstants
+{
+    public static final String PROGRESS_MBEAN_NAME_FORMAT = "de.gerdiproject.harvest:type=FaoStatProgress,name=%s";
+    public static final String DOCUMENT_SIZE_MBEAN_NAME_FORMAT = "de.gerdiproject.harvest:type=FaoStatDocumentSize,name=%s";
+    public static final String RETRY_MBEAN_NAME_FORMAT = "de.gerdiproject.harvest:type=FaoStatRetries,name=%s";
+    public static final String MBEAN_REGISTRATION_FAILED = "Could not register the metrics '%s' of %s!";
+    public static final String MBEAN_UNREGISTRATION_FAILED = "Could not unregister the metrics '%s' of %s!";
+}
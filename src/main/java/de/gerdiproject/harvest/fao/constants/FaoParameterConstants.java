@@ -28,4 +28,130 @@ public class FaoParameterConstants
 {
     public static final String LANGUAGE_KEY = "language";
     public static final String LANGUAGE_DEFAULT = "en";
+
+    public static final String INCLUDED_DOMAINS_KEY = "includedDomains";
+    public static final String EXCLUDED_DOMAINS_KEY = "excludedDomains";
+    public static final String INCLUDED_GROUPS_KEY = "includedGroups";
+    public static final String EXCLUDED_GROUPS_KEY = "excludedGroups";
+    public static final String CODE_FILTER_DEFAULT = "";
+    public static final String CODE_FILTER_SEPARATOR = ",";
+
+    public static final String CHANGES_ONLY_KEY = "changesOnly";
+    public static final boolean CHANGES_ONLY_DEFAULT = false;
+
+    public static final String SHARD_INDEX_KEY = "shardIndex";
+    public static final int SHARD_INDEX_DEFAULT = 0;
+
+    public static final String SHARD_COUNT_KEY = "shardCount";
+    public static final int SHARD_COUNT_DEFAULT = 1;
+
+    public static final String RELEASE_SCHEDULER_KEY = "releaseScheduler";
+    public static final boolean RELEASE_SCHEDULER_DEFAULT = false;
+
+    public static final String RELEASE_POLL_INTERVAL_KEY = "releasePollIntervalMinutes";
+    public static final int RELEASE_POLL_INTERVAL_DEFAULT = 30;
+
+    public static final String IDLE_POLL_INTERVAL_KEY = "idlePollIntervalMinutes";
+    public static final int IDLE_POLL_INTERVAL_DEFAULT = 1440;
+
+    public static final String PROBE_BULK_DOWNLOADS_KEY = "probeBulkDownloads";
+    public static final boolean PROBE_BULK_DOWNLOADS_DEFAULT = false;
+
+    public static final String PROFILE_BULK_DOWNLOADS_KEY = "profileBulkDownloads";
+    public static final boolean PROFILE_BULK_DOWNLOADS_DEFAULT = false;
+
+    public static final String PROFILE_THREADS_KEY = "profileThreads";
+    public static final int PROFILE_THREADS_DEFAULT = 2;
+
+    public static final String PROFILE_MEMORY_KEY = "profileMemoryMegabytes";
+    public static final int PROFILE_MEMORY_DEFAULT = 64;
+
+    public static final String MIRROR_BULK_DOWNLOADS_KEY = "mirrorBulkDownloads";
+    public static final boolean MIRROR_BULK_DOWNLOADS_DEFAULT = false;
+
+    public static final String MIRROR_FOLDER_KEY = "mirrorFolder";
+    public static final String MIRROR_FOLDER_DEFAULT = "";
+
+    public static final String MIRROR_THREADS_KEY = "mirrorThreads";
+    public static final int MIRROR_THREADS_DEFAULT = 4;
+
+    public static final String MIRROR_BANDWIDTH_KEY = "mirrorBandwidthKilobytes";
+    public static final int MIRROR_BANDWIDTH_DEFAULT = 0;
+
+    public static final String LINK_VALIDATION_KEY = "linkValidation";
+    public static final String LINK_VALIDATION_DEFAULT = FaoLinkConstants.MODE_OFF;
+
+    public static final String LINK_THREADS_KEY = "linkValidationThreads";
+    public static final int LINK_THREADS_DEFAULT = 8;
+
+    public static final String LINK_REQUESTS_PER_SECOND_KEY = "linkRequestsPerSecond";
+    public static final int LINK_REQUESTS_PER_SECOND_DEFAULT = 10;
+
+    public static final String LINK_CACHE_HOURS_KEY = "linkCacheHours";
+    public static final int LINK_CACHE_HOURS_DEFAULT = 24;
+
+    public static final String LINK_DOCUMENT_TIMEOUT_KEY = "linkDocumentTimeoutMillis";
+    public static final int LINK_DOCUMENT_TIMEOUT_DEFAULT = 2000;
+
+    public static final String LINK_HARVEST_BUDGET_KEY = "linkHarvestBudgetSeconds";
+    public static final int LINK_HARVEST_BUDGET_DEFAULT = 60;
+
+    public static final String REQUEST_CONCURRENCY_KEY = "requestConcurrency";
+    public static final int REQUEST_CONCURRENCY_DEFAULT = 1;
+
+    public static final String VIRTUAL_THREADS_KEY = "virtualThreads";
+    public static final boolean VIRTUAL_THREADS_DEFAULT = false;
+
+    public static final String REQUEST_TIMEOUT_KEY = "requestTimeoutSeconds";
+    public static final int REQUEST_TIMEOUT_DEFAULT = 0;
+
+    public static final String ENDPOINT_TIMEOUTS_KEY = "endpointTimeouts";
+    public static final String ENDPOINT_TIMEOUTS_DEFAULT = "";
+
+    public static final String DOMAIN_DEADLINE_KEY = "domainDeadlineSeconds";
+    public static final int DOMAIN_DEADLINE_DEFAULT = 0;
+
+    public static final String REQUEST_RETRIES_KEY = "requestRetries";
+    public static final int REQUEST_RETRIES_DEFAULT = 0;
+
+    public static final String RETRY_BASE_DELAY_KEY = "retryBaseDelayMillis";
+    public static final int RETRY_BASE_DELAY_DEFAULT = 500;
+
+    public static final String RETRY_MAX_DELAY_KEY = "retryMaxDelayMillis";
+    public static final int RETRY_MAX_DELAY_DEFAULT = 30000;
+
+    public static final String CIRCUIT_FAILURE_THRESHOLD_KEY = "circuitFailureThreshold";
+    public static final int CIRCUIT_FAILURE_THRESHOLD_DEFAULT = 0;
+
+    public static final String CIRCUIT_OPEN_SECONDS_KEY = "circuitOpenSeconds";
+    public static final int CIRCUIT_OPEN_SECONDS_DEFAULT = 60;
+
+    public static final String STALE_WHILE_REVALIDATE_KEY = "staleWhileRevalidate";
+    public static final boolean STALE_WHILE_REVALIDATE_DEFAULT = false;
+
+    public static final String REVALIDATION_TIMEOUT_KEY = "revalidationTimeoutSeconds";
+    public static final int REVALIDATION_TIMEOUT_DEFAULT = 60;
+
+    public static final String ASYNC_INIT_KEY = "asyncInit";
+    public static final boolean ASYNC_INIT_DEFAULT = false;
+
+    public static final String COST_REPORT_KEY = "costReport";
+    public static final boolean COST_REPORT_DEFAULT = false;
+
+    public static final String COST_REPORT_FOLDER_KEY = "costReportFolder";
+    public static final String COST_REPORT_FOLDER_DEFAULT = "";
+
+    public static final String DOCUMENT_SIZE_BUDGET_KEY = "documentSizeBudgetKilobytes";
+    public static final int DOCUMENT_SIZE_BUDGET_DEFAULT = 0;
+
+    public static final String UNKNOWN_PARAMETER_ERROR = "Unknown parameter '%s' of %s!";
+
+    // GROUP ETLS
+    public static final String GROUP_SETS_KEY = "FAOSTAT_GROUP_SETS";
+    public static final String GROUP_SET_SEPARATOR = ";";
+    public static final String GROUP_CODE_SEPARATOR = ",";
+    public static final String ALL_GROUPS_WILDCARD = "*";
+    public static final String GROUP_ETL_NAME_FORMAT = "FaoStatETL_%s";
+    public static final String GROUP_ETL_NAME_SEPARATOR = "_";
+    public static final String GROUPS_UNKNOWN = "The FAOSTAT groups are not known yet! Creating a single ETL for all groups, which stores the groups for the next start of the harvester.";
 }
@@ -0,0 +1,45 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.constants;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+import com.google.gson.reflect.TypeToken;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class contains constants that are used for estimating
+ * the progress and remaining time of harvests.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoProgressConstants
+{
+    public static final String REQUEST_COUNT_FILE_NAME = "%s_%s_requestCounts.json";
+    public static final Type REQUEST_COUNT_MAP_TYPE = new TypeToken<Map<String, Integer>>() {} .getType();
+
+    // the documents, bulk downloads, metadata, and dimensions of a domain
+    public static final int FIXED_REQUESTS_PER_DOMAIN = 4;
+    public static final int DEFAULT_REQUESTS_PER_DOMAIN = 10;
+    public static final double LATENCY_SMOOTHING_FACTOR = 0.1;
+
+    // REST
+    public static final String PROGRESS_PATH = "faostat/progress";
+}
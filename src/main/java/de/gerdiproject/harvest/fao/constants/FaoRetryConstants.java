@@ -0,0 +1,49 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.constants;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class contains constants that are used for retrying failed
+ * FAOSTAT requests and for failing fast during FAOSTAT outages.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoRetryConstants
+{
+    // HTTP
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+    public static final String RETRY_AFTER_SECONDS_PATTERN = "\\d{1,9}";
+    public static final Set<Integer> RETRYABLE_STATUS_CODES = Collections.unmodifiableSet(
+                                                                  new HashSet<>(Arrays.asList(408, 429, 500, 502, 503, 504)));
+
+    // LOG
+    public static final String RETRYING = "Request failed (attempt %d of %d), retrying in %d ms: %s";
+    public static final String CIRCUIT_OPENED = "Requests of endpoint '%s' failed %d times in a row! Failing fast for %d seconds.";
+    public static final String CIRCUIT_CLOSED = "Requests of endpoint '%s' succeeded again.";
+    public static final String RETRY_SUMMARY = "Request resilience of %s: %d retries, %d circuits opened, %d requests rejected.";
+
+    // ERRORS
+    public static final String CIRCUIT_OPEN_ERROR = "Endpoint '%s' is unavailable, not requesting: %s";
+}
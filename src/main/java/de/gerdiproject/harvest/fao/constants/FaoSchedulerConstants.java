@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.constants;
+
+import java.time.format.DateTimeFormatter;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class contains constants that are used by the
+ * {@linkplain de.gerdiproject.harvest.fao.scheduler.FaoReleaseScheduler}.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoSchedulerConstants
+{
+    public static final long TICK_INTERVAL_SECONDS = 60;
+    public static final int RELEASE_LOOKBACK_DAYS = 7;
+    public static final int DATE_LENGTH = 10;
+    public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+    public static final String THREAD_NAME = "FaoReleaseScheduler";
+
+    public static final String HARVEST_STARTED = "Released FAOSTAT data detected! Harvesting domains %s with %s.";
+    public static final String HARVEST_FAILED = "Could not harvest released domains %s with %s!";
+    public static final String HARVEST_INCOMPLETE = "The harvest of released domains %s with %s was not completed! Retrying during a later poll.";
+    public static final String POLL_FAILED = "Could not poll FAOSTAT releases for %s!";
+}
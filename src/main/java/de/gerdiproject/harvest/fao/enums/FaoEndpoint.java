@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.enums;
+
+/**
+ * This enumeration represents the types of FAOSTAT API endpoints that are requested
+ * during a harvest. Each endpoint type can be given its own timeout budget.
+ *
+ * @author Robin Weiss
+ */
+public enum FaoEndpoint
+{
+    GROUPS_AND_DOMAINS("groupsanddomains"),
+    DOCUMENTS("documents"),
+    BULK_DOWNLOADS("bulkdownloads"),
+    METADATA("metadata"),
+    DIMENSIONS("dimensions"),
+    CODES("codes");
+
+    private final String key;
+
+
+    /**
+     * Constructor
+     *
+     * @param key a unique name of the endpoint type, which is the first segment of its URL path
+     */
+    FaoEndpoint(final String key)
+    {
+        this.key = key;
+    }
+
+
+    /**
+     * Retrieves the unique name of the endpoint type.
+     *
+     * @return the unique name of the endpoint type
+     */
+    public String getKey()
+    {
+        return key;
+    }
+
+
+    /**
+     * Retrieves the endpoint type of a key, ignoring the case.
+     *
+     * @param key the key of the endpoint type, e.g. "codes"
+     *
+     * @return the endpoint type, or null if there is no such type
+     */
+    public static FaoEndpoint fromKey(final String key)
+    {
+        for (final FaoEndpoint endpoint : values()) {
+            if (endpoint.key.equalsIgnoreCase(key))
+                return endpoint;
+        }
+
+        return null;
+    }
+}
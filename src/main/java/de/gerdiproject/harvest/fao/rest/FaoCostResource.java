@@ -0,0 +1,51 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.rest;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import de.gerdiproject.harvest.fao.constants.FaoCostConstants;
+import de.gerdiproject.harvest.fao.utils.FaoCostProfiler;
+
+/**
+ * This REST resource offers the cost reports of the last harvests of all FAOSTAT ETLs.
+ *
+ * @author Robin Weiss
+ */
+@Path(FaoCostConstants.COSTS_PATH)
+public class FaoCostResource
+{
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+
+    /**
+     * Retrieves the cost report of the last harvest of each ETL.
+     *
+     * @return a JSON array of cost reports
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getReports()
+    {
+        return gson.toJson(FaoCostProfiler.getReports());
+    }
+}
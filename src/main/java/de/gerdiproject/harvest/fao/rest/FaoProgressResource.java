@@ -0,0 +1,53 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.rest;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import de.gerdiproject.harvest.fao.constants.FaoProgressConstants;
+import de.gerdiproject.harvest.fao.utils.FaoProgressTracker;
+
+/**
+ * This REST resource offers the estimated progress and remaining time
+ * of the harvests of all FAOSTAT ETLs, and whether their domain lists
+ * are being refreshed in the background.
+ *
+ * @author Robin Weiss
+ */
+@Path(FaoProgressConstants.PROGRESS_PATH)
+public class FaoProgressResource
+{
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+
+    /**
+     * Retrieves the progress of the current or last harvest of each ETL.
+     *
+     * @return a JSON array of progress objects
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getProgress()
+    {
+        return gson.toJson(FaoProgressTracker.getAll());
+    }
+}
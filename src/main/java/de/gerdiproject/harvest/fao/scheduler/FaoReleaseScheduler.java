@@ -0,0 +1,300 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.scheduler;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.etls.FaoStatETL;
+import de.gerdiproject.harvest.etls.enums.ETLState;
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+import de.gerdiproject.harvest.fao.constants.FaoSchedulerConstants;
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+import de.gerdiproject.harvest.fao.json.GenericFaoResponse;
+import de.gerdiproject.harvest.fao.utils.FaoDomainSelector;
+import de.gerdiproject.harvest.fao.utils.FaoGroupCodeStore;
+import de.gerdiproject.harvest.utils.data.HttpRequester;
+
+/**
+ * This scheduler polls the FAOSTAT domain list and triggers harvests of domains
+ * that were updated since the last poll. The domain list is polled frequently
+ * while an announced release date ("release_next") has passed without the domain
+ * being updated, and rarely otherwise. Only {@linkplain FaoStatETL}s that have the
+ * release scheduler parameter enabled are observed, and only the domains that
+ * the ETLs harvest according to their groups, shards, and domain filters.
+ *
+ * @author Robin Weiss
+ */
+public class FaoReleaseScheduler
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoReleaseScheduler.class);
+
+    private final List<FaoStatETL> etls = new CopyOnWriteArrayList<>();
+    private final Map<FaoStatETL, ReleaseWatch> watches = new HashMap<>();
+    private final HttpRequester httpRequester = new HttpRequester();
+    private ScheduledExecutorService pollExecutor;
+    private ExecutorService harvestExecutor;
+
+
+    /**
+     * Replaces the ETLs that are observed by the scheduler.
+     *
+     * @param observedEtls the ETLs that may be harvested by the scheduler
+     */
+    public void setETLs(final Collection<FaoStatETL> observedEtls)
+    {
+        etls.clear();
+        etls.addAll(observedEtls);
+    }
+
+
+    /**
+     * Starts polling the FAOSTAT domain list periodically.
+     */
+    public synchronized void start()
+    {
+        if (pollExecutor != null)
+            return;
+
+        this.pollExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, FaoSchedulerConstants.THREAD_NAME);
+            t.setDaemon(true);
+            return t;
+        });
+        this.harvestExecutor = Executors.newSingleThreadExecutor(r -> {
+            final Thread t = new Thread(r, FaoSchedulerConstants.THREAD_NAME);
+            t.setDaemon(true);
+            return t;
+        });
+        pollExecutor.scheduleWithFixedDelay(
+            this::tick,
+            FaoSchedulerConstants.TICK_INTERVAL_SECONDS,
+            FaoSchedulerConstants.TICK_INTERVAL_SECONDS,
+            TimeUnit.SECONDS);
+    }
+
+
+    /**
+     * Stops polling and cancels pending harvests.
+     */
+    public synchronized void stop()
+    {
+        if (pollExecutor == null)
+            return;
+
+        pollExecutor.shutdownNow();
+        harvestExecutor.shutdownNow();
+        this.pollExecutor = null;
+        this.harvestExecutor = null;
+    }
+
+
+    /**
+     * Polls the domain lists of all enabled ETLs if their poll interval has passed,
+     * and harvests all domains of which updates are pending.
+     */
+    private void tick()
+    {
+        final long now = System.currentTimeMillis();
+
+        for (final FaoStatETL etl : etls) {
+            try {
+                if (!etl.isReleaseSchedulerEnabled())
+                    continue;
+
+                final ReleaseWatch watch = watches.computeIfAbsent(etl, e -> new ReleaseWatch());
+
+                if (now >= watch.nextPollTime)
+                    poll(etl, watch, now);
+
+                // busy ETLs are harvested during a later tick
+                if (!watch.pendingDomains.isEmpty()
+                    && isIdle(etl.getState())
+                    && watch.isHarvesting.compareAndSet(false, true))
+                    harvest(etl, watch);
+
+            } catch (final RuntimeException e) {
+                LOGGER.warn(String.format(FaoSchedulerConstants.POLL_FAILED, etl.getName()), e);
+            }
+        }
+    }
+
+
+    /**
+     * Checks if an ETL can start a harvest, because it is neither harvesting
+     * nor initializing, queued, or aborting.
+     *
+     * @param state the current state of the ETL
+     *
+     * @return true if the ETL is idle
+     */
+    private static boolean isIdle(final ETLState state)
+    {
+        return state == ETLState.IDLE || state == ETLState.DONE;
+    }
+
+
+    /**
+     * Retrieves the domain list of an ETL, marks all domains that were updated since the
+     * last poll as pending, and determines when the domain list is to be polled next.
+     * The group codes of all domains are stored for the creation of per-group ETLs.
+     *
+     * @param etl the ETL of which the domains are polled
+     * @param watch the release state of the ETL
+     * @param now the current time in milliseconds
+     */
+    private void poll(final FaoStatETL etl, final ReleaseWatch watch, final long now)
+    {
+        final String url = String.format(FaoExtractorConstants.BASE_URL, etl.getLanguage())
+                           + FaoExtractorConstants.GROUPS_AND_DOMAINS_URL;
+        final GenericFaoResponse<FaoDomain> domainsResponse =
+            httpRequester.getObjectFromUrl(url, FaoExtractorConstants.DOMAIN_RESPONSE_TYPE);
+
+        new FaoGroupCodeStore(etl.getCharset()).save(domainsResponse.getData());
+
+        final FaoDomainSelector domainSelector = etl.createDomainSelector();
+        final LocalDate today = LocalDate.now();
+        boolean isReleaseDue = false;
+
+        for (final FaoDomain d : domainsResponse.getData()) {
+            // only observe the domains that are harvested by the ETL
+            if (!domainSelector.accepts(d))
+                continue;
+
+            final String previousUpdate = watch.dateUpdates.put(d.getDomainCode(), String.valueOf(d.getDateUpdate()));
+
+            // the first poll only memorizes the current state
+            if (watch.isInitialized && !Objects.equals(previousUpdate, String.valueOf(d.getDateUpdate())))
+                watch.pendingDomains.add(d.getDomainCode());
+
+            isReleaseDue |= isReleaseDue(d, today);
+        }
+
+        watch.isInitialized = true;
+
+        final int pollInterval = isReleaseDue ? etl.getReleasePollInterval() : etl.getIdlePollInterval();
+        watch.nextPollTime = now + TimeUnit.MINUTES.toMillis(pollInterval);
+    }
+
+
+    /**
+     * Checks if the next announced release of a domain has passed recently,
+     * but the domain has not been updated since.
+     *
+     * @param domain the domain that is to be checked
+     * @param today the current date
+     *
+     * @return true if the domain is expected to be updated soon
+     */
+    private boolean isReleaseDue(final FaoDomain domain, final LocalDate today)
+    {
+        final LocalDate releaseDate = parseDate(domain.getReleaseNext());
+
+        if (releaseDate == null
+            || releaseDate.isAfter(today)
+            || releaseDate.plusDays(FaoSchedulerConstants.RELEASE_LOOKBACK_DAYS).isBefore(today))
+            return false;
+
+        final LocalDate updateDate = parseDate(domain.getDateUpdate());
+        return updateDate == null || updateDate.isBefore(releaseDate);
+    }
+
+
+    /**
+     * Parses the date portion of a FAOSTAT date string.
+     *
+     * @param dateString a string that starts with a date, e.g. "2019-03-21"
+     *
+     * @return the parsed date, or null if the string could not be parsed
+     */
+    private LocalDate parseDate(final String dateString)
+    {
+        if (dateString == null || dateString.length() < FaoSchedulerConstants.DATE_LENGTH)
+            return null;
+
+        try {
+            return LocalDate.parse(
+                       dateString.substring(0, FaoSchedulerConstants.DATE_LENGTH),
+                       FaoSchedulerConstants.DATE_FORMAT);
+        } catch (final DateTimeParseException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Harvests all pending domains of an ETL asynchronously. Unless the harvest
+     * is completed, the domains remain pending and are harvested again during a
+     * later tick. This includes harvests that fail, are aborted, or are refused,
+     * because another harvest was started in the meantime.
+     *
+     * @param etl the ETL that is to harvest the domains
+     * @param watch the release state of the ETL
+     */
+    private void harvest(final FaoStatETL etl, final ReleaseWatch watch)
+    {
+        final Set<String> domainCodes = new HashSet<>(watch.pendingDomains);
+        watch.pendingDomains.removeAll(domainCodes);
+
+        harvestExecutor.execute(() -> {
+            LOGGER.info(String.format(FaoSchedulerConstants.HARVEST_STARTED, domainCodes, etl.getName()));
+
+            try {
+                if (!etl.harvestDomains(domainCodes)) {
+                    LOGGER.warn(String.format(FaoSchedulerConstants.HARVEST_INCOMPLETE, domainCodes, etl.getName()));
+                    watch.pendingDomains.addAll(domainCodes);
+                }
+            } catch (final Exception e) {
+                LOGGER.warn(String.format(FaoSchedulerConstants.HARVEST_FAILED, domainCodes, etl.getName()), e);
+                watch.pendingDomains.addAll(domainCodes);
+            } finally {
+                watch.isHarvesting.set(false);
+            }
+        });
+    }
+
+
+    /**
+     * This class holds the release state of the domains of a single ETL.
+     *
+     * @author Robin Weiss
+     */
+    private static class ReleaseWatch
+    {
+        private final Map<String, String> dateUpdates = new HashMap<>();
+        private final Set<String> pendingDomains = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean isHarvesting = new AtomicBoolean(false);
+        private boolean isInitialized;
+        private long nextPollTime;
+    }
+}
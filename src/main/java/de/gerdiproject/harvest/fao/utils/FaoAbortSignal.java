@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+
+/**
+ * This class signals the abortion of a harvest to all components of an ETL.
+ * Long running operations poll the signal between requests, while components
+ * that own threads or connections register handlers that release them
+ * as soon as the harvest is aborted.
+ *
+ * @author Robin Weiss
+ */
+public class FaoAbortSignal
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoAbortSignal.class);
+
+    private final Set<Runnable> abortHandlers = new CopyOnWriteArraySet<>();
+    private final Object abortLock = new Object();
+    private volatile boolean isAborted;
+
+
+    /**
+     * Registers a handler that is called when the harvest is aborted.
+     * Registering the same handler multiple times has no effect.
+     *
+     * @param abortHandler the handler that is to be called
+     */
+    public void addAbortHandler(final Runnable abortHandler)
+    {
+        abortHandlers.add(abortHandler);
+    }
+
+
+    /**
+     * Marks the harvest as aborted and calls all registered handlers.
+     */
+    public void abort()
+    {
+        if (isAborted)
+            return;
+
+        synchronized (abortLock) {
+            isAborted = true;
+            abortLock.notifyAll();
+        }
+
+        for (final Runnable handler : abortHandlers) {
+            try {
+                handler.run();
+            } catch (final RuntimeException e) {
+                LOGGER.warn(FaoExtractorConstants.ABORT_HANDLER_FAILED, e);
+            }
+        }
+    }
+
+
+    /**
+     * Resets the signal at the beginning of a new harvest.
+     */
+    public void reset()
+    {
+        isAborted = false;
+    }
+
+
+    /**
+     * Checks if the harvest was aborted.
+     *
+     * @return true if the harvest was aborted
+     */
+    public boolean isAborted()
+    {
+        return isAborted;
+    }
+
+
+    /**
+     * Waits until the harvest is aborted or until the specified time has passed.
+     * This is used instead of sleeping, so that an aborted harvest is not delayed.
+     *
+     * @param millis the maximum number of milliseconds to wait
+     *
+     * @throws CancellationException if the harvest was aborted, or if the thread
+     *         was interrupted while waiting
+     */
+    public void await(final long millis)
+    {
+        final long endNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+
+        synchronized (abortLock) {
+            try {
+                long remainingMillis = millis;
+
+                while (!isAborted && remainingMillis > 0) {
+                    abortLock.wait(remainingMillis);
+                    remainingMillis = TimeUnit.NANOSECONDS.toMillis(endNanos - System.nanoTime());
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException(FaoExtractorConstants.HARVEST_ABORTED_ERROR);
+            }
+        }
+
+        throwIfAborted();
+    }
+
+
+    /**
+     * Stops the current operation if the harvest was aborted.
+     *
+     * @throws CancellationException if the harvest was aborted
+     */
+    public void throwIfAborted()
+    {
+        if (isAborted)
+            throw new CancellationException(FaoExtractorConstants.HARVEST_ABORTED_ERROR);
+    }
+}
@@ -0,0 +1,508 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.fao.constants.FaoBulkDownloadConstants;
+import de.gerdiproject.harvest.fao.constants.FaoRetryConstants;
+import de.gerdiproject.harvest.fao.json.FaoBulkDownload;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.json.GsonUtils;
+
+/**
+ * This class mirrors {@linkplain FaoBulkDownload} archives to a local folder in the background.
+ * Each archive is split into chunks that are downloaded in parallel via HTTP range requests.
+ * Completed chunks are persisted every few chunks and when a download fails or is interrupted,
+ * so interrupted downloads are resumed rather than restarted.
+ * Archives whose creation date and file size did not change since they were last mirrored are
+ * skipped, and every completed archive is verified by checking the CRCs of all its entries.
+ * Requests that fail with a transient HTTP status are retried, honoring the Retry-After header.
+ *
+ * @author Robin Weiss
+ */
+public class FaoBulkDownloadMirror
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoBulkDownloadMirror.class);
+
+    private final File folder;
+    private final FaoRateLimiter bandwidthLimiter;
+    private final FaoRetryPolicy retryPolicy;
+    private final ExecutorService fileExecutor;
+    private final ExecutorService chunkExecutor;
+    private final Set<String> queuedFiles = ConcurrentHashMap.newKeySet();
+    private final DiskIO diskIO = new DiskIO(GsonUtils.createGerdiDocumentGsonBuilder().create(), StandardCharsets.UTF_8);
+
+
+    /**
+     * Constructor
+     *
+     * @param folder the folder to which the archives are mirrored
+     * @param chunkThreads the number of chunks that are downloaded in parallel
+     * @param maxBytesPerSecond the maximum download rate of all threads combined,
+     *         or zero for an unlimited rate
+     * @param retryPolicy defines how often and when failed requests are retried
+     */
+    public FaoBulkDownloadMirror(final File folder, final int chunkThreads, final long maxBytesPerSecond, final FaoRetryPolicy retryPolicy)
+    {
+        this.folder = folder;
+        this.bandwidthLimiter = new FaoRateLimiter(maxBytesPerSecond);
+        this.retryPolicy = retryPolicy;
+        this.fileExecutor = Executors.newSingleThreadExecutor(r -> {
+            final Thread t = new Thread(r, FaoBulkDownloadConstants.MIRROR_THREAD_NAME);
+            t.setDaemon(true);
+            return t;
+        });
+        this.chunkExecutor = Executors.newFixedThreadPool(Math.max(1, chunkThreads), r -> {
+            final Thread t = new Thread(r, FaoBulkDownloadConstants.MIRROR_THREAD_NAME);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+
+    /**
+     * Queues a bulk download to be mirrored in the background, unless it is already queued.
+     *
+     * @param bulkDownload the bulk download that is to be mirrored
+     */
+    public void submit(final FaoBulkDownload bulkDownload)
+    {
+        final File target = getTargetFile(bulkDownload);
+
+        if (!queuedFiles.add(target.getPath()))
+            return;
+
+        fileExecutor.execute(() -> {
+            try {
+                mirror(bulkDownload, target);
+
+            } catch (final IOException e) {
+                LOGGER.warn(String.format(FaoBulkDownloadConstants.MIRROR_FAILED, bulkDownload.getUrl()), e);
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+            } finally {
+                queuedFiles.remove(target.getPath());
+            }
+        });
+    }
+
+
+    /**
+     * Stops all downloads. Completed chunks are kept, so the downloads can be resumed later.
+     */
+    public void shutdown()
+    {
+        fileExecutor.shutdownNow();
+        chunkExecutor.shutdownNow();
+    }
+
+
+    /**
+     * Retrieves the local file to which a bulk download is mirrored.
+     *
+     * @param bulkDownload the bulk download that is to be mirrored
+     *
+     * @return the local file of the bulk download
+     */
+    private File getTargetFile(final FaoBulkDownload bulkDownload)
+    {
+        final File domainFolder = new File(folder, bulkDownload.getDomainCode());
+        return new File(domainFolder, new File(bulkDownload.getFileName()).getName());
+    }
+
+
+    /**
+     * Downloads and verifies a bulk download, unless it was mirrored before and did not change.
+     *
+     * @param bulkDownload the bulk download that is to be mirrored
+     * @param target the local file of the bulk download
+     *
+     * @throws IOException if the archive could not be downloaded or is corrupt
+     * @throws InterruptedException if the download was interrupted
+     */
+    private void mirror(final FaoBulkDownload bulkDownload, final File target) throws IOException, InterruptedException
+    {
+        final File stateFile = new File(target.getPath() + FaoBulkDownloadConstants.STATE_FILE_SUFFIX);
+        final File partFile = new File(target.getPath() + FaoBulkDownloadConstants.PART_FILE_SUFFIX);
+        final File progressFile = new File(partFile.getPath() + FaoBulkDownloadConstants.STATE_FILE_SUFFIX);
+
+        if (target.exists() && isSameVersion(stateFile, bulkDownload)) {
+            LOGGER.info(String.format(FaoBulkDownloadConstants.MIRROR_SKIPPED, bulkDownload.getUrl()));
+            return;
+        }
+
+        LOGGER.info(String.format(FaoBulkDownloadConstants.MIRROR_STARTED, bulkDownload.getUrl()));
+        Files.createDirectories(target.getParentFile().toPath());
+
+        final long contentLength = getRangeableContentLength(bulkDownload.getUrl());
+
+        if (contentLength > 0)
+            downloadChunks(bulkDownload, partFile, progressFile, contentLength);
+        else
+            downloadStream(bulkDownload.getUrl(), partFile);
+
+        try {
+            verify(partFile);
+        } catch (final IOException e) {
+            // corrupt downloads cannot be resumed
+            Files.deleteIfExists(partFile.toPath());
+            Files.deleteIfExists(progressFile.toPath());
+            throw e;
+        }
+
+        Files.move(partFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        diskIO.writeObjectToFile(stateFile, new FaoMirrorState(
+                                     bulkDownload.getCreatedDate(),
+                                     bulkDownload.getFileSize(),
+                                     target.length(),
+                                     Collections.emptyList()));
+        Files.deleteIfExists(progressFile.toPath());
+
+        LOGGER.info(String.format(FaoBulkDownloadConstants.MIRROR_DONE, target));
+    }
+
+
+    /**
+     * Checks if a persisted state file refers to the same remote version of a bulk download.
+     *
+     * @param stateFile the file that holds the persisted state
+     * @param bulkDownload the bulk download that is to be compared
+     *
+     * @return true if the state file exists and matches the bulk download
+     */
+    private boolean isSameVersion(final File stateFile, final FaoBulkDownload bulkDownload)
+    {
+        if (!stateFile.exists())
+            return false;
+
+        final FaoMirrorState state = diskIO.getObject(stateFile, FaoMirrorState.class);
+        return state != null && state.isSameVersion(bulkDownload);
+    }
+
+
+    /**
+     * Retrieves the size of a remote file, if the server supports range requests.
+     *
+     * @param url the URL of the remote file
+     *
+     * @throws IOException if the request failed
+     *
+     * @return the size of the file in bytes, or -1 if range requests are not supported
+     */
+    private long getRangeableContentLength(final String url) throws IOException
+    {
+        final HttpURLConnection connection = openConnection(url);
+        connection.setRequestMethod(FaoBulkDownloadConstants.HEAD_METHOD);
+
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK)
+                return -1;
+
+            final String acceptRanges = connection.getHeaderField(FaoBulkDownloadConstants.ACCEPT_RANGES_HEADER);
+
+            return FaoBulkDownloadConstants.ACCEPT_RANGES_BYTES.equalsIgnoreCase(acceptRanges)
+                   ? connection.getContentLengthLong()
+                   : -1;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+
+    /**
+     * Downloads all missing chunks of a file in parallel, resuming a previous download
+     * of the same remote version.
+     *
+     * @param bulkDownload the bulk download that is to be mirrored
+     * @param partFile the file to which the chunks are written
+     * @param progressFile the file in which the completed chunks are persisted
+     * @param contentLength the size of the remote file in bytes
+     *
+     * @throws IOException if a chunk could not be downloaded
+     * @throws InterruptedException if the download was interrupted
+     */
+    private void downloadChunks(final FaoBulkDownload bulkDownload, final File partFile, final File progressFile, final long contentLength)
+    throws IOException, InterruptedException
+    {
+        final int chunkCount = (int)((contentLength + FaoBulkDownloadConstants.MIRROR_CHUNK_SIZE - 1) / FaoBulkDownloadConstants.MIRROR_CHUNK_SIZE);
+        final Set<Integer> completedChunks = ConcurrentHashMap.newKeySet();
+        final AtomicInteger unsavedChunks = new AtomicInteger();
+
+        // resume the download if it refers to the same remote file
+        if (partFile.exists() && partFile.length() == contentLength && progressFile.exists()) {
+            final FaoMirrorState progress = diskIO.getObject(progressFile, FaoMirrorState.class);
+
+            if (progress != null && progress.isSameVersion(bulkDownload) && progress.getContentLength() == contentLength)
+                completedChunks.addAll(progress.getCompletedChunks());
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(partFile, "rw")) {
+            file.setLength(contentLength);
+            final FileChannel channel = file.getChannel();
+            final List<Future<?>> futures = new LinkedList<>();
+
+            for (int i = 0; i < chunkCount; i++) {
+                if (completedChunks.contains(i))
+                    continue;
+
+                final int chunkIndex = i;
+                futures.add(chunkExecutor.submit(() -> {
+                    downloadChunk(bulkDownload.getUrl(), channel, chunkIndex, contentLength);
+                    completedChunks.add(chunkIndex);
+
+                    if (unsavedChunks.incrementAndGet() % FaoBulkDownloadConstants.MIRROR_PROGRESS_SAVE_INTERVAL == 0)
+                        saveProgress(progressFile, bulkDownload, contentLength, completedChunks);
+
+                    return null;
+                }));
+            }
+
+            try {
+                for (final Future<?> f : futures)
+                    f.get();
+
+            } catch (final ExecutionException e) {
+                for (final Future<?> f : futures)
+                    f.cancel(true);
+
+                saveProgress(progressFile, bulkDownload, contentLength, completedChunks);
+                throw e.getCause() instanceof IOException
+                ? (IOException) e.getCause()
+                : new IOException(e.getCause());
+
+            } catch (final InterruptedException e) {
+                for (final Future<?> f : futures)
+                    f.cancel(true);
+
+                saveProgress(progressFile, bulkDownload, contentLength, completedChunks);
+                throw e;
+            }
+        }
+    }
+
+
+    /**
+     * Downloads a single chunk of a file and writes it to its position in a local file.
+     *
+     * @param url the URL of the remote file
+     * @param channel the channel of the local file
+     * @param chunkIndex the index of the chunk
+     * @param contentLength the size of the remote file in bytes
+     *
+     * @throws IOException if the chunk could not be downloaded
+     * @throws InterruptedException if the download was interrupted
+     */
+    private void downloadChunk(final String url, final FileChannel channel, final int chunkIndex, final long contentLength)
+    throws IOException, InterruptedException
+    {
+        final long start = chunkIndex * FaoBulkDownloadConstants.MIRROR_CHUNK_SIZE;
+        final long end = Math.min(start + FaoBulkDownloadConstants.MIRROR_CHUNK_SIZE, contentLength) - 1;
+
+        final HttpURLConnection connection = connect(
+                                                 url,
+                                                 String.format(FaoBulkDownloadConstants.BYTE_RANGE, start, end),
+                                                 HttpURLConnection.HTTP_PARTIAL);
+
+        try {
+            long position = start;
+
+            try (InputStream input = connection.getInputStream()) {
+                final byte[] buffer = new byte[FaoBulkDownloadConstants.STREAM_BUFFER_SIZE];
+                int readBytes;
+
+                while (position <= end && (readBytes = input.read(buffer)) != -1) {
+                    bandwidthLimiter.acquire(readBytes);
+                    final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, readBytes);
+
+                    while (byteBuffer.hasRemaining())
+                        position += channel.write(byteBuffer, position);
+                }
+            }
+
+            if (position != end + 1)
+                throw new IOException(String.format(FaoBulkDownloadConstants.INCOMPLETE_CHUNK_ERROR, position - start, end - start + 1, start, end, url));
+
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+
+    /**
+     * Persists the chunks that were downloaded completely.
+     *
+     * @param progressFile the file in which the completed chunks are persisted
+     * @param bulkDownload the bulk download that is being mirrored
+     * @param contentLength the size of the remote file in bytes
+     * @param completedChunks the indices of all completed chunks
+     */
+    private synchronized void saveProgress(final File progressFile, final FaoBulkDownload bulkDownload, final long contentLength, final Set<Integer> completedChunks)
+    {
+        diskIO.writeObjectToFile(progressFile, new FaoMirrorState(
+                                     bulkDownload.getCreatedDate(),
+                                     bulkDownload.getFileSize(),
+                                     contentLength,
+                                     new ArrayList<>(completedChunks)));
+    }
+
+
+    /**
+     * Downloads a file in a single stream, if the server does not support range requests.
+     *
+     * @param url the URL of the remote file
+     * @param partFile the file to which the content is written
+     *
+     * @throws IOException if the file could not be downloaded
+     * @throws InterruptedException if the download was interrupted
+     */
+    private void downloadStream(final String url, final File partFile) throws IOException, InterruptedException
+    {
+        final HttpURLConnection connection = connect(url, null, HttpURLConnection.HTTP_OK);
+
+        try {
+            final long expectedLength = connection.getContentLengthLong();
+
+            try (InputStream input = connection.getInputStream();
+                    OutputStream output = new FileOutputStream(partFile)) {
+                final byte[] buffer = new byte[FaoBulkDownloadConstants.STREAM_BUFFER_SIZE];
+                int readBytes;
+
+                while ((readBytes = input.read(buffer)) != -1) {
+                    bandwidthLimiter.acquire(readBytes);
+                    output.write(buffer, 0, readBytes);
+                }
+            }
+
+            if (expectedLength >= 0 && partFile.length() != expectedLength)
+                throw new IOException(String.format(FaoBulkDownloadConstants.INCOMPLETE_FILE_ERROR, expectedLength, partFile.length(), url));
+
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+
+    /**
+     * Verifies the integrity of a ZIP archive by reading all of its entries,
+     * which checks their sizes and CRCs.
+     *
+     * @param zipFile the archive that is to be verified
+     *
+     * @throws IOException if the archive is corrupt
+     */
+    private void verify(final File zipFile) throws IOException
+    {
+        final byte[] buffer = new byte[FaoBulkDownloadConstants.STREAM_BUFFER_SIZE];
+
+        try (ZipInputStream zip = new ZipInputStream(new FileInputStream(zipFile))) {
+            while (zip.getNextEntry() != null) {
+                while (zip.read(buffer) != -1) {
+                    // the CRC is checked when the end of the entry is reached
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Sends a GET request and retries it while it fails with a transient HTTP status.
+     *
+     * @param url the URL that is to be requested
+     * @param byteRange the value of the Range header, or null if the whole file is requested
+     * @param expectedStatus the HTTP status code of a successful response
+     *
+     * @throws IOException if the request failed permanently
+     * @throws InterruptedException if the thread was interrupted while waiting for a retry
+     *
+     * @return a connection that received a successful response
+     */
+    private HttpURLConnection connect(final String url, final String byteRange, final int expectedStatus)
+    throws IOException, InterruptedException
+    {
+        final int maxAttempts = Math.max(1, retryPolicy.getMaxAttempts());
+
+        for (int attempt = 1; ; attempt++) {
+            final HttpURLConnection connection = openConnection(url);
+
+            if (byteRange != null)
+                connection.setRequestProperty(FaoBulkDownloadConstants.RANGE_HEADER, byteRange);
+
+            final int status = connection.getResponseCode();
+
+            if (status == expectedStatus)
+                return connection;
+
+            final long retryAfter = FaoRetryPolicy.getRetryAfterMillis(connection);
+            connection.disconnect();
+
+            if (!FaoRetryPolicy.isRetryable(status) || attempt >= maxAttempts)
+                throw new IOException(String.format(FaoBulkDownloadConstants.INVALID_RESPONSE_ERROR, status, url));
+
+            final long delay = retryPolicy.getDelayMillis(attempt, retryAfter);
+            LOGGER.warn(String.format(FaoRetryConstants.RETRYING, attempt, maxAttempts, delay, url));
+            Thread.sleep(delay);
+        }
+    }
+
+
+    /**
+     * Opens an HTTP connection with the timeouts of bulk downloads.
+     *
+     * @param url the URL that is to be requested
+     *
+     * @throws IOException if the connection could not be opened
+     *
+     * @return an unconnected HTTP connection
+     */
+    private HttpURLConnection openConnection(final String url) throws IOException
+    {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(FaoBulkDownloadConstants.CONNECT_TIMEOUT);
+        connection.setReadTimeout(FaoBulkDownloadConstants.READ_TIMEOUT);
+        return connection;
+    }
+}
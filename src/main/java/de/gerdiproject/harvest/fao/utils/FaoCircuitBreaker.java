@@ -0,0 +1,139 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class counts consecutive failures of requests of a single endpoint type.
+ * When a threshold is reached, the circuit opens and rejects all requests for a while,
+ * so that an unavailable endpoint is not flooded with requests that are bound to fail.
+ * Afterwards, a single trial request is let through. If it succeeds, the circuit closes,
+ * otherwise it stays open for another while. If the trial request is given up before
+ * it yields a response, the next request becomes the trial request.
+ *
+ * @author Robin Weiss
+ */
+public class FaoCircuitBreaker
+{
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private int consecutiveFailures;
+    private boolean isOpen;
+    private boolean isTrialPending;
+    private long openedNanos;
+
+
+    /**
+     * Constructor
+     *
+     * @param failureThreshold the number of consecutive failures that open the circuit,
+     *         or zero if the circuit never opens
+     * @param openSeconds the number of seconds that the circuit stays open
+     */
+    public FaoCircuitBreaker(final int failureThreshold, final long openSeconds)
+    {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.SECONDS.toNanos(openSeconds);
+    }
+
+
+    /**
+     * Checks if a request may be sent. If the circuit has been open long enough,
+     * a single trial request is allowed.
+     *
+     * @return true if the request may be sent
+     */
+    public synchronized boolean allowRequest()
+    {
+        if (!isOpen)
+            return true;
+
+        if (isTrialPending || System.nanoTime() - openedNanos < openNanos)
+            return false;
+
+        isTrialPending = true;
+        return true;
+    }
+
+
+    /**
+     * Checks if requests are currently rejected.
+     *
+     * @return true if the circuit is open
+     */
+    public synchronized boolean isOpen()
+    {
+        return isOpen;
+    }
+
+
+    /**
+     * Resets the failure count and closes the circuit.
+     *
+     * @return true if the circuit was open before
+     */
+    public synchronized boolean onSuccess()
+    {
+        final boolean wasOpen = isOpen;
+        consecutiveFailures = 0;
+        isOpen = false;
+        isTrialPending = false;
+        return wasOpen;
+    }
+
+
+    /**
+     * Releases the trial request without changing the state of the circuit.
+     * This is called if a request was given up before it yielded a response,
+     * for instance because the harvest was aborted, so that it neither closes
+     * the circuit nor keeps it from ever letting through another trial request.
+     */
+    public synchronized void onAbandoned()
+    {
+        isTrialPending = false;
+    }
+
+
+    /**
+     * Counts a failed request and opens the circuit if the threshold is reached
+     * or if the trial request failed.
+     *
+     * @return true if the circuit was opened by this failure
+     */
+    public synchronized boolean onFailure()
+    {
+        if (failureThreshold <= 0)
+            return false;
+
+        consecutiveFailures++;
+
+        if (isOpen) {
+            // the trial request failed
+            openedNanos = System.nanoTime();
+            isTrialPending = false;
+            return false;
+        }
+
+        if (consecutiveFailures < failureThreshold)
+            return false;
+
+        isOpen = true;
+        openedNanos = System.nanoTime();
+        return true;
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+import de.gerdiproject.harvest.fao.constants.FaoCostConstants;
+import de.gerdiproject.harvest.fao.enums.FaoEndpoint;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.json.GsonUtils;
+
+/**
+ * This class measures the requests and transformations of each domain of a harvest
+ * and creates a report of the most expensive domains after the harvest.
+ * The sizes of responses and documents are the sizes of their JSON representations.<br>
+ * The last report of each ETL is available via {@linkplain #getReports()}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoCostProfiler
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoCostProfiler.class);
+    private static final Map<String, FaoCostReport> REPORTS = new ConcurrentHashMap<>();
+
+    private final Gson gson = GsonUtils.createGerdiDocumentGsonBuilder().create();
+    private final Map<String, DomainCosts> domainCosts = new ConcurrentHashMap<>();
+    private volatile String etlName;
+    private volatile Instant startDate;
+
+
+    /**
+     * Retrieves the last cost report of each ETL that was harvested since the service started.
+     *
+     * @return a list of cost reports
+     */
+    public static List<FaoCostReport> getReports()
+    {
+        return new LinkedList<>(REPORTS.values());
+    }
+
+
+    /**
+     * Discards the measurements of the previous harvest and starts measuring a new one.
+     *
+     * @param name the name of the ETL that harvests
+     */
+    public void start(final String name)
+    {
+        this.etlName = name;
+        this.startDate = Instant.now();
+        domainCosts.clear();
+    }
+
+
+    /**
+     * Records a request that was sent for a domain.
+     *
+     * @param domainCode the code of the domain to which the request belongs
+     * @param endpoint the endpoint type of the request
+     * @param durationNanos the duration of the request in nanoseconds
+     * @param responseBytes the size of the response in bytes, or zero if the request failed
+     */
+    public void onRequest(final String domainCode, final FaoEndpoint endpoint, final long durationNanos, final long responseBytes)
+    {
+        domainCosts.computeIfAbsent(domainCode, DomainCosts::new).addRequest(endpoint, durationNanos, responseBytes);
+    }
+
+
+    /**
+     * Records the transformation of a domain to a document.
+     *
+     * @param domainCode the code of the transformed domain
+     * @param durationNanos the duration of the transformation in nanoseconds
+     * @param document the transformed document, or null if it was skipped
+     */
+    public void onTransform(final String domainCode, final long durationNanos, final Object document)
+    {
+        final long documentBytes = document == null ? 0 : FaoJsonSize.measure(gson, document);
+        domainCosts.computeIfAbsent(domainCode, DomainCosts::new).addTransformation(durationNanos, documentBytes);
+    }
+
+
+    /**
+     * Creates a report of the measurements of the current harvest, offers it via
+     * {@linkplain #getReports()}, and writes it to a JSON file if the report folder is writable.
+     *
+     * @param reportFolder the folder to which the report is written
+     * @param charset the charset of the report file
+     *
+     * @return the report, or null if no harvest was started
+     */
+    public FaoCostReport finish(final File reportFolder, final Charset charset)
+    {
+        if (startDate == null)
+            return null;
+
+        final List<FaoDomainCost> costs = new ArrayList<>(domainCosts.size());
+
+        for (final DomainCosts c : domainCosts.values())
+            costs.add(c.toDomainCost());
+
+        costs.sort(Comparator.comparingLong(FaoDomainCost::getTotalMillis).reversed());
+
+        final FaoCostReport report = new FaoCostReport(etlName, startDate.toString(), costs);
+        REPORTS.put(etlName, report);
+        this.startDate = null;
+
+        if ((!reportFolder.isDirectory() && !reportFolder.mkdirs()) || !reportFolder.canWrite()) {
+            LOGGER.warn(String.format(FaoCostConstants.REPORT_FOLDER_NOT_WRITABLE, etlName, reportFolder.getAbsolutePath()));
+            return report;
+        }
+
+        final File reportFile = new File(reportFolder, String.format(FaoCostConstants.REPORT_FILE_NAME, etlName));
+        new DiskIO(gson, charset).writeObjectToFile(reportFile, report);
+        LOGGER.info(String.format(FaoCostConstants.REPORT_WRITTEN, costs.size(), etlName, reportFile.getAbsolutePath()));
+
+        return report;
+    }
+
+
+    /**
+     * This class accumulates the costs of a single domain.
+     *
+     * @author Robin Weiss
+     */
+    private static class DomainCosts
+    {
+        private final String domainCode;
+        private final Map<FaoEndpoint, Long> requestNanos = new EnumMap<>(FaoEndpoint.class);
+        private int requestCount;
+        private long responseBytes;
+        private long transformNanos;
+        private long documentBytes;
+
+
+        /**
+         * Constructor
+         *
+         * @param domainCode the code of the measured domain
+         */
+        DomainCosts(final String domainCode)
+        {
+            this.domainCode = domainCode;
+        }
+
+
+        /**
+         * Adds a request to the costs of the domain.
+         *
+         * @param endpoint the endpoint type of the request
+         * @param durationNanos the duration of the request in nanoseconds
+         * @param bytes the size of the response in bytes
+         */
+        synchronized void addRequest(final FaoEndpoint endpoint, final long durationNanos, final long bytes)
+        {
+            requestNanos.merge(endpoint, durationNanos, Long::sum);
+            requestCount++;
+            responseBytes += bytes;
+        }
+
+
+        /**
+         * Adds a transformation to the costs of the domain.
+         *
+         * @param durationNanos the duration of the transformation in nanoseconds
+         * @param bytes the size of the document in bytes
+         */
+        synchronized void addTransformation(final long durationNanos, final long bytes)
+        {
+            transformNanos += durationNanos;
+            documentBytes += bytes;
+        }
+
+
+        /**
+         * Creates a snapshot of the accumulated costs.
+         *
+         * @return the costs of the domain
+         */
+        synchronized FaoDomainCost toDomainCost()
+        {
+            final Map<FaoEndpoint, Long> requestMillis = new EnumMap<>(FaoEndpoint.class);
+            long totalNanos = transformNanos;
+
+            for (final Map.Entry<FaoEndpoint, Long> entry : requestNanos.entrySet()) {
+                requestMillis.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+                totalNanos += entry.getValue();
+            }
+
+            return new FaoDomainCost(
+                       domainCode,
+                       requestCount,
+                       responseBytes,
+                       requestMillis,
+                       TimeUnit.NANOSECONDS.toMillis(transformNanos),
+                       documentBytes,
+                       TimeUnit.NANOSECONDS.toMillis(totalNanos));
+        }
+    }
+}
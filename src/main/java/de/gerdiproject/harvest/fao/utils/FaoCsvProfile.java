@@ -0,0 +1,49 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import lombok.Value;
+
+/**
+ * This class is a value object that summarizes the data of the CSV files
+ * within a bulk download archive.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class FaoCsvProfile
+{
+    private final long rowCount;
+    private final int minYear;
+    private final int maxYear;
+    private final int distinctAreaCount;
+    private final int distinctItemCount;
+
+    // true if the distinct counts were capped in order to limit memory usage,
+    // or if codes that were too long to be stored exactly were hashed
+    private final boolean approximate;
+
+
+    /**
+     * Checks if the profile contains at least one valid year.
+     *
+     * @return true if the minimum and maximum years are known
+     */
+    public boolean hasYears()
+    {
+        return minYear <= maxYear;
+    }
+}
@@ -0,0 +1,418 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.fao.constants.FaoBulkDownloadConstants;
+
+/**
+ * This class streams bulk download ZIP archives and profiles the CSV files within them,
+ * counting rows, distinct area and item codes, and determining the covered years.
+ * The CSV files are tokenized byte by byte on a reusable buffer, without creating strings
+ * or boxed values for any data row. Codes of up to eight bytes are stored exactly,
+ * so the distinct counts are only approximate if longer codes had to be hashed, or if
+ * a code set reached its cap. Archives are profiled in parallel, while the memory
+ * of all distinct code sets is capped.
+ *
+ * @author Robin Weiss
+ */
+public class FaoCsvProfiler
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoCsvProfiler.class);
+
+    private final ExecutorService executor;
+    private final Set<HttpURLConnection> openConnections = ConcurrentHashMap.newKeySet();
+    private final int maxDistinctCodes;
+
+
+    /**
+     * Constructor
+     *
+     * @param threadCount the number of archives that can be profiled in parallel
+     * @param memoryCapBytes the maximum number of bytes that all distinct code sets may occupy
+     */
+    public FaoCsvProfiler(final int threadCount, final long memoryCapBytes)
+    {
+        final int threads = Math.max(1, threadCount);
+
+        // each thread holds two code sets
+        this.maxDistinctCodes = (int) Math.max(1, memoryCapBytes / threads / 2 / FaoBulkDownloadConstants.BYTES_PER_DISTINCT_CODE);
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            final Thread t = new Thread(r, FaoBulkDownloadConstants.PROFILE_THREAD_NAME);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+
+    /**
+     * Profiles multiple archives in parallel. Archives that cannot be profiled are skipped.
+     *
+     * @param zipUrls the URLs of the archives
+     *
+     * @return a map of archive URLs to their profiles
+     */
+    public Map<String, FaoCsvProfile> profileAll(final Collection<String> zipUrls)
+    {
+        final Map<String, Future<FaoCsvProfile>> futures = new LinkedHashMap<>();
+
+        for (final String url : zipUrls)
+            futures.put(url, executor.submit(() -> profile(url)));
+
+        final Map<String, FaoCsvProfile> profiles = new LinkedHashMap<>();
+
+        for (final Map.Entry<String, Future<FaoCsvProfile>> entry : futures.entrySet()) {
+            try {
+                profiles.put(entry.getKey(), entry.getValue().get());
+
+            } catch (final ExecutionException e) {
+                LOGGER.warn(String.format(FaoBulkDownloadConstants.PROFILE_FAILED, entry.getKey()), e.getCause());
+
+            } catch (final CancellationException e) {
+                // the profiler was shut down
+                break;
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        return profiles;
+    }
+
+
+    /**
+     * Downloads and profiles a single archive.
+     *
+     * @param zipUrl the URL of the archive
+     *
+     * @throws IOException if the archive could not be read
+     *
+     * @return the profile of all CSV files within the archive
+     */
+    public FaoCsvProfile profile(final String zipUrl) throws IOException
+    {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(zipUrl).openConnection();
+        connection.setConnectTimeout(FaoBulkDownloadConstants.CONNECT_TIMEOUT);
+        connection.setReadTimeout(FaoBulkDownloadConstants.READ_TIMEOUT);
+        openConnections.add(connection);
+
+        try (InputStream input = new BufferedInputStream(connection.getInputStream(), FaoBulkDownloadConstants.STREAM_BUFFER_SIZE)) {
+            return profile(input);
+        } finally {
+            openConnections.remove(connection);
+            connection.disconnect();
+        }
+    }
+
+
+    /**
+     * Profiles all CSV files within a ZIP stream.
+     *
+     * @param zipStream a stream of a ZIP archive
+     *
+     * @throws IOException if the stream could not be read
+     *
+     * @return the profile of all CSV files within the archive
+     */
+    public FaoCsvProfile profile(final InputStream zipStream) throws IOException
+    {
+        final CsvTokenizer tokenizer = new CsvTokenizer(maxDistinctCodes);
+        final byte[] buffer = new byte[FaoBulkDownloadConstants.STREAM_BUFFER_SIZE];
+        final ZipInputStream zip = new ZipInputStream(zipStream);
+
+        ZipEntry entry;
+
+        while ((entry = zip.getNextEntry()) != null) {
+            if (entry.getName().toLowerCase(Locale.ENGLISH).endsWith(FaoBulkDownloadConstants.CSV_SUFFIX))
+                tokenizer.parse(zip, buffer);
+        }
+
+        return tokenizer.toProfile();
+    }
+
+
+    /**
+     * Stops all profiling threads, cancels queued archives, and closes
+     * all open connections, which ends blocking reads immediately.
+     */
+    public void shutdown()
+    {
+        for (final Runnable queuedTask : executor.shutdownNow()) {
+            if (queuedTask instanceof Future)
+                ((Future<?>) queuedTask).cancel(false);
+        }
+
+        for (final HttpURLConnection connection : openConnections)
+            connection.disconnect();
+    }
+
+
+    /**
+     * This class tokenizes CSV files and collects statistics of their area code,
+     * item code, and year columns. Files without a year column are skipped.
+     *
+     * @author Robin Weiss
+     */
+    private static final class CsvTokenizer
+    {
+        private final LongHashSet areaCodes;
+        private final LongHashSet itemCodes;
+        private final ByteArrayOutputStream headerField = new ByteArrayOutputStream();
+        private final List<String> headers = new ArrayList<>();
+
+        private long rowCount;
+        private boolean hasHashedCodes;
+        private int minYear = Integer.MAX_VALUE;
+        private int maxYear = Integer.MIN_VALUE;
+
+        // the state of the current file
+        private boolean isHeader;
+        private boolean isSkipped;
+        private int areaColumn;
+        private int itemColumn;
+        private int yearColumn;
+
+        // the state of the current row and field
+        private boolean inQuotes;
+        private boolean rowHasContent;
+        private int column;
+        private int fieldLength;
+        private long fieldCode;
+        private int fieldYear;
+        private int fieldYearDigits;
+
+
+        /**
+         * Constructor
+         *
+         * @param maxDistinctCodes the maximum number of distinct area and item codes
+         */
+        CsvTokenizer(final int maxDistinctCodes)
+        {
+            this.areaCodes = new LongHashSet(maxDistinctCodes);
+            this.itemCodes = new LongHashSet(maxDistinctCodes);
+        }
+
+
+        /**
+         * Tokenizes a CSV file.
+         *
+         * @param input the stream of the CSV file
+         * @param buffer a reusable buffer for reading the stream
+         *
+         * @throws IOException if the stream could not be read
+         */
+        void parse(final InputStream input, final byte[] buffer) throws IOException
+        {
+            isHeader = true;
+            isSkipped = false;
+            headers.clear();
+            resetRow();
+
+            int readBytes;
+
+            while (!isSkipped && (readBytes = input.read(buffer)) != -1) {
+                for (int i = 0; i < readBytes && !isSkipped; i++) {
+                    final byte b = buffer[i];
+
+                    if (inQuotes) {
+                        if (b == '"')
+                            inQuotes = false;
+                        else
+                            addByte(b);
+                    } else if (b == '"')
+                        inQuotes = true;
+                    else if (b == ',')
+                        endField();
+                    else if (b == '\n') {
+                        endField();
+                        endRow();
+                    } else if (b != '\r')
+                        addByte(b);
+                }
+            }
+
+            // finish the last row if it does not end with a line break
+            if (!isSkipped && (rowHasContent || column > 0)) {
+                endField();
+                endRow();
+            }
+        }
+
+
+        /**
+         * Creates a profile of all CSV files that were tokenized.
+         *
+         * @return a profile of all tokenized CSV files
+         */
+        FaoCsvProfile toProfile()
+        {
+            return new FaoCsvProfile(
+                       rowCount,
+                       minYear,
+                       maxYear,
+                       areaCodes.size(),
+                       itemCodes.size(),
+                       hasHashedCodes || areaCodes.isSaturated() || itemCodes.isSaturated());
+        }
+
+
+        /**
+         * Processes a byte of a field.
+         *
+         * @param b a byte that is part of the current field
+         */
+        private void addByte(final byte b)
+        {
+            rowHasContent = true;
+            fieldLength++;
+
+            if (isHeader)
+                headerField.write(b);
+
+            else if (column == areaColumn || column == itemColumn) {
+                // short codes are packed into a long losslessly, longer ones are hashed
+                if (fieldLength <= FaoBulkDownloadConstants.MAX_EXACT_CODE_BYTES)
+                    fieldCode = (fieldCode << 8) | (b & 0xFF);
+                else {
+                    fieldCode = 31 * fieldCode + b;
+                    hasHashedCodes = true;
+                }
+            }
+
+            else if (column == yearColumn
+                     && fieldYearDigits < FaoBulkDownloadConstants.YEAR_DIGITS
+                     && b >= '0' && b <= '9') {
+                fieldYear = fieldYear * 10 + (b - '0');
+                fieldYearDigits++;
+            }
+        }
+
+
+        /**
+         * Processes the end of a field.
+         */
+        private void endField()
+        {
+            if (isHeader) {
+                final String header = new String(headerField.toByteArray(), StandardCharsets.UTF_8);
+                headers.add(header.replace(FaoBulkDownloadConstants.BYTE_ORDER_MARK, "").trim());
+                headerField.reset();
+
+            } else if (fieldLength > 0) {
+                if (column == areaColumn)
+                    areaCodes.add(fieldCode);
+
+                else if (column == itemColumn)
+                    itemCodes.add(fieldCode);
+
+                else if (column == yearColumn && fieldYearDigits == FaoBulkDownloadConstants.YEAR_DIGITS) {
+                    minYear = Math.min(minYear, fieldYear);
+                    maxYear = Math.max(maxYear, fieldYear);
+                }
+            }
+
+            column++;
+            fieldLength = 0;
+            fieldCode = 0;
+            fieldYear = 0;
+            fieldYearDigits = 0;
+        }
+
+
+        /**
+         * Processes the end of a row.
+         */
+        private void endRow()
+        {
+            if (isHeader) {
+                isHeader = false;
+                areaColumn = indexOfHeader(FaoBulkDownloadConstants.AREA_CODE_COLUMNS);
+                itemColumn = indexOfHeader(FaoBulkDownloadConstants.ITEM_CODE_COLUMNS);
+                yearColumn = indexOfHeader(FaoBulkDownloadConstants.YEAR_COLUMNS);
+
+                // only data files have a year column
+                isSkipped = yearColumn == -1;
+
+            } else if (rowHasContent)
+                rowCount++;
+
+            resetRow();
+        }
+
+
+        /**
+         * Resets the state of the current row.
+         */
+        private void resetRow()
+        {
+            inQuotes = false;
+            rowHasContent = false;
+            column = 0;
+            fieldLength = 0;
+            fieldCode = 0;
+            fieldYear = 0;
+            fieldYearDigits = 0;
+        }
+
+
+        /**
+         * Retrieves the index of the first header that matches any of a list of names.
+         *
+         * @param names the header names that are to be found
+         *
+         * @return the index of the column, or -1 if no header matches
+         */
+        private int indexOfHeader(final String[] names)
+        {
+            for (int i = 0; i < headers.size(); i++) {
+                for (final String name : names) {
+                    if (headers.get(i).equalsIgnoreCase(name))
+                        return i;
+                }
+            }
+
+            return -1;
+        }
+    }
+}
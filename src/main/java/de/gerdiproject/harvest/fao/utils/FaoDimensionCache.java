@@ -0,0 +1,212 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import de.gerdiproject.harvest.fao.json.FaoDimension;
+import de.gerdiproject.harvest.fao.json.FaoFilter;
+
+/**
+ * This class shares the dimension and filter lists of domains that have the same content.
+ * Many domains have identical dimensions and code lists, e.g. the list of all areas.
+ * Instead of keeping a copy of such a list per domain, every domain receives the same
+ * unmodifiable list, which is identified by the content hash of its elements.
+ * Lists are only cached as long as a domain refers to them, so the cache never keeps
+ * lists alive on its own.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDimensionCache
+{
+    private final Interner<List<FaoDimension>> dimensionLists = new Interner<>();
+    private final Interner<List<FaoFilter>> filterLists = new Interner<>();
+    private final Interner<FaoFilter> filters = new Interner<>();
+
+
+    /**
+     * Retrieves a cached list of dimensions that equals the specified list,
+     * or caches the list if there is none.
+     *
+     * @param dimensions the dimensions of a domain
+     *
+     * @return an unmodifiable list of dimensions that equals the specified list
+     */
+    public List<FaoDimension> getDimensions(final List<FaoDimension> dimensions)
+    {
+        if (dimensions == null)
+            return null;
+
+        final List<FaoDimension> cachedDimensions = dimensionLists.get(dimensions);
+
+        return cachedDimensions != null
+               ? cachedDimensions
+               : dimensionLists.intern(Collections.unmodifiableList(new ArrayList<>(dimensions)));
+    }
+
+
+    /**
+     * Retrieves a cached list of filters that equals the specified list,
+     * or caches the list if there is none. Filters that are part of other
+     * cached lists are shared as well.
+     *
+     * @param filterList the filters of a dimension of a domain
+     *
+     * @return an unmodifiable list of filters that equals the specified list
+     */
+    public List<FaoFilter> getFilters(final List<FaoFilter> filterList)
+    {
+        final List<FaoFilter> cachedFilters = filterLists.get(filterList);
+
+        if (cachedFilters != null)
+            return cachedFilters;
+
+        final List<FaoFilter> sharedFilters = new ArrayList<>(filterList.size());
+
+        for (final FaoFilter f : filterList)
+            sharedFilters.add(filters.intern(f));
+
+        return filterLists.intern(Collections.unmodifiableList(sharedFilters));
+    }
+
+
+    /**
+     * Retrieves the number of filter lists that were shared instead of being cached again.
+     *
+     * @return the number of shared filter lists
+     */
+    public int getSharedFilterListCount()
+    {
+        return filterLists.getSharedCount();
+    }
+
+
+    /**
+     * Retrieves the number of filter lists that were passed to the cache.
+     *
+     * @return the number of requested filter lists
+     */
+    public int getFilterListCount()
+    {
+        return filterLists.getRequestCount();
+    }
+
+
+    /**
+     * Retrieves the number of dimension lists that were shared instead of being cached again.
+     *
+     * @return the number of shared dimension lists
+     */
+    public int getSharedDimensionListCount()
+    {
+        return dimensionLists.getSharedCount();
+    }
+
+
+    /**
+     * Retrieves the number of dimension lists that were passed to the cache.
+     *
+     * @return the number of requested dimension lists
+     */
+    public int getDimensionListCount()
+    {
+        return dimensionLists.getRequestCount();
+    }
+
+
+    /**
+     * This class maps objects to the first equal object that is still referenced elsewhere.
+     *
+     * @param <T> the type of the cached objects
+     *
+     * @author Robin Weiss
+     */
+    private static class Interner<T>
+    {
+        private final Map<T, WeakReference<T>> values = new WeakHashMap<>();
+        private int requestCount;
+        private int sharedCount;
+
+
+        /**
+         * Retrieves a cached object that equals the specified object.
+         * Every call counts as a request of the cache.
+         *
+         * @param value the object that is looked up
+         *
+         * @return the cached object, or null if there is none
+         */
+        synchronized T get(final T value)
+        {
+            requestCount++;
+            final WeakReference<T> reference = values.get(value);
+            final T cachedValue = reference == null ? null : reference.get();
+
+            if (cachedValue != null)
+                sharedCount++;
+
+            return cachedValue;
+        }
+
+
+        /**
+         * Retrieves a cached object that equals the specified object, or caches the object
+         * if there is none.
+         *
+         * @param value the object that is to be cached
+         *
+         * @return the cached object
+         */
+        synchronized T intern(final T value)
+        {
+            final WeakReference<T> reference = values.get(value);
+            final T cachedValue = reference == null ? null : reference.get();
+
+            if (cachedValue != null)
+                return cachedValue;
+
+            values.put(value, new WeakReference<>(value));
+            return value;
+        }
+
+
+        /**
+         * Retrieves the number of lookups of the cache.
+         *
+         * @return the number of lookups
+         */
+        synchronized int getRequestCount()
+        {
+            return requestCount;
+        }
+
+
+        /**
+         * Retrieves the number of lookups that yielded a cached object.
+         *
+         * @return the number of successful lookups
+         */
+        synchronized int getSharedCount()
+        {
+            return sharedCount;
+        }
+    }
+}
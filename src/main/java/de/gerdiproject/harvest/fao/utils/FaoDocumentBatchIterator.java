@@ -0,0 +1,236 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+
+import de.gerdiproject.harvest.fao.constants.FaoDocumentSizeConstants;
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+import de.gerdiproject.json.GsonUtils;
+import de.gerdiproject.json.datacite.DataCiteJson;
+
+/**
+ * This iterator groups documents into batches that are limited by the number of documents
+ * and by the size of their JSON representations. The documents are retrieved on a separate
+ * thread, so that an incomplete batch can be handed on when its first document waited too long,
+ * even if the retrieval of the next document takes a while.
+ * Documents that were skipped by the transformer are not part of any batch.
+ * <br>
+ * The batches are only used by the {@linkplain de.gerdiproject.harvest.FaoStatBatchRunner}.
+ * The loaders of the harvester service retrieve single documents from the transformer
+ * and assemble their own bulk submissions, which is why the service ETL does not batch documents.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDocumentBatchIterator implements Iterator<List<DataCiteJson>>
+{
+    private static final Object END_OF_DOCUMENTS = new Object();
+
+    private final Gson gson = GsonUtils.createGerdiDocumentGsonBuilder().create();
+    private final Iterator<DataCiteJson> documents;
+    private final BlockingQueue<Object> queue;
+    private final int maxDocuments;
+    private final long maxBytes;
+    private final long maxWaitNanos;
+
+    private Thread producer;
+    private Object nextElement;
+    private boolean isFinished;
+
+
+    /**
+     * Constructor
+     *
+     * @param documents the documents that are to be grouped into batches
+     * @param maxDocuments the maximum number of documents per batch, or 0 if the number is not limited
+     * @param maxBytes the maximum size of a batch in bytes, or 0 if the size is not limited
+     * @param maxWaitMillis the maximum time in milliseconds that the first document of a batch waits
+     *         for the batch to be completed, or 0 if batches are only handed on when they are full
+     */
+    public FaoDocumentBatchIterator(final Iterator<DataCiteJson> documents, final int maxDocuments, final long maxBytes, final long maxWaitMillis)
+    {
+        this.documents = documents;
+        this.maxDocuments = maxDocuments > 0 ? maxDocuments : Integer.MAX_VALUE;
+        this.maxBytes = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+        this.maxWaitNanos = maxWaitMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(maxWaitMillis) : Long.MAX_VALUE;
+
+        // the retrieval runs at most one batch ahead
+        this.queue = new LinkedBlockingQueue<>(maxDocuments > 0 ? maxDocuments : FaoDocumentSizeConstants.BATCH_QUEUE_CAPACITY);
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+        if (nextElement == null && !isFinished)
+            nextElement = takeElement(Long.MAX_VALUE);
+
+        return nextElement != null;
+    }
+
+
+    @Override
+    public List<DataCiteJson> next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        final List<DataCiteJson> batch = new ArrayList<>();
+        final long deadline = maxWaitNanos == Long.MAX_VALUE
+                              ? Long.MAX_VALUE
+                              : System.nanoTime() + maxWaitNanos;
+        long batchBytes = 0;
+
+        while (nextElement != null && batch.size() < maxDocuments) {
+            if (nextElement instanceof Throwable) {
+                // hand on the retrieved documents before failing
+                if (!batch.isEmpty())
+                    break;
+
+                if (nextElement instanceof Error)
+                    throw (Error) nextElement;
+
+                throw (RuntimeException) nextElement;
+            }
+
+            final DataCiteJson document = (DataCiteJson) nextElement;
+            final long documentBytes = FaoJsonSize.measure(gson, document);
+
+            // a document that exceeds the size limit on its own forms a batch of its own
+            if (!batch.isEmpty() && batchBytes + documentBytes > maxBytes)
+                break;
+
+            batch.add(document);
+            batchBytes += documentBytes;
+            nextElement = null;
+
+            if (batch.size() < maxDocuments && !isFinished)
+                nextElement = takeElement(deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime());
+        }
+
+        return batch;
+    }
+
+
+    /**
+     * Stops the retrieval of documents. Documents that were already retrieved are discarded.
+     */
+    public void cancel()
+    {
+        final Thread t = producer;
+
+        if (t != null)
+            t.interrupt();
+
+        isFinished = true;
+        nextElement = null;
+        queue.clear();
+    }
+
+
+    /**
+     * Waits for the next retrieved document, starting the retrieval if necessary.
+     *
+     * @param timeoutNanos the maximum time to wait for the document
+     *
+     * @throws CancellationException if the waiting thread was interrupted
+     *
+     * @return a document, an exception that occurred during the retrieval,
+     *         or null if there are no more documents or none was retrieved in time
+     */
+    private Object takeElement(final long timeoutNanos)
+    {
+        if (producer == null)
+            startProducer();
+
+        try {
+            final Object element = timeoutNanos == Long.MAX_VALUE
+                                   ? queue.take()
+                                   : queue.poll(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+
+            if (element == END_OF_DOCUMENTS) {
+                isFinished = true;
+                return null;
+            }
+
+            return element;
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException(FaoExtractorConstants.HARVEST_ABORTED_ERROR);
+        }
+    }
+
+
+    /**
+     * Starts a thread that retrieves all documents and queues them.
+     */
+    private void startProducer()
+    {
+        producer = new Thread(this::produce, FaoDocumentSizeConstants.BATCH_THREAD_NAME);
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+
+    /**
+     * Retrieves all documents and queues them, followed by the end marker,
+     * or by the exception that stopped the retrieval.
+     */
+    private void produce()
+    {
+        try {
+            while (documents.hasNext()) {
+                final DataCiteJson document = documents.next();
+
+                if (document != null)
+                    queue.put(document);
+            }
+
+            queue.put(END_OF_DOCUMENTS);
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        } catch (final RuntimeException | Error e) {
+            handOnFailure(e);
+        }
+    }
+
+
+    /**
+     * Queues an exception that stopped the retrieval, so that it is thrown by the consumer.
+     *
+     * @param failure the exception that stopped the retrieval
+     */
+    private void handOnFailure(final Throwable failure)
+    {
+        try {
+            queue.put(failure);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
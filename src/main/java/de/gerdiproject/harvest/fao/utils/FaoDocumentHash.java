@@ -0,0 +1,32 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+import lombok.Value;
+
+/**
+ * This class is a value object that stores the content hash of the document
+ * that was last harvested from a {@linkplain FaoDomain}.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class FaoDocumentHash
+{
+    private final FaoDomain domain;
+    private final String hash;
+}
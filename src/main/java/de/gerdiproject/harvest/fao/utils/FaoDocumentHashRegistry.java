@@ -0,0 +1,262 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import de.gerdiproject.harvest.fao.constants.FaoCacheConstants;
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.json.GsonUtils;
+import de.gerdiproject.json.datacite.DataCiteJson;
+
+/**
+ * This class keeps track of content hashes of harvested documents, mapped by the
+ * domain codes of the {@linkplain FaoDomain}s from which they were created.
+ * The hashes are persisted between harvests, allowing to detect which documents
+ * have changed, were added, or were removed since the last harvest.
+ * Changes of a running harvest are staged, and are only committed and persisted
+ * after the harvest succeeded, so that documents of a failed harvest are
+ * detected as changed again by the next harvest.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDocumentHashRegistry
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoDocumentHashRegistry.class);
+
+    private final Map<String, FaoDocumentHash> hashes = new ConcurrentHashMap<>();
+    private final Map<String, FaoDocumentHash> stagedHashes = new ConcurrentHashMap<>();
+    private final Set<String> stagedRemovals = ConcurrentHashMap.newKeySet();
+    private final Gson gson = GsonUtils.createGerdiDocumentGsonBuilder().create();
+    private DiskIO diskIO;
+    private File file;
+
+
+    /**
+     * Replaces all hashes with those that were persisted in a specified file.
+     * If the file was already loaded, the hashes in memory are kept, because they
+     * are more recent.
+     *
+     * @param hashFile the file from which the hashes are loaded
+     * @param charset the charset of the file
+     */
+    public void load(final File hashFile, final Charset charset)
+    {
+        if (hashFile.equals(file))
+            return;
+
+        this.file = hashFile;
+        this.diskIO = new DiskIO(gson, charset);
+        hashes.clear();
+        discard();
+
+        if (hashFile.exists()) {
+            final FaoDocumentHash[] loadedHashes = diskIO.getObject(hashFile, FaoDocumentHash[].class);
+
+            if (loadedHashes == null)
+                LOGGER.warn(String.format(FaoCacheConstants.HASH_LOAD_ERROR, hashFile));
+            else {
+                for (final FaoDocumentHash h : loadedHashes)
+                    hashes.put(h.getDomain().getDomainCode(), h);
+            }
+        }
+    }
+
+
+    /**
+     * Applies all staged hashes and removals of a successful harvest,
+     * and writes all hashes to the file from which they were loaded.
+     */
+    public void commit()
+    {
+        hashes.putAll(stagedHashes);
+
+        for (final String domainCode : stagedRemovals)
+            hashes.remove(domainCode);
+
+        discard();
+
+        if (file != null)
+            diskIO.writeObjectToFile(file, hashes.values().toArray(new FaoDocumentHash[hashes.size()]));
+    }
+
+
+    /**
+     * Discards all staged hashes and removals of a harvest that failed or was aborted.
+     */
+    public void discard()
+    {
+        stagedHashes.clear();
+        stagedRemovals.clear();
+    }
+
+
+    /**
+     * Retrieves all domains that were harvested previously, but are no longer
+     * part of a specified collection of domains.
+     *
+     * @param currentDomains the domains that can currently be harvested
+     *
+     * @return a list of domains that were removed since the last harvest
+     */
+    public List<FaoDomain> getRemovedDomains(final Collection<FaoDomain> currentDomains)
+    {
+        final Set<String> currentDomainCodes = new HashSet<>();
+
+        for (final FaoDomain d : currentDomains)
+            currentDomainCodes.add(d.getDomainCode());
+
+        final List<FaoDomain> removedDomains = new ArrayList<>();
+
+        for (final FaoDocumentHash h : hashes.values()) {
+            if (!currentDomainCodes.contains(h.getDomain().getDomainCode()))
+                removedDomains.add(h.getDomain());
+        }
+
+        return removedDomains;
+    }
+
+
+    /**
+     * Calculates the hash of a document, compares it to the hash of the last successful
+     * harvest, and stages it until the current harvest is committed.
+     *
+     * @param domain the domain from which the document was created
+     * @param document the document of which the hash is to be updated
+     *
+     * @return true if the document is new or has changed since the last harvest
+     */
+    public boolean update(final FaoDomain domain, final DataCiteJson document)
+    {
+        final String newHash = createHash(gson.toJsonTree(document));
+        final FaoDocumentHash oldHash = hashes.get(domain.getDomainCode());
+        stagedHashes.put(domain.getDomainCode(), new FaoDocumentHash(domain, newHash));
+
+        return oldHash == null || !oldHash.getHash().equals(newHash);
+    }
+
+
+    /**
+     * Stages the removal of the hash of a domain until the current harvest is committed.
+     *
+     * @param domain the domain of which the hash is to be removed
+     */
+    public void remove(final FaoDomain domain)
+    {
+        stagedRemovals.add(domain.getDomainCode());
+    }
+
+
+    /**
+     * Creates a hexadecimal hash of the canonical JSON representation of a document.
+     *
+     * @param document the JSON representation of the document that is to be hashed
+     *
+     * @return a hexadecimal hash string
+     */
+    static String createHash(final JsonElement document)
+    {
+        final String canonicalJson = canonicalize(document).toString();
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance(FaoCacheConstants.HASH_ALGORITHM);
+            final byte[] hashBytes = digest.digest(canonicalJson.getBytes(StandardCharsets.UTF_8));
+
+            final StringBuilder sb = new StringBuilder(hashBytes.length * 2);
+
+            for (final byte b : hashBytes)
+                sb.append(String.format("%02x", b));
+
+            return sb.toString();
+
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(FaoCacheConstants.HASH_ALGORITHM_ERROR + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Creates a copy of a JSON element in which all object keys and array elements are sorted.
+     * Documents store most of their fields in sets, which is why their serialized order
+     * must not affect the hash.
+     *
+     * @param element the JSON element that is to be canonicalized
+     *
+     * @return a sorted copy of the JSON element
+     */
+    static JsonElement canonicalize(final JsonElement element)
+    {
+        if (element.isJsonObject()) {
+            final Map<String, JsonElement> sortedFields = new TreeMap<>();
+
+            for (final Entry<String, JsonElement> field : element.getAsJsonObject().entrySet())
+                sortedFields.put(field.getKey(), canonicalize(field.getValue()));
+
+            final JsonObject sortedObject = new JsonObject();
+
+            for (final Entry<String, JsonElement> field : sortedFields.entrySet())
+                sortedObject.add(field.getKey(), field.getValue());
+
+            return sortedObject;
+
+        } else if (element.isJsonArray()) {
+            final Map<String, JsonElement> sortedElements = new TreeMap<>();
+            int duplicateIndex = 0;
+
+            for (final JsonElement arrayElement : element.getAsJsonArray()) {
+                final JsonElement canonicalElement = canonicalize(arrayElement);
+                final String key = canonicalElement.toString();
+
+                // keep duplicates, because they are part of the document
+                if (sortedElements.containsKey(key))
+                    sortedElements.put(key + duplicateIndex++, canonicalElement);
+                else
+                    sortedElements.put(key, canonicalElement);
+            }
+
+            final JsonArray sortedArray = new JsonArray();
+
+            for (final JsonElement sortedElement : sortedElements.values())
+                sortedArray.add(sortedElement);
+
+            return sortedArray;
+
+        } else
+            return element;
+    }
+}
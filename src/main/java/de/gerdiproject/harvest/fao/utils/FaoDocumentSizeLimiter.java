@@ -0,0 +1,215 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+import de.gerdiproject.harvest.fao.constants.FaoDocumentSizeConstants;
+import de.gerdiproject.harvest.fao.constants.FaoMetricsConstants;
+import de.gerdiproject.json.GsonUtils;
+import de.gerdiproject.json.datacite.DataCiteJson;
+import de.gerdiproject.json.datacite.Subject;
+
+/**
+ * This class keeps documents within a size budget by trimming their subjects,
+ * and measures the sizes of all documents of a harvest.
+ * Subjects are kept in the order of the dimensions and filters they stem from,
+ * and all subjects that would exceed the budget are removed, so that the same
+ * domain always yields the same document.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDocumentSizeLimiter implements FaoDocumentSizeMXBean
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoDocumentSizeLimiter.class);
+
+    private final Gson gson = GsonUtils.createGerdiDocumentGsonBuilder().create();
+    private final AtomicLong documentCount = new AtomicLong();
+    private final AtomicLong totalDocumentBytes = new AtomicLong();
+    private final AtomicLong largestDocumentBytes = new AtomicLong();
+    private final AtomicLong duplicateSubjectCount = new AtomicLong();
+    private final AtomicLong trimmedSubjectCount = new AtomicLong();
+    private final AtomicLong trimmedDocumentCount = new AtomicLong();
+    private volatile String etlName;
+    private volatile long budgetBytes;
+
+
+    /**
+     * Discards the measurements of the previous harvest and starts measuring a new one.
+     *
+     * @param name the name of the ETL that harvests
+     * @param maxDocumentBytes the maximum size of a document in bytes, or 0 if the size is not limited
+     */
+    public void start(final String name, final long maxDocumentBytes)
+    {
+        this.etlName = name;
+        this.budgetBytes = maxDocumentBytes;
+        documentCount.set(0);
+        totalDocumentBytes.set(0);
+        largestDocumentBytes.set(0);
+        duplicateSubjectCount.set(0);
+        trimmedSubjectCount.set(0);
+        trimmedDocumentCount.set(0);
+
+        FaoMetrics.register(this, FaoMetricsConstants.DOCUMENT_SIZE_MBEAN_NAME_FORMAT, name);
+    }
+
+
+    /**
+     * Unregisters the JMX metrics. They are registered again by the next harvest.
+     */
+    public void unregister()
+    {
+        final String name = etlName;
+
+        if (name != null)
+            FaoMetrics.unregister(FaoMetricsConstants.DOCUMENT_SIZE_MBEAN_NAME_FORMAT, name);
+    }
+
+
+    /**
+     * Records subjects that were removed, because they were already part of the same document.
+     *
+     * @param count the number of removed duplicate subjects
+     */
+    public void onDuplicateSubjects(final int count)
+    {
+        duplicateSubjectCount.addAndGet(count);
+    }
+
+
+    /**
+     * Retrieves the subjects that can be added to a document without exceeding
+     * the size budget. If the budget is exceeded, the last subjects are removed.
+     *
+     * @param document a document that lacks subjects
+     * @param subjects the subjects that are to be added to the document
+     *
+     * @return the subjects that fit into the size budget of the document
+     */
+    public List<Subject> limitSubjects(final DataCiteJson document, final List<Subject> subjects)
+    {
+        if (budgetBytes <= 0 || subjects.isEmpty())
+            return subjects;
+
+        final List<Subject> keptSubjects = new LinkedList<>();
+        long documentBytes = FaoJsonSize.measure(gson, document) + FaoDocumentSizeConstants.SUBJECT_LIST_OVERHEAD;
+
+        for (final Subject s : subjects) {
+            // each subject is followed by a comma
+            documentBytes += FaoJsonSize.measure(gson, s) + 1;
+
+            if (documentBytes > budgetBytes)
+                break;
+
+            keptSubjects.add(s);
+        }
+
+        final int removedCount = subjects.size() - keptSubjects.size();
+
+        if (removedCount > 0) {
+            trimmedSubjectCount.addAndGet(removedCount);
+            trimmedDocumentCount.incrementAndGet();
+            LOGGER.info(String.format(FaoDocumentSizeConstants.SUBJECTS_TRIMMED, removedCount, subjects.size(), document.getSourceId(), budgetBytes));
+        }
+
+        return keptSubjects;
+    }
+
+
+    /**
+     * Measures the size of a finished document.
+     *
+     * @param document the document that is to be measured
+     */
+    public void onDocument(final DataCiteJson document)
+    {
+        final long documentBytes = FaoJsonSize.measure(gson, document);
+        documentCount.incrementAndGet();
+        totalDocumentBytes.addAndGet(documentBytes);
+        largestDocumentBytes.accumulateAndGet(documentBytes, Math::max);
+    }
+
+
+    /**
+     * Logs a summary of the sizes of all documents of the harvest.
+     */
+    public void finish()
+    {
+        if (documentCount.get() == 0)
+            return;
+
+        LOGGER.info(String.format(
+                        FaoDocumentSizeConstants.SIZE_SUMMARY,
+                        etlName,
+                        getDocumentCount(),
+                        getAverageDocumentBytes(),
+                        getLargestDocumentBytes(),
+                        getDuplicateSubjectCount(),
+                        getTrimmedSubjectCount(),
+                        getTrimmedDocumentCount()));
+    }
+
+
+    @Override
+    public long getDocumentCount()
+    {
+        return documentCount.get();
+    }
+
+
+    @Override
+    public long getAverageDocumentBytes()
+    {
+        final long count = documentCount.get();
+        return count == 0 ? 0 : totalDocumentBytes.get() / count;
+    }
+
+
+    @Override
+    public long getLargestDocumentBytes()
+    {
+        return largestDocumentBytes.get();
+    }
+
+
+    @Override
+    public long getDuplicateSubjectCount()
+    {
+        return duplicateSubjectCount.get();
+    }
+
+
+    @Override
+    public long getTrimmedSubjectCount()
+    {
+        return trimmedSubjectCount.get();
+    }
+
+
+    @Override
+    public long getTrimmedDocumentCount()
+    {
+        return trimmedDocumentCount.get();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+/**
+ * This interface exposes the sizes of the documents of the current
+ * or last harvest of an ETL as JMX metrics.
+ *
+ * @author Robin Weiss
+ */
+public interface FaoDocumentSizeMXBean
+{
+    /**
+     * Retrieves the number of measured documents.
+     *
+     * @return the number of measured documents
+     */
+    long getDocumentCount();
+
+
+    /**
+     * Retrieves the average size of the JSON representations of the documents.
+     *
+     * @return the average document size in bytes
+     */
+    long getAverageDocumentBytes();
+
+
+    /**
+     * Retrieves the size of the JSON representation of the largest document.
+     *
+     * @return the largest document size in bytes
+     */
+    long getLargestDocumentBytes();
+
+
+    /**
+     * Retrieves the number of subjects that were removed, because they
+     * were already part of the same document.
+     *
+     * @return the number of removed duplicate subjects
+     */
+    long getDuplicateSubjectCount();
+
+
+    /**
+     * Retrieves the number of subjects that were removed from documents
+     * that exceeded the size budget.
+     *
+     * @return the number of trimmed subjects
+     */
+    long getTrimmedSubjectCount();
+
+
+    /**
+     * Retrieves the number of documents that exceeded the size budget.
+     *
+     * @return the number of trimmed documents
+     */
+    long getTrimmedDocumentCount();
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.util.Map;
+
+import de.gerdiproject.harvest.fao.enums.FaoEndpoint;
+import lombok.Value;
+
+/**
+ * This value object represents the costs of harvesting a single domain.
+ * The request durations include the parsing of the JSON responses.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class FaoDomainCost
+{
+    private final String domainCode;
+    private final int requestCount;
+    private final long responseBytes;
+    private final Map<FaoEndpoint, Long> requestMillis;
+    private final long transformMillis;
+    private final long documentBytes;
+    private final long totalMillis;
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import de.gerdiproject.harvest.fao.constants.FaoParameterConstants;
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+
+/**
+ * This class decides which {@linkplain FaoDomain}s are harvested, based on lists of
+ * included and excluded domain codes and group codes. Each code may be a glob pattern,
+ * in which '*' matches any number of characters and '?' matches a single character.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDomainFilter
+{
+    private final List<Pattern> includedDomains;
+    private final List<Pattern> excludedDomains;
+    private final List<Pattern> includedGroups;
+    private final List<Pattern> excludedGroups;
+
+
+    /**
+     * Constructor that parses comma-separated lists of codes and glob patterns.
+     *
+     * @param includedDomains the domains that are harvested exclusively, or an empty string
+     * @param excludedDomains the domains that are not harvested, or an empty string
+     * @param includedGroups the groups that are harvested exclusively, or an empty string
+     * @param excludedGroups the groups that are not harvested, or an empty string
+     */
+    public FaoDomainFilter(final String includedDomains, final String excludedDomains, final String includedGroups, final String excludedGroups)
+    {
+        this.includedDomains = parsePatterns(includedDomains);
+        this.excludedDomains = parsePatterns(excludedDomains);
+        this.includedGroups = parsePatterns(includedGroups);
+        this.excludedGroups = parsePatterns(excludedGroups);
+    }
+
+
+    /**
+     * Checks if the filter lets all domains pass.
+     *
+     * @return true if no domain or group codes are included or excluded
+     */
+    public boolean isEmpty()
+    {
+        return includedDomains.isEmpty()
+               && excludedDomains.isEmpty()
+               && includedGroups.isEmpty()
+               && excludedGroups.isEmpty();
+    }
+
+
+    /**
+     * Checks if a domain is to be harvested. Exclusions take precedence over inclusions.
+     *
+     * @param domain the domain that is to be checked
+     *
+     * @return true if the domain is to be harvested
+     */
+    public boolean accepts(final FaoDomain domain)
+    {
+        final String domainCode = domain.getDomainCode();
+        final String groupCode = domain.getGroupCode();
+
+        if (matchesAny(excludedDomains, domainCode) || matchesAny(excludedGroups, groupCode))
+            return false;
+
+        return (includedDomains.isEmpty() || matchesAny(includedDomains, domainCode))
+               && (includedGroups.isEmpty() || matchesAny(includedGroups, groupCode));
+    }
+
+
+    /**
+     * Checks if a code matches any of a list of patterns.
+     *
+     * @param patterns the patterns that are to be matched
+     * @param code the code that is to be checked
+     *
+     * @return true if at least one pattern matches the code
+     */
+    private static boolean matchesAny(final List<Pattern> patterns, final String code)
+    {
+        if (code == null)
+            return false;
+
+        for (final Pattern p : patterns) {
+            if (p.matcher(code).matches())
+                return true;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Converts a comma-separated list of glob patterns to regular expressions.
+     *
+     * @param globList a comma-separated list of glob patterns
+     *
+     * @return a list of regular expressions
+     */
+    private static List<Pattern> parsePatterns(final String globList)
+    {
+        final List<Pattern> patterns = new LinkedList<>();
+
+        if (globList == null)
+            return patterns;
+
+        for (final String glob : globList.split(FaoParameterConstants.CODE_FILTER_SEPARATOR)) {
+            final String trimmedGlob = glob.trim();
+
+            if (trimmedGlob.isEmpty())
+                continue;
+
+            final StringBuilder regex = new StringBuilder();
+
+            for (final char c : trimmedGlob.toCharArray()) {
+                if (c == '*')
+                    regex.append(".*");
+                else if (c == '?')
+                    regex.append('.');
+                else
+                    regex.append(Pattern.quote(String.valueOf(c)));
+            }
+
+            patterns.add(Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE));
+        }
+
+        return patterns;
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+
+/**
+ * This class decides which {@linkplain FaoDomain}s are harvested by a single ETL,
+ * combining the groups of the ETL, its shard, the domain and group filters,
+ * and the domains to which a harvest is restricted.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDomainSelector
+{
+    private final Set<String> groupCodes;
+    private final int shardIndex;
+    private final int shardCount;
+    private final FaoDomainFilter domainFilter;
+    private final Set<String> domainRestriction;
+
+
+    /**
+     * Constructor
+     *
+     * @param groupCodes the codes of the harvested groups, or an empty set if all groups are harvested
+     * @param shardIndex the index of the harvested shard
+     * @param shardCount the number of shards among which the domains are distributed
+     * @param domainFilter the filter of included and excluded domains and groups
+     * @param domainRestriction the codes of the domains to which a harvest is restricted,
+     *         or an empty set if all domains are harvested
+     */
+    public FaoDomainSelector(final Set<String> groupCodes, final int shardIndex, final int shardCount, final FaoDomainFilter domainFilter, final Set<String> domainRestriction)
+    {
+        this.groupCodes = groupCodes;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.domainFilter = domainFilter;
+        this.domainRestriction = domainRestriction;
+    }
+
+
+    /**
+     * Checks if the selector lets all domains pass.
+     *
+     * @return true if all domains are harvested
+     */
+    public boolean isEmpty()
+    {
+        return shardCount == 1 && groupCodes.isEmpty() && domainRestriction.isEmpty() && domainFilter.isEmpty();
+    }
+
+
+    /**
+     * Checks if a domain is to be harvested.
+     *
+     * @param domain the domain that is to be checked
+     *
+     * @return true if the domain is to be harvested
+     */
+    public boolean accepts(final FaoDomain domain)
+    {
+        return isInGroups(domain) && isInShard(domain) && isInRestriction(domain) && domainFilter.accepts(domain);
+    }
+
+
+    /**
+     * Checks if a domain belongs to one of the harvested groups.
+     *
+     * @param domain the domain that is to be checked
+     *
+     * @return true if the domain belongs to a harvested group
+     */
+    private boolean isInGroups(final FaoDomain domain)
+    {
+        return groupCodes.isEmpty() || groupCodes.contains(domain.getGroupCode());
+    }
+
+
+    /**
+     * Checks if a domain is part of the domains to which the harvest was restricted.
+     *
+     * @param domain the domain that is to be checked
+     *
+     * @return true if the harvest is not restricted or includes the domain
+     */
+    private boolean isInRestriction(final FaoDomain domain)
+    {
+        return domainRestriction.isEmpty() || domainRestriction.contains(domain.getDomainCode());
+    }
+
+
+    /**
+     * Checks if a domain belongs to the harvested shard.
+     * The shard is determined by a checksum of the domain code, which is stable
+     * across JVMs and harvester instances.
+     *
+     * @param domain the domain that is to be checked
+     *
+     * @return true if the domain belongs to the harvested shard
+     */
+    private boolean isInShard(final FaoDomain domain)
+    {
+        if (shardCount == 1)
+            return true;
+
+        final CRC32 checksum = new CRC32();
+        checksum.update(domain.getDomainCode().getBytes(StandardCharsets.UTF_8));
+
+        return checksum.getValue() % shardCount == shardIndex;
+    }
+}
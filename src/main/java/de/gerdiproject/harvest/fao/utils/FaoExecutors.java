@@ -0,0 +1,73 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class creates executors for blocking HTTP requests.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class FaoExecutors
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoExecutors.class);
+
+
+    /**
+     * Creates an executor for blocking requests. If virtual threads are requested and the
+     * runtime supports them (Java 21 or newer), every task runs on its own virtual thread,
+     * which allows hundreds of concurrent requests at the cost of a few kilobytes each.
+     * Otherwise, a fixed number of daemon platform threads with small stacks is used.
+     * The executor is looked up at runtime, so the harvester still runs on Java 8.
+     *
+     * @param useVirtualThreads if true, virtual threads are used if they are supported
+     * @param platformThreads the number of platform threads that are used
+     *         if virtual threads are not used
+     * @param threadName the name of the platform threads
+     *
+     * @return an executor for blocking requests
+     */
+    public static ExecutorService newRequestExecutor(final boolean useVirtualThreads, final int platformThreads, final String threadName)
+    {
+        if (useVirtualThreads) {
+            try {
+                return (ExecutorService) Executors.class
+                       .getMethod(FaoExtractorConstants.VIRTUAL_EXECUTOR_METHOD)
+                       .invoke(null);
+
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                LOGGER.warn(FaoExtractorConstants.VIRTUAL_THREADS_UNSUPPORTED);
+            }
+        }
+
+        return Executors.newFixedThreadPool(platformThreads, r -> {
+            final Thread t = new Thread(null, r, threadName, FaoExtractorConstants.PLATFORM_THREAD_STACK_SIZE);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class contains interfaces for demand-driven streams with backpressure.
+ * The interfaces mirror those of {@code java.util.concurrent.Flow} and follow the same
+ * rules, so that they can be bridged to the JDK or any Reactive Streams library
+ * with a thin adapter, while the harvester still runs on Java 8.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class FaoFlow
+{
+    /**
+     * A producer of items that are received by subscribers.
+     *
+     * @param <T> the type of the published items
+     *
+     * @author Robin Weiss
+     */
+    @FunctionalInterface
+    public interface Publisher<T>
+    {
+        /**
+         * Adds a subscriber, which first receives a {@linkplain Subscription}
+         * via {@linkplain Subscriber#onSubscribe(Subscription)}.
+         *
+         * @param subscriber the subscriber that is to receive items
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+
+    /**
+     * A receiver of items that are published by a {@linkplain Publisher}.
+     *
+     * @param <T> the type of the received items
+     *
+     * @author Robin Weiss
+     */
+    public interface Subscriber<T>
+    {
+        /**
+         * Is called once before any other method, providing the subscription
+         * through which items are requested.
+         *
+         * @param subscription the subscription of this subscriber
+         */
+        void onSubscribe(Subscription subscription);
+
+
+        /**
+         * Receives the next item. It is never called more often than items were requested.
+         *
+         * @param item the next item
+         */
+        void onNext(T item);
+
+
+        /**
+         * Is called when the publisher failed. No other methods are called afterwards.
+         *
+         * @param throwable the cause of the failure
+         */
+        void onError(Throwable throwable);
+
+
+        /**
+         * Is called when all items were published. No other methods are called afterwards.
+         */
+        void onComplete();
+    }
+
+
+    /**
+     * A link between a {@linkplain Publisher} and a {@linkplain Subscriber}
+     * through which the subscriber signals its demand.
+     *
+     * @author Robin Weiss
+     */
+    public interface Subscription
+    {
+        /**
+         * Adds a number of items to the demand of the subscriber.
+         *
+         * @param n the number of additionally requested items, which must be positive
+         */
+        void request(long n);
+
+
+        /**
+         * Stops publishing items to the subscriber and releases the resources
+         * of the subscription.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import de.gerdiproject.harvest.application.MainContextUtils;
+import de.gerdiproject.harvest.fao.constants.FaoCacheConstants;
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.json.GsonUtils;
+
+/**
+ * This class persists the codes of all groups that are listed by FAOSTAT whenever
+ * the domain list is retrieved, so that one ETL per group can be created when the
+ * harvester starts, without retrieving the domain list during the startup.
+ *
+ * @author Robin Weiss
+ */
+public class FaoGroupCodeStore
+{
+    private final File file;
+    private final DiskIO diskIO;
+
+
+    /**
+     * Constructor for a store in the cache folder of the harvester.
+     *
+     * @param charset the charset of the stored group codes
+     */
+    public FaoGroupCodeStore(final Charset charset)
+    {
+        this.file = new File(
+            MainContextUtils.getCacheDirectory(getClass()),
+            FaoCacheConstants.CACHE_FOLDER + File.separatorChar + FaoCacheConstants.GROUP_CODES_FILE_NAME);
+        this.diskIO = new DiskIO(GsonUtils.createGerdiDocumentGsonBuilder().create(), charset);
+    }
+
+
+    /**
+     * Retrieves the stored group codes.
+     *
+     * @return the group codes in the order in which FAOSTAT listed them,
+     *          or an empty list if no group codes were stored yet
+     */
+    public List<String> load()
+    {
+        final List<String> groupCodes = file.exists()
+                                        ? diskIO.getObject(file, FaoCacheConstants.GROUP_CODES_TYPE)
+                                        : null;
+
+        return groupCodes == null
+               ? Collections.emptyList()
+               : groupCodes;
+    }
+
+
+    /**
+     * Stores the codes of the groups of a domain list, unless they did not change.
+     *
+     * @param domains all domains that are listed by FAOSTAT
+     */
+    public synchronized void save(final List<FaoDomain> domains)
+    {
+        final Set<String> groupCodes = new LinkedHashSet<>();
+
+        for (final FaoDomain d : domains)
+            groupCodes.add(d.getGroupCode());
+
+        final List<String> groupCodeList = new ArrayList<>(groupCodes);
+
+        if (!groupCodeList.isEmpty() && !groupCodeList.equals(load()))
+            diskIO.writeObjectToFile(file, groupCodeList);
+    }
+}
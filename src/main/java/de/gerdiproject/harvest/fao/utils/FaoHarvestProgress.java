@@ -0,0 +1,48 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.util.Set;
+
+import lombok.Value;
+
+/**
+ * This class is a value object that holds a snapshot of the progress of a harvest.
+ * Domains are weighted by the number of requests they required in the previous harvest.
+ * Stale domains were harvested from stored responses that were served without waiting for a live request.
+ * An aborted harvest was stopped or failed before all domains were harvested,
+ * and its progress is the one it reached.
+ * While the domain list is refreshed in the background, the number of domains may refer
+ * to the stored domain list of the previous harvest.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class FaoHarvestProgress
+{
+    private final String etlName;
+    private final boolean isHarvesting;
+    private final boolean isRefreshingDomains;
+    private final boolean isAborted;
+    private final int harvestedDomains;
+    private final int totalDomains;
+    private final long sentRequests;
+    private final long expectedRequests;
+    private final double progressPercent;
+    private final double averageRequestMillis;
+    private final long estimatedRemainingSeconds;
+    private final Set<String> staleDomains;
+}
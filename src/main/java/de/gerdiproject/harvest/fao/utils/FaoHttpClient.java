@@ -0,0 +1,266 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+import de.gerdiproject.harvest.application.MainContextUtils;
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.BooleanParameter;
+import de.gerdiproject.harvest.fao.constants.FaoCacheConstants;
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
+import de.gerdiproject.json.GsonUtils;
+
+/**
+ * This class sends GET requests to FAOSTAT with connect and read timeouts,
+ * so that a request that hangs is given up by the thread that sent it.
+ * All open connections can be closed at once in order to stop the requests
+ * of an aborted harvest.
+ * Like the {@linkplain de.gerdiproject.harvest.utils.data.HttpRequester},
+ * responses are read from and written to the HTTP cache folder if the
+ * readFromDisk and writeToDisk parameters are enabled.
+ *
+ * @author Robin Weiss
+ */
+public class FaoHttpClient
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoHttpClient.class);
+
+    private final Set<HttpURLConnection> openConnections = ConcurrentHashMap.newKeySet();
+    private final Gson gson = GsonUtils.createGerdiDocumentGsonBuilder().create();
+    private final BooleanParameter readFromDisk;
+    private final BooleanParameter writeToDisk;
+    private volatile Charset charset;
+
+
+    /**
+     * Constructor
+     *
+     * @param charset the charset of the response bodies
+     */
+    public FaoHttpClient(final Charset charset)
+    {
+        this.charset = charset;
+        this.readFromDisk = Configuration.registerParameter(new BooleanParameter(
+                                                               FaoCacheConstants.READ_FROM_DISK_KEY,
+                                                               FaoCacheConstants.HTTP_REQUESTS_CATEGORY,
+                                                               false));
+        this.writeToDisk = Configuration.registerParameter(new BooleanParameter(
+                                                              FaoCacheConstants.WRITE_TO_DISK_KEY,
+                                                              FaoCacheConstants.HTTP_REQUESTS_CATEGORY,
+                                                              false));
+    }
+
+
+    /**
+     * Changes the charset of the response bodies.
+     *
+     * @param charset the charset of the response bodies
+     */
+    public void setCharset(final Charset charset)
+    {
+        this.charset = charset;
+    }
+
+
+    /**
+     * Retrieves the charset of the response bodies.
+     *
+     * @return the charset of the response bodies
+     */
+    public Charset getCharset()
+    {
+        return charset;
+    }
+
+
+    /**
+     * Sends a GET request and reads the response body. If reading from disk
+     * is enabled and the response of the URL is cached, the cached response
+     * is returned instead.
+     *
+     * @param url the URL that is to be requested
+     * @param timeoutMillis the maximum number of milliseconds to wait for the connection
+     *         and for each read, or zero if the request does not time out
+     *
+     * @throws SocketTimeoutException if the request exceeded its timeout
+     *
+     * @return the response, which has no body if the request failed
+     */
+    public FaoHttpResponse get(final String url, final int timeoutMillis) throws SocketTimeoutException
+    {
+        final File cacheFile = getCacheFile(url);
+
+        if (readFromDisk.getValue() && cacheFile.exists()) {
+            final String cachedBody = new DiskIO(gson, charset).getString(cacheFile);
+
+            if (cachedBody != null)
+                return new FaoHttpResponse(HttpURLConnection.HTTP_OK, cachedBody, -1);
+        }
+
+        final FaoHttpResponse response = getFromWeb(url, timeoutMillis);
+
+        if (writeToDisk.getValue() && response.getBody() != null)
+            new DiskIO(gson, charset).writeStringToFile(cacheFile, response.getBody());
+
+        return response;
+    }
+
+
+    /**
+     * Sends a GET request and reads the response body.
+     *
+     * @param url the URL that is to be requested
+     * @param timeoutMillis the maximum number of milliseconds to wait for the connection
+     *         and for each read, or zero if the request does not time out
+     *
+     * @throws SocketTimeoutException if the request exceeded its timeout
+     *
+     * @return the response, which has no body if the request failed
+     */
+    private FaoHttpResponse getFromWeb(final String url, final int timeoutMillis) throws SocketTimeoutException
+    {
+        HttpURLConnection connection = null;
+
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            openConnections.add(connection);
+
+            final int statusCode = connection.getResponseCode();
+
+            if (statusCode != HttpURLConnection.HTTP_OK) {
+                final long retryAfter = FaoRetryPolicy.getRetryAfterMillis(connection);
+                closeQuietly(connection.getErrorStream());
+                return new FaoHttpResponse(statusCode, null, retryAfter);
+            }
+
+            return new FaoHttpResponse(statusCode, readBody(connection), -1);
+
+        } catch (final SocketTimeoutException e) {
+            throw e;
+
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(FaoExtractorConstants.REQUEST_FAILED, url), e);
+            return new FaoHttpResponse(FaoExtractorConstants.NO_STATUS_CODE, null, -1);
+
+        } finally {
+            if (connection != null)
+                openConnections.remove(connection);
+        }
+    }
+
+
+    /**
+     * Maps a URL to the file of the HTTP cache folder in which its response
+     * is stored, following the file structure of the
+     * {@linkplain de.gerdiproject.harvest.utils.data.HttpRequester}.
+     *
+     * @param url the URL of which the response is cached
+     *
+     * @return the file that contains the cached response body
+     */
+    private File getCacheFile(final String url)
+    {
+        final int schemeEnd = url.indexOf(FaoCacheConstants.SCHEME_SEPARATOR);
+
+        String path = schemeEnd == -1
+                      ? url
+                      : url.substring(schemeEnd + FaoCacheConstants.SCHEME_SEPARATOR.length());
+
+        path = path.replace(FaoCacheConstants.PORT_SEPARATOR, FaoCacheConstants.ESCAPED_PORT_SEPARATOR)
+               .replace(FaoCacheConstants.QUERY_SEPARATOR, FaoCacheConstants.QUERY_FOLDER)
+               .replaceAll(FaoCacheConstants.REPEATED_SLASHES_REGEX, "/");
+
+        if (path.endsWith("/"))
+            path = path.substring(0, path.length() - 1);
+
+        return new File(
+                   MainContextUtils.getCacheDirectory(getClass()),
+                   DataOperationConstants.CACHE_FOLDER_PATH + path + FaoCacheConstants.RESPONSE_FILE_EXTENSION);
+    }
+
+
+    /**
+     * Closes all open connections, causing their requests to fail.
+     */
+    public void disconnectAll()
+    {
+        for (final HttpURLConnection connection : openConnections)
+            connection.disconnect();
+    }
+
+
+    /**
+     * Reads the body of a successful response.
+     *
+     * @param connection the connection that received the response
+     *
+     * @throws IOException if the body could not be read
+     *
+     * @return the response body
+     */
+    private String readBody(final HttpURLConnection connection) throws IOException
+    {
+        final StringBuilder body = new StringBuilder();
+        final char[] buffer = new char[FaoExtractorConstants.READ_BUFFER_SIZE];
+
+        try (Reader reader = new InputStreamReader(connection.getInputStream(), charset)) {
+            int length;
+
+            while ((length = reader.read(buffer)) != -1)
+                body.append(buffer, 0, length);
+        }
+
+        return body.toString();
+    }
+
+
+    /**
+     * Closes a stream, ignoring any errors.
+     *
+     * @param stream the stream that is to be closed, or null
+     */
+    private static void closeQuietly(final InputStream stream)
+    {
+        if (stream == null)
+            return;
+
+        try {
+            stream.close();
+        } catch (final IOException e) {
+            // the connection is not reused
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import lombok.Value;
+
+/**
+ * This class is a value object that holds the outcome of a single HTTP request.
+ * It is immutable, so that a response can be shared by all callers that
+ * requested the same URL at the same time.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class FaoHttpResponse
+{
+    private final int statusCode;
+    private final String body;
+    private final long retryAfterMillis;
+
+
+    /**
+     * Checks if the request yielded a response body.
+     *
+     * @return true if the request succeeded
+     */
+    public boolean isSuccessful()
+    {
+        return body != null;
+    }
+}
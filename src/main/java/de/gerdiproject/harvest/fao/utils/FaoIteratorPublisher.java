@@ -0,0 +1,197 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+
+/**
+ * This {@linkplain FaoFlow.Publisher} publishes the elements of a lazily created
+ * {@linkplain Iterator}. Elements are only retrieved from the iterator when the
+ * subscriber has signalled demand, and they are retrieved on an {@linkplain Executor}
+ * instead of the subscriber's thread. No thread is occupied while there is no demand.
+ * Since the iterator can only be traversed once, the publisher accepts a single subscriber.
+ *
+ * @param <T> the type of the published elements
+ *
+ * @author Robin Weiss
+ */
+public class FaoIteratorPublisher<T> implements FaoFlow.Publisher<T>
+{
+    private final Callable<Iterator<T>> iteratorSupplier;
+    private final Executor executor;
+    private final Runnable cancelHandler;
+    private final AtomicBoolean isSubscribed = new AtomicBoolean();
+
+
+    /**
+     * Constructor
+     *
+     * @param iteratorSupplier creates the iterator when the first element is requested
+     * @param executor the executor on which the iterator is traversed
+     * @param cancelHandler is called when the subscription is cancelled
+     *         in order to release the resources of the iterator
+     */
+    public FaoIteratorPublisher(final Callable<Iterator<T>> iteratorSupplier, final Executor executor, final Runnable cancelHandler)
+    {
+        this.iteratorSupplier = iteratorSupplier;
+        this.executor = executor;
+        this.cancelHandler = cancelHandler;
+    }
+
+
+    @Override
+    public void subscribe(final FaoFlow.Subscriber<? super T> subscriber)
+    {
+        if (isSubscribed.compareAndSet(false, true))
+            subscriber.onSubscribe(new IteratorSubscription(subscriber));
+
+        else {
+            final IteratorSubscription rejected = new IteratorSubscription(subscriber);
+            subscriber.onSubscribe(rejected);
+            rejected.fail(new IllegalStateException(FaoExtractorConstants.SINGLE_SUBSCRIBER_ERROR));
+        }
+    }
+
+
+    /**
+     * This subscription traverses the iterator on the executor while there is demand.
+     * All signals to the subscriber are sent by at most one thread at a time.
+     *
+     * @author Robin Weiss
+     */
+    private class IteratorSubscription implements FaoFlow.Subscription, Runnable
+    {
+        private final FaoFlow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile boolean isDone;
+        private volatile Throwable pendingError;
+        private Iterator<T> iterator;
+
+
+        /**
+         * Constructor
+         *
+         * @param subscriber the subscriber that receives the elements
+         */
+        IteratorSubscription(final FaoFlow.Subscriber<? super T> subscriber)
+        {
+            this.subscriber = subscriber;
+        }
+
+
+        @Override
+        public void request(final long n)
+        {
+            if (n <= 0)
+                fail(new IllegalArgumentException(String.format(FaoExtractorConstants.INVALID_DEMAND_ERROR, n)));
+            else {
+                // the demand is capped at Long.MAX_VALUE, which means unbounded
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+                scheduleDrain();
+            }
+        }
+
+
+        @Override
+        public void cancel()
+        {
+            if (!isDone) {
+                isDone = true;
+                cancelHandler.run();
+            }
+        }
+
+
+        /**
+         * Terminates the subscription with an error, which is signalled by the draining thread.
+         *
+         * @param error the cause of the failure
+         */
+        void fail(final Throwable error)
+        {
+            pendingError = error;
+            scheduleDrain();
+        }
+
+
+        /**
+         * Drains the iterator on the executor, unless a drain is already running.
+         */
+        private void scheduleDrain()
+        {
+            if (pendingDrains.getAndIncrement() == 0)
+                executor.execute(this);
+        }
+
+
+        @Override
+        public void run()
+        {
+            int missedDrains = 1;
+
+            do {
+                drain();
+                missedDrains = pendingDrains.addAndGet(-missedDrains);
+            } while (missedDrains != 0);
+        }
+
+
+        /**
+         * Publishes as many elements as were requested, and signals the
+         * completion or failure of the iterator.
+         */
+        private void drain()
+        {
+            try {
+                if (isDone)
+                    return;
+
+                if (pendingError != null)
+                    throw pendingError;
+
+                if (iterator == null)
+                    iterator = iteratorSupplier.call();
+
+                while (!isDone && demand.get() > 0 && iterator.hasNext()) {
+                    final T element = iterator.next();
+
+                    if (demand.get() != Long.MAX_VALUE)
+                        demand.decrementAndGet();
+
+                    subscriber.onNext(element);
+                }
+
+                if (!isDone && !iterator.hasNext()) {
+                    isDone = true;
+                    subscriber.onComplete();
+                }
+            } catch (final Throwable e) {
+                if (!isDone) {
+                    isDone = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.io.Writer;
+
+import com.google.gson.Gson;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class calculates the sizes of the JSON representations of objects
+ * without keeping the JSON strings in memory.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoJsonSize
+{
+    /**
+     * Calculates the size of the UTF-8 encoded JSON representation of an object.
+     *
+     * @param gson the Gson instance that serializes the object
+     * @param object the object that is to be measured
+     *
+     * @return the size of the JSON representation in bytes
+     */
+    public static long measure(final Gson gson, final Object object)
+    {
+        final ByteCountingWriter writer = new ByteCountingWriter();
+        gson.toJson(object, writer);
+        return writer.byteCount;
+    }
+
+
+    /**
+     * This writer discards all characters and only counts the bytes
+     * that they would occupy if they were encoded in UTF-8.
+     *
+     * @author Robin Weiss
+     */
+    private static class ByteCountingWriter extends Writer
+    {
+        private long byteCount;
+
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len)
+        {
+            for (int i = off; i < off + len; i++) {
+                final char c = cbuf[i];
+
+                if (c < 0x80)
+                    byteCount++;
+                else if (c < 0x800 || Character.isSurrogate(c))
+                    byteCount += 2;
+                else
+                    byteCount += 3;
+            }
+        }
+
+
+        @Override
+        public void flush()
+        {
+            // nothing is buffered
+        }
+
+
+        @Override
+        public void close()
+        {
+            // nothing needs to be released
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import de.gerdiproject.harvest.fao.constants.FaoLinkConstants;
+import lombok.Value;
+
+/**
+ * This class is a value object that holds the result of a link validation.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class FaoLinkStatus
+{
+    private final String url;
+    private final int statusCode;
+    private final long contentLength;
+    private final String lastModified;
+    private final long checkedTimestamp;
+
+
+    /**
+     * Checks if the link could not be resolved, either because the server
+     * was unreachable or because it responded with an error status.
+     *
+     * @return true if the link is broken
+     */
+    public boolean isBroken()
+    {
+        return statusCode < FaoLinkConstants.MIN_ALIVE_STATUS
+               || statusCode > FaoLinkConstants.MAX_ALIVE_STATUS;
+    }
+
+
+    /**
+     * Creates a short, human readable explanation of why the link is broken.
+     *
+     * @return a description of the link status
+     */
+    public String getStatusDescription()
+    {
+        return statusCode == FaoLinkConstants.UNREACHABLE_STATUS
+               ? FaoLinkConstants.UNREACHABLE_FLAG
+               : String.format(FaoLinkConstants.HTTP_STATUS_FLAG, statusCode);
+    }
+}
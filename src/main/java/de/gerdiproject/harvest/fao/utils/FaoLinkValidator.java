@@ -0,0 +1,274 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.fao.constants.FaoLinkConstants;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.json.GsonUtils;
+
+/**
+ * This class validates links by sending concurrent, rate-limited HEAD requests.
+ * The results are cached on disk and reused until they expire. The time that is spent
+ * waiting for results is limited per call and for the whole lifetime of the validator,
+ * so the validation never delays a harvest by more than a fixed amount of time.
+ * Requests that did not finish in time keep running and fill the cache for later calls.
+ *
+ * @author Robin Weiss
+ */
+public class FaoLinkValidator
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoLinkValidator.class);
+
+    private final Map<String, FaoLinkStatus> cache = new ConcurrentHashMap<>();
+    private final Map<String, Future<FaoLinkStatus>> pendingChecks = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final FaoRateLimiter rateLimiter;
+    private final DiskIO diskIO;
+    private final File cacheFile;
+    private final long timeToLive;
+    private final AtomicLong remainingBudget;
+
+
+    /**
+     * Constructor that loads previously cached link states.
+     *
+     * @param cacheFile the file in which the link states are cached
+     * @param charset the charset of the cache file
+     * @param threads the number of requests that can be sent in parallel
+     * @param requestsPerSecond the maximum number of requests per second,
+     *         or zero for an unlimited rate
+     * @param timeToLive the number of milliseconds until a cached link state expires
+     * @param totalBudget the number of milliseconds that may be spent waiting for
+     *         results during the lifetime of the validator
+     */
+    public FaoLinkValidator(final File cacheFile, final Charset charset, final int threads, final double requestsPerSecond, final long timeToLive, final long totalBudget)
+    {
+        this.cacheFile = cacheFile;
+        this.timeToLive = timeToLive;
+        this.remainingBudget = new AtomicLong(totalBudget);
+        this.rateLimiter = new FaoRateLimiter(requestsPerSecond);
+        this.diskIO = new DiskIO(GsonUtils.createGerdiDocumentGsonBuilder().create(), charset);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            final Thread t = new Thread(r, FaoLinkConstants.THREAD_NAME);
+            t.setDaemon(true);
+            return t;
+        });
+
+        if (cacheFile.exists()) {
+            final List<FaoLinkStatus> cachedStates = diskIO.getObject(cacheFile, FaoLinkConstants.LINK_STATUS_LIST_TYPE);
+
+            if (cachedStates != null) {
+                for (final FaoLinkStatus s : cachedStates)
+                    cache.put(s.getUrl(), s);
+            }
+        }
+    }
+
+
+    /**
+     * Validates a collection of links, waiting for at most a specified time.
+     * Links that are not cached and could not be validated in time are
+     * missing from the result. Once the total budget is exhausted, only
+     * cached link states are returned and no more links are checked.
+     * The budget may be shared by multiple threads.
+     *
+     * @param urls the links that are to be validated
+     * @param timeout the maximum number of milliseconds to wait for results
+     *
+     * @return a map of links to their states
+     */
+    public Map<String, FaoLinkStatus> validate(final Collection<String> urls, final long timeout)
+    {
+        final Map<String, FaoLinkStatus> states = new HashMap<>();
+        final Map<String, Future<FaoLinkStatus>> futures = new LinkedHashMap<>();
+        final long now = System.currentTimeMillis();
+        final long budget = remainingBudget.get();
+
+        for (final String url : urls) {
+            final FaoLinkStatus cachedStatus = cache.get(url);
+
+            if (cachedStatus != null && now - cachedStatus.getCheckedTimestamp() < timeToLive)
+                states.put(url, cachedStatus);
+
+            // do not send requests whose results would not be awaited
+            else if (budget > 0)
+                futures.put(url, pendingChecks.computeIfAbsent(url, u -> executor.submit(() -> check(u))));
+        }
+
+        if (futures.isEmpty())
+            return states;
+
+        final long startNanos = System.nanoTime();
+        final long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(Math.min(timeout, budget));
+
+        for (final Map.Entry<String, Future<FaoLinkStatus>> entry : futures.entrySet()) {
+            try {
+                final long waitNanos = Math.max(0, deadlineNanos - System.nanoTime());
+                states.put(entry.getKey(), entry.getValue().get(waitNanos, TimeUnit.NANOSECONDS));
+
+            } catch (final TimeoutException e) {
+                // the link state remains unknown
+
+            } catch (final ExecutionException e) {
+                LOGGER.warn(entry.getKey(), e.getCause());
+
+            } catch (final CancellationException e) {
+                // the validator was shut down
+                break;
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        final long newBudget = remainingBudget.addAndGet(-elapsedMillis);
+
+        // only the thread that exhausted the budget reports it
+        if (newBudget <= 0 && newBudget + elapsedMillis > 0)
+            LOGGER.warn(FaoLinkConstants.BUDGET_EXHAUSTED);
+
+        return states;
+    }
+
+
+    /**
+     * Writes all link states that have not expired to the cache file.
+     */
+    public void save()
+    {
+        final long now = System.currentTimeMillis();
+        final List<FaoLinkStatus> validStates = new ArrayList<>(cache.size());
+
+        for (final FaoLinkStatus s : cache.values()) {
+            if (now - s.getCheckedTimestamp() < timeToLive)
+                validStates.add(s);
+        }
+
+        diskIO.writeObjectToFile(cacheFile, validStates);
+    }
+
+
+    /**
+     * Cancels all pending requests.
+     */
+    public void shutdown()
+    {
+        for (final Runnable queuedTask : executor.shutdownNow()) {
+            if (queuedTask instanceof Future)
+                ((Future<?>) queuedTask).cancel(false);
+        }
+    }
+
+
+    /**
+     * Sends a request to a link and caches its state.
+     *
+     * @param url the link that is to be validated
+     *
+     * @throws InterruptedException if the thread was interrupted while waiting for the rate limit
+     *
+     * @return the state of the link
+     */
+    private FaoLinkStatus check(final String url) throws InterruptedException
+    {
+        try {
+            FaoLinkStatus status;
+
+            try {
+                rateLimiter.acquire(1);
+                status = request(url, FaoLinkConstants.HEAD_METHOD);
+
+                // some servers do not support HEAD requests
+                if (status.getStatusCode() == HttpURLConnection.HTTP_BAD_METHOD
+                    || status.getStatusCode() == HttpURLConnection.HTTP_NOT_IMPLEMENTED) {
+                    rateLimiter.acquire(1);
+                    status = request(url, FaoLinkConstants.GET_METHOD);
+                }
+            } catch (final IOException e) {
+                status = new FaoLinkStatus(url, FaoLinkConstants.UNREACHABLE_STATUS, -1, null, System.currentTimeMillis());
+            }
+
+            if (status.isBroken())
+                LOGGER.info(String.format(FaoLinkConstants.BROKEN_LINK, status.getStatusDescription(), url));
+
+            cache.put(url, status);
+            return status;
+
+        } finally {
+            pendingChecks.remove(url);
+        }
+    }
+
+
+    /**
+     * Sends a single request to a link without reading the response body.
+     * GET requests only ask for the first byte of the resource.
+     *
+     * @param url the link that is to be validated
+     * @param method the HTTP method of the request
+     *
+     * @throws IOException if the server could not be reached
+     *
+     * @return the state of the link
+     */
+    private FaoLinkStatus request(final String url, final String method) throws IOException
+    {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(FaoLinkConstants.CONNECT_TIMEOUT);
+        connection.setReadTimeout(FaoLinkConstants.READ_TIMEOUT);
+        connection.setRequestMethod(method);
+
+        if (FaoLinkConstants.GET_METHOD.equals(method))
+            connection.setRequestProperty(FaoLinkConstants.RANGE_HEADER, FaoLinkConstants.FIRST_BYTE_RANGE);
+
+        try {
+            return new FaoLinkStatus(
+                       url,
+                       connection.getResponseCode(),
+                       connection.getContentLengthLong(),
+                       connection.getHeaderField(FaoLinkConstants.LAST_MODIFIED_HEADER),
+                       System.currentTimeMillis());
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
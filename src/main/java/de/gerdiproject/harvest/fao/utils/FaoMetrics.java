@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.fao.constants.FaoMetricsConstants;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This static class exposes metrics of ETLs via the platform MBean server.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class FaoMetrics
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoMetrics.class);
+
+
+    /**
+     * Registers an MXBean of an ETL, unless an MXBean of the same type
+     * was already registered for the ETL.
+     *
+     * @param mxBean the MXBean that is to be registered
+     * @param nameFormat the format of the object name, which receives the quoted ETL name
+     * @param etlName the name of the ETL
+     */
+    public static void register(final Object mxBean, final String nameFormat, final String etlName)
+    {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(String.format(nameFormat, ObjectName.quote(etlName)));
+
+            if (!server.isRegistered(objectName))
+                server.registerMBean(mxBean, objectName);
+
+        } catch (final JMException e) {
+            LOGGER.warn(String.format(FaoMetricsConstants.MBEAN_REGISTRATION_FAILED, nameFormat, etlName), e);
+        }
+    }
+
+
+    /**
+     * Unregisters an MXBean of an ETL, if it is registered.
+     *
+     * @param nameFormat the format of the object name, which receives the quoted ETL name
+     * @param etlName the name of the ETL
+     */
+    public static void unregister(final String nameFormat, final String etlName)
+    {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(String.format(nameFormat, ObjectName.quote(etlName)));
+
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+
+        } catch (final JMException e) {
+            LOGGER.warn(String.format(FaoMetricsConstants.MBEAN_UNREGISTRATION_FAILED, nameFormat, etlName), e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.util.List;
+
+import de.gerdiproject.harvest.fao.json.FaoBulkDownload;
+import lombok.Value;
+
+/**
+ * This class is a value object that describes the state of a mirrored
+ * {@linkplain FaoBulkDownload}. It identifies the remote version of the file
+ * and lists the chunks that were already downloaded, allowing interrupted
+ * downloads to be resumed.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class FaoMirrorState
+{
+    private final String createdDate;
+    private final int fileSize;
+    private final long contentLength;
+    private final List<Integer> completedChunks;
+
+
+    /**
+     * Checks if this state refers to the same remote version of a bulk download.
+     *
+     * @param bulkDownload the bulk download that is to be compared
+     *
+     * @return true if the creation date and file size of the bulk download are unchanged
+     */
+    public boolean isSameVersion(final FaoBulkDownload bulkDownload)
+    {
+        return fileSize == bulkDownload.getFileSize()
+               && createdDate != null
+               && createdDate.equals(bulkDownload.getCreatedDate());
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+/**
+ * This interface exposes the progress of a harvest as JMX metrics.
+ *
+ * @author Robin Weiss
+ */
+public interface FaoProgressMXBean
+{
+    /**
+     * Retrieves the weighted progress of the current or last harvest.
+     *
+     * @return the progress in percent
+     */
+    double getProgressPercent();
+
+
+    /**
+     * Retrieves the estimated number of seconds until the current harvest is finished.
+     *
+     * @return the remaining seconds, or -1 if they cannot be estimated yet
+     */
+    long getEstimatedRemainingSeconds();
+
+
+    /**
+     * Retrieves the moving average of the duration of FAOSTAT requests.
+     *
+     * @return the average request duration in milliseconds
+     */
+    double getAverageRequestMillis();
+
+
+    /**
+     * Retrieves the number of FAOSTAT requests that were sent during the current harvest.
+     *
+     * @return the number of sent requests
+     */
+    long getSentRequests();
+
+
+    /**
+     * Retrieves the number of FAOSTAT requests that the current harvest is expected to send.
+     *
+     * @return the number of expected requests
+     */
+    long getExpectedRequests();
+
+
+    /**
+     * Retrieves the number of domains of the current or last harvest that were
+     * harvested from stored responses without waiting for a live request.
+     *
+     * @return the number of stale domains
+     */
+    int getStaleDomainCount();
+
+
+    /**
+     * Checks if the domain list is currently being retrieved in the background.
+     *
+     * @return true if the domain list is being retrieved
+     */
+    boolean isRefreshingDomains();
+
+
+    /**
+     * Checks if the last harvest was aborted or failed before all domains were harvested.
+     *
+     * @return true if the last harvest did not harvest all domains
+     */
+    boolean isAborted();
+}
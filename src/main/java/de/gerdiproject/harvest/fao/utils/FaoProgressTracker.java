@@ -0,0 +1,335 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.gerdiproject.harvest.fao.constants.FaoMetricsConstants;
+import de.gerdiproject.harvest.fao.constants.FaoProgressConstants;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.json.GsonUtils;
+
+/**
+ * This class estimates the progress and the remaining time of the harvests of an ETL.
+ * Each domain is weighted by the number of requests it required in the previous harvest,
+ * and the remaining time is derived from a moving average of the request durations.
+ * Domains that were harvested from stored responses are listed as stale, and a background
+ * refresh of the domain list is reported as well.<br>
+ * The progress of all ETLs is available via {@linkplain #getAll()}, and as JMX metrics.
+ *
+ * @author Robin Weiss
+ */
+public class FaoProgressTracker implements FaoProgressMXBean
+{
+    private static final Map<String, FaoProgressTracker> TRACKERS = new ConcurrentHashMap<>();
+
+    private final Map<String, Integer> expectedRequestsPerDomain = new ConcurrentHashMap<>();
+    private final Map<String, Integer> actualRequestsPerDomain = new ConcurrentHashMap<>();
+    private final AtomicInteger harvestedDomains = new AtomicInteger();
+    private final AtomicLong sentRequests = new AtomicLong();
+    private final AtomicLong harvestedWeight = new AtomicLong();
+    private final Set<String> staleDomains = ConcurrentHashMap.newKeySet();
+
+    private volatile String etlName;
+    private volatile File requestCountFile;
+    private volatile DiskIO diskIO;
+    private volatile boolean isHarvesting;
+    private volatile boolean isRefreshingDomains;
+    private volatile boolean isAborted;
+    private volatile int totalDomains;
+    private volatile long expectedRequests;
+    private volatile int concurrency = 1;
+    private double averageRequestMillis;
+
+
+    /**
+     * Retrieves the progress of all ETLs that started a harvest since the service started.
+     *
+     * @return a list of progress snapshots
+     */
+    public static List<FaoHarvestProgress> getAll()
+    {
+        final List<FaoHarvestProgress> progresses = new LinkedList<>();
+
+        for (final FaoProgressTracker tracker : TRACKERS.values())
+            progresses.add(tracker.getProgress());
+
+        return progresses;
+    }
+
+
+    /**
+     * Starts tracking a harvest. The expected number of requests of each domain is
+     * loaded from the previous harvest. Domains that were not harvested before are
+     * expected to require the average number of requests.
+     *
+     * @param name the name of the ETL that harvests
+     * @param countFile the file in which the request counts of the previous harvest are stored
+     * @param charset the charset of the file
+     * @param domainCodes the codes of the domains that are to be harvested
+     * @param maxConcurrentRequests the maximum number of requests that are sent at the same time
+     */
+    public void start(final String name, final File countFile, final Charset charset, final Collection<String> domainCodes, final int maxConcurrentRequests)
+    {
+        this.etlName = name;
+        this.requestCountFile = countFile;
+        this.diskIO = new DiskIO(GsonUtils.createGerdiDocumentGsonBuilder().create(), charset);
+        this.concurrency = Math.max(1, maxConcurrentRequests);
+
+        final Map<String, Integer> previousCounts = countFile.exists()
+                                                    ? diskIO.getObject(countFile, FaoProgressConstants.REQUEST_COUNT_MAP_TYPE)
+                                                    : null;
+        expectedRequestsPerDomain.clear();
+        actualRequestsPerDomain.clear();
+
+        if (previousCounts != null)
+            expectedRequestsPerDomain.putAll(previousCounts);
+
+        final int defaultRequests = expectedRequestsPerDomain.isEmpty()
+                                    ? FaoProgressConstants.DEFAULT_REQUESTS_PER_DOMAIN
+                                    : (int) Math.round(expectedRequestsPerDomain.values().stream().mapToInt(Integer::intValue).average().getAsDouble());
+        long expectedSum = 0;
+
+        for (final String domainCode : domainCodes)
+            expectedSum += expectedRequestsPerDomain.computeIfAbsent(domainCode, c -> defaultRequests);
+
+        this.expectedRequests = expectedSum;
+        this.totalDomains = domainCodes.size();
+        harvestedDomains.set(0);
+        harvestedWeight.set(0);
+        sentRequests.set(0);
+        staleDomains.clear();
+        this.isAborted = false;
+        this.isHarvesting = true;
+        register(name);
+    }
+
+
+    /**
+     * Marks whether the domain list is currently being retrieved in the background.
+     * The ETL is listed among all progresses from then on, even if it did not start a harvest yet.
+     *
+     * @param name the name of the ETL that retrieves the domain list
+     * @param isRefreshing true if the domain list is being retrieved
+     */
+    public void setRefreshingDomains(final String name, final boolean isRefreshing)
+    {
+        this.isRefreshingDomains = isRefreshing;
+
+        if (etlName == null)
+            this.etlName = name;
+
+        register(name);
+    }
+
+
+    /**
+     * Removes this tracker from the progresses of all ETLs and unregisters its JMX bean.
+     * Both are registered again by the next harvest.
+     */
+    public void unregister()
+    {
+        final String name = etlName;
+
+        if (name != null && TRACKERS.remove(name, this))
+            FaoMetrics.unregister(FaoMetricsConstants.PROGRESS_MBEAN_NAME_FORMAT, name);
+    }
+
+
+    /**
+     * Adds this tracker to the progresses of all ETLs and registers it as a JMX bean,
+     * unless it was already registered.
+     *
+     * @param name the name of the ETL that is tracked
+     */
+    private void register(final String name)
+    {
+        if (TRACKERS.put(name, this) == null)
+            FaoMetrics.register(this, FaoMetricsConstants.PROGRESS_MBEAN_NAME_FORMAT, name);
+    }
+
+
+    /**
+     * Records the duration of a request, including all of its retries.
+     *
+     * @param durationNanos the duration of the request in nanoseconds
+     */
+    public void onRequest(final long durationNanos)
+    {
+        sentRequests.incrementAndGet();
+        final double durationMillis = durationNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+
+        synchronized (this) {
+            averageRequestMillis = averageRequestMillis == 0
+                                   ? durationMillis
+                                   : averageRequestMillis + FaoProgressConstants.LATENCY_SMOOTHING_FACTOR * (durationMillis - averageRequestMillis);
+        }
+    }
+
+
+    /**
+     * Records that a stored response was served instead of the response of a live request.
+     *
+     * @param domainCode the code of the domain to which the response belongs
+     */
+    public void onStaleResponse(final String domainCode)
+    {
+        staleDomains.add(domainCode);
+    }
+
+
+    /**
+     * Records that all requests of a domain are done.
+     *
+     * @param domainCode the code of the harvested domain
+     * @param requestCount the number of requests that the domain required
+     */
+    public void onDomainHarvested(final String domainCode, final int requestCount)
+    {
+        actualRequestsPerDomain.put(domainCode, requestCount);
+        harvestedWeight.addAndGet(expectedRequestsPerDomain.getOrDefault(domainCode, requestCount));
+        harvestedDomains.incrementAndGet();
+    }
+
+
+    /**
+     * Stops tracking the harvest and stores the request counts of all harvested domains,
+     * so that the next harvest can be weighted more precisely.
+     * A harvest that stops before all domains were harvested is marked as aborted,
+     * and keeps the progress it reached.
+     *
+     * @param wasAborted true if the harvest was aborted explicitly
+     */
+    public void finish(final boolean wasAborted)
+    {
+        if (!isHarvesting)
+            return;
+
+        this.isAborted = wasAborted || harvestedDomains.get() < totalDomains;
+        this.isHarvesting = false;
+
+        if (!actualRequestsPerDomain.isEmpty()) {
+            final Map<String, Integer> requestCounts = new HashMap<>(expectedRequestsPerDomain);
+            requestCounts.putAll(actualRequestsPerDomain);
+            diskIO.writeObjectToFile(requestCountFile, requestCounts);
+        }
+    }
+
+
+    /**
+     * Creates a snapshot of the progress of the current or last harvest.
+     *
+     * @return a snapshot of the progress
+     */
+    public FaoHarvestProgress getProgress()
+    {
+        return new FaoHarvestProgress(
+                   etlName,
+                   isHarvesting,
+                   isRefreshingDomains,
+                   isAborted,
+                   harvestedDomains.get(),
+                   totalDomains,
+                   getSentRequests(),
+                   getExpectedRequests(),
+                   getProgressPercent(),
+                   getAverageRequestMillis(),
+                   getEstimatedRemainingSeconds(),
+                   new TreeSet<>(staleDomains));
+    }
+
+
+    @Override
+    public double getProgressPercent()
+    {
+        if (!isHarvesting && !isAborted)
+            return totalDomains == 0 ? 0 : 100;
+
+        return expectedRequests == 0
+               ? 0
+               : Math.min(100, 100.0 * harvestedWeight.get() / expectedRequests);
+    }
+
+
+    @Override
+    public long getEstimatedRemainingSeconds()
+    {
+        final double averageMillis = getAverageRequestMillis();
+
+        if (!isHarvesting)
+            return 0;
+
+        if (averageMillis == 0)
+            return -1;
+
+        final long remainingRequests = Math.max(0, expectedRequests - sentRequests.get());
+        return TimeUnit.MILLISECONDS.toSeconds(Math.round(remainingRequests * averageMillis / concurrency));
+    }
+
+
+    @Override
+    public synchronized double getAverageRequestMillis()
+    {
+        return averageRequestMillis;
+    }
+
+
+    @Override
+    public long getSentRequests()
+    {
+        return sentRequests.get();
+    }
+
+
+    @Override
+    public long getExpectedRequests()
+    {
+        return expectedRequests;
+    }
+
+
+    @Override
+    public int getStaleDomainCount()
+    {
+        return staleDomains.size();
+    }
+
+
+    @Override
+    public boolean isRefreshingDomains()
+    {
+        return isRefreshingDomains;
+    }
+
+
+    @Override
+    public boolean isAborted()
+    {
+        return isAborted;
+    }
+}
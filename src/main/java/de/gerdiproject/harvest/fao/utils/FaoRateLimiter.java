@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class limits the rate at which permits, such as bytes or requests, can be
+ * acquired by any number of threads. Threads that exceed the rate are put to sleep.
+ *
+ * @author Robin Weiss
+ */
+public class FaoRateLimiter
+{
+    private final double nanosPerPermit;
+    private long nextFreeNanos;
+
+
+    /**
+     * Constructor
+     *
+     * @param permitsPerSecond the maximum number of permits per second,
+     *         or a value of zero or less for an unlimited rate
+     */
+    public FaoRateLimiter(final double permitsPerSecond)
+    {
+        this.nanosPerPermit = permitsPerSecond > 0
+                              ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond
+                              : 0;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+
+    /**
+     * Acquires a number of permits, waiting until the rate allows it.
+     *
+     * @param permits the number of permits that are to be acquired
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire(final long permits) throws InterruptedException
+    {
+        if (nanosPerPermit == 0)
+            return;
+
+        final long waitNanos;
+
+        synchronized (this) {
+            final long now = System.nanoTime();
+
+            if (nextFreeNanos < now)
+                nextFreeNanos = now;
+
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += (long)(permits * nanosPerPermit);
+        }
+
+        if (waitNanos > 0)
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.io.File;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import de.gerdiproject.harvest.fao.constants.FaoCacheConstants;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.json.GsonUtils;
+
+/**
+ * This class persists the last successful response of every requested URL, so that
+ * a harvest can serve stored responses straight away instead of waiting for a slow
+ * or unavailable server, while the stored responses are refreshed in the background.
+ *
+ * @author Robin Weiss
+ */
+public class FaoResponseStore
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoResponseStore.class);
+
+    private final File folder;
+    private final Gson gson;
+    private final DiskIO diskIO;
+
+
+    /**
+     * Constructor
+     *
+     * @param folder the folder in which the responses are stored
+     * @param charset the charset of the stored responses
+     */
+    public FaoResponseStore(final File folder, final Charset charset)
+    {
+        this.folder = folder;
+        this.gson = GsonUtils.createGerdiDocumentGsonBuilder().create();
+        this.diskIO = new DiskIO(gson, charset);
+    }
+
+
+    /**
+     * Retrieves the stored response of a URL.
+     *
+     * @param url the URL of which the response was stored
+     * @param targetType the type of the parsed response
+     * @param <T> the type of the parsed response
+     *
+     * @return the stored response, or null if no valid response was stored
+     */
+    public <T> T get(final String url, final Type targetType)
+    {
+        final String json = diskIO.getString(getFile(url));
+
+        if (json == null)
+            return null;
+
+        try {
+            return gson.fromJson(json, targetType);
+
+        } catch (final JsonParseException e) {
+            LOGGER.warn(String.format(FaoCacheConstants.STORED_RESPONSE_INVALID, url));
+            return null;
+        }
+    }
+
+
+    /**
+     * Stores the response of a URL, replacing a previously stored response.
+     *
+     * @param url the URL of the response
+     * @param responseBody the unparsed JSON response
+     */
+    public void put(final String url, final String responseBody)
+    {
+        diskIO.writeStringToFile(getFile(url), responseBody);
+    }
+
+
+    /**
+     * Retrieves the file in which the response of a URL is stored.
+     *
+     * @param url the URL of the response
+     *
+     * @return the file of the stored response
+     */
+    private File getFile(final String url)
+    {
+        final String fileId = UUID.nameUUIDFromBytes(url.getBytes(StandardCharsets.UTF_8)).toString();
+        return new File(folder, String.format(FaoCacheConstants.RESPONSE_FILE_NAME, fileId));
+    }
+}
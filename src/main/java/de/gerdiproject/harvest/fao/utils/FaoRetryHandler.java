@@ -0,0 +1,234 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.etls.extractors.EndpointUnavailableException;
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+import de.gerdiproject.harvest.fao.constants.FaoRetryConstants;
+import de.gerdiproject.harvest.fao.enums.FaoEndpoint;
+
+/**
+ * This class retries failed FAOSTAT requests with an exponential backoff and
+ * guards every endpoint type with a {@linkplain FaoCircuitBreaker}.
+ * A request is retried if it yields no response or a transient HTTP status,
+ * honoring the delay that the server requested via the Retry-After header.
+ * The delay before a retry never exceeds the deadline of the request, and ends
+ * as soon as the harvest is aborted.
+ * Exceptions are not retried, because they are caused by aborted harvests,
+ * exceeded deadlines, or responses that cannot be parsed.<br>
+ * The number of retries, opened circuits, and rejected requests are counted.
+ *
+ * @author Robin Weiss
+ */
+public class FaoRetryHandler
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaoRetryHandler.class);
+
+    private final FaoRetryPolicy retryPolicy;
+    private final FaoAbortSignal abortSignal;
+    private final int circuitFailureThreshold;
+    private final int circuitOpenSeconds;
+    private final Map<FaoEndpoint, FaoCircuitBreaker> circuitBreakers = new EnumMap<>(FaoEndpoint.class);
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong openedCircuitCount = new AtomicLong();
+    private final AtomicLong rejectedRequestCount = new AtomicLong();
+
+
+    /**
+     * Constructor
+     *
+     * @param retryPolicy defines how often and when failed requests are retried
+     * @param abortSignal the signal that ends the delays before retries of an aborted harvest
+     * @param circuitFailureThreshold the number of consecutive failures of an endpoint type
+     *         after which its requests are rejected, or zero if requests are never rejected
+     * @param circuitOpenSeconds the number of seconds during which requests are rejected
+     */
+    public FaoRetryHandler(final FaoRetryPolicy retryPolicy, final FaoAbortSignal abortSignal, final int circuitFailureThreshold, final int circuitOpenSeconds)
+    {
+        this.retryPolicy = retryPolicy;
+        this.abortSignal = abortSignal;
+        this.circuitFailureThreshold = circuitFailureThreshold;
+        this.circuitOpenSeconds = circuitOpenSeconds;
+
+        for (final FaoEndpoint endpoint : FaoEndpoint.values())
+            circuitBreakers.put(endpoint, new FaoCircuitBreaker(circuitFailureThreshold, circuitOpenSeconds));
+    }
+
+
+    /**
+     * Sends a request and retries it until it yields a response, fails permanently,
+     * or until the maximum number of attempts is reached.
+     *
+     * @param endpoint the endpoint type of the request
+     * @param url the requested URL
+     * @param deadline the {@linkplain System#nanoTime()} by which the request must be done,
+     *         or {@linkplain FaoExtractorConstants#NO_DEADLINE}
+     * @param request a function that sends the request and returns its response
+     *
+     * @throws EndpointUnavailableException if the endpoint type is considered to be unavailable
+     * @throws CancellationException if the harvest was aborted while waiting for a retry
+     *
+     * @return the successful response, or the response of the last failed attempt
+     */
+    public FaoHttpResponse call(final FaoEndpoint endpoint, final String url, final long deadline, final Supplier<FaoHttpResponse> request)
+    {
+        final FaoCircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+        final int maxAttempts = Math.max(1, retryPolicy.getMaxAttempts());
+
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.allowRequest()) {
+                rejectedRequestCount.incrementAndGet();
+                throw new EndpointUnavailableException(String.format(FaoRetryConstants.CIRCUIT_OPEN_ERROR, endpoint.getKey(), url));
+            }
+
+            final FaoHttpResponse response = attempt(endpoint, circuitBreaker, request);
+
+            if (response.isSuccessful() || !isTransientFailure(response))
+                return response;
+
+            // do not wait for a retry that would be rejected anyway
+            if (circuitBreaker.isOpen())
+                throw new EndpointUnavailableException(String.format(FaoRetryConstants.CIRCUIT_OPEN_ERROR, endpoint.getKey(), url));
+
+            if (attempt >= maxAttempts)
+                return response;
+
+            long delay = retryPolicy.getDelayMillis(attempt, response.getRetryAfterMillis());
+
+            // the next attempt fails with an exceeded deadline, instead of waiting past it
+            if (deadline != FaoExtractorConstants.NO_DEADLINE)
+                delay = Math.max(0, Math.min(delay, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+
+            retryCount.incrementAndGet();
+            LOGGER.warn(String.format(FaoRetryConstants.RETRYING, attempt, maxAttempts, delay, url));
+            abortSignal.await(delay);
+        }
+    }
+
+
+    /**
+     * Sends a single request and reports its outcome to the circuit breaker.
+     * A request that yields a response that is not a transient failure counts
+     * as a success, because the server is available, even if the request will
+     * not succeed when it is repeated. A request that is given up due to an
+     * exception releases the trial request of the circuit breaker.
+     *
+     * @param endpoint the endpoint type of the request
+     * @param circuitBreaker the circuit breaker of the endpoint type
+     * @param request a function that sends the request and returns its response
+     *
+     * @return the response of the request
+     */
+    private FaoHttpResponse attempt(final FaoEndpoint endpoint, final FaoCircuitBreaker circuitBreaker, final Supplier<FaoHttpResponse> request)
+    {
+        boolean isResolved = false;
+
+        try {
+            final FaoHttpResponse response = request.get();
+
+            if (response.isSuccessful() || !isTransientFailure(response)) {
+                if (circuitBreaker.onSuccess())
+                    LOGGER.info(String.format(FaoRetryConstants.CIRCUIT_CLOSED, endpoint.getKey()));
+
+            } else if (circuitBreaker.onFailure()) {
+                openedCircuitCount.incrementAndGet();
+                LOGGER.warn(String.format(FaoRetryConstants.CIRCUIT_OPENED, endpoint.getKey(), circuitFailureThreshold, circuitOpenSeconds));
+            }
+
+            isResolved = true;
+            return response;
+
+        } finally {
+            if (!isResolved)
+                circuitBreaker.onAbandoned();
+        }
+    }
+
+
+    /**
+     * Checks if a failed request may succeed when it is retried.
+     *
+     * @param response the response of the failed request
+     *
+     * @return true if the request could not be sent or failed with a transient HTTP status
+     */
+    private static boolean isTransientFailure(final FaoHttpResponse response)
+    {
+        return response.getStatusCode() == FaoExtractorConstants.NO_STATUS_CODE
+               || FaoRetryPolicy.isRetryable(response.getStatusCode());
+    }
+
+
+    /**
+     * Retrieves the number of endpoint types whose requests are currently rejected.
+     *
+     * @return the number of open circuits
+     */
+    public int getOpenCircuitCount()
+    {
+        int openCircuits = 0;
+
+        for (final FaoCircuitBreaker circuitBreaker : circuitBreakers.values()) {
+            if (circuitBreaker.isOpen())
+                openCircuits++;
+        }
+
+        return openCircuits;
+    }
+
+
+    /**
+     * Retrieves the number of retried requests.
+     *
+     * @return the number of retries
+     */
+    public long getRetryCount()
+    {
+        return retryCount.get();
+    }
+
+
+    /**
+     * Retrieves the number of times that a circuit was opened.
+     *
+     * @return the number of opened circuits
+     */
+    public long getOpenedCircuitCount()
+    {
+        return openedCircuitCount.get();
+    }
+
+
+    /**
+     * Retrieves the number of requests that were rejected, because their circuit was open.
+     *
+     * @return the number of rejected requests
+     */
+    public long getRejectedRequestCount()
+    {
+        return rejectedRequestCount.get();
+    }
+}
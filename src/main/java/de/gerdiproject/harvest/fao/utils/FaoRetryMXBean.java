@@ -0,0 +1,57 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+/**
+ * This interface exposes how often the FAOSTAT requests of a harvest
+ * were retried or rejected as JMX metrics.
+ *
+ * @author Robin Weiss
+ */
+public interface FaoRetryMXBean
+{
+    /**
+     * Retrieves the number of retried requests of the current or last harvest.
+     *
+     * @return the number of retries
+     */
+    long getRetryCount();
+
+
+    /**
+     * Retrieves the number of times that a circuit was opened during the current or last harvest.
+     *
+     * @return the number of opened circuits
+     */
+    long getOpenedCircuitCount();
+
+
+    /**
+     * Retrieves the number of requests of the current or last harvest that were rejected,
+     * because their circuit was open.
+     *
+     * @return the number of rejected requests
+     */
+    long getRejectedRequestCount();
+
+
+    /**
+     * Retrieves the number of endpoint types whose requests are currently rejected.
+     *
+     * @return the number of open circuits
+     */
+    int getOpenCircuitCount();
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import de.gerdiproject.harvest.fao.constants.FaoMetricsConstants;
+
+/**
+ * This class exposes the counters of the {@linkplain FaoRetryHandler} of the
+ * current or last harvest of an ETL as JMX metrics. A new retry handler is
+ * created for every harvest, while this class is registered only once per ETL.
+ *
+ * @author Robin Weiss
+ */
+public class FaoRetryMetrics implements FaoRetryMXBean
+{
+    private volatile FaoRetryHandler retryHandler;
+    private volatile String etlName;
+
+
+    /**
+     * Exposes the counters of the retry handler of a new harvest.
+     *
+     * @param etlName the name of the ETL that harvests
+     * @param handler the retry handler of the new harvest
+     */
+    public void track(final String name, final FaoRetryHandler handler)
+    {
+        final boolean isFirstHarvest = retryHandler == null;
+        this.retryHandler = handler;
+        this.etlName = name;
+
+        if (isFirstHarvest)
+            FaoMetrics.register(this, FaoMetricsConstants.RETRY_MBEAN_NAME_FORMAT, name);
+    }
+
+
+    /**
+     * Unregisters the JMX metrics. They are registered again by the next harvest.
+     */
+    public void unregister()
+    {
+        final String name = etlName;
+
+        if (name != null)
+            FaoMetrics.unregister(FaoMetricsConstants.RETRY_MBEAN_NAME_FORMAT, name);
+
+        this.retryHandler = null;
+    }
+
+
+    @Override
+    public long getRetryCount()
+    {
+        final FaoRetryHandler handler = retryHandler;
+        return handler == null ? 0 : handler.getRetryCount();
+    }
+
+
+    @Override
+    public long getOpenedCircuitCount()
+    {
+        final FaoRetryHandler handler = retryHandler;
+        return handler == null ? 0 : handler.getOpenedCircuitCount();
+    }
+
+
+    @Override
+    public long getRejectedRequestCount()
+    {
+        final FaoRetryHandler handler = retryHandler;
+        return handler == null ? 0 : handler.getRejectedRequestCount();
+    }
+
+
+    @Override
+    public int getOpenCircuitCount()
+    {
+        final FaoRetryHandler handler = retryHandler;
+        return handler == null ? 0 : handler.getOpenCircuitCount();
+    }
+}
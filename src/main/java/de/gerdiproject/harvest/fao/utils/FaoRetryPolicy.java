@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.net.HttpURLConnection;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import de.gerdiproject.harvest.fao.constants.FaoRetryConstants;
+import lombok.Value;
+
+/**
+ * This class is a value object that defines how often and how long after
+ * a failed request the request is retried. The delay grows exponentially
+ * with every attempt and is randomized, so that parallel requests do not
+ * retry in lockstep.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class FaoRetryPolicy
+{
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+
+    /**
+     * Calculates the delay before the next attempt. The delay is chosen randomly
+     * between half and all of the exponential backoff, but is never shorter than
+     * a delay that was requested by the server, unless that exceeds the maximum delay.
+     *
+     * @param attempt the number of the attempt that failed, starting with 1
+     * @param retryAfterMillis the delay that was requested by the server, or -1
+     *
+     * @return the delay in milliseconds
+     */
+    public long getDelayMillis(final int attempt, final long retryAfterMillis)
+    {
+        final int exponent = Math.min(attempt - 1, Long.SIZE - 2);
+        final long backoff = baseDelayMillis > maxDelayMillis >> exponent
+                             ? maxDelayMillis
+                             : baseDelayMillis << exponent;
+        final long jitteredBackoff = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+        return Math.max(jitteredBackoff, Math.min(retryAfterMillis, maxDelayMillis));
+    }
+
+
+    /**
+     * Checks if a request that failed with a specified HTTP status code may succeed
+     * when it is retried.
+     *
+     * @param statusCode the HTTP status code of the failed request
+     *
+     * @return true if the status code indicates a transient failure
+     */
+    public static boolean isRetryable(final int statusCode)
+    {
+        return FaoRetryConstants.RETRYABLE_STATUS_CODES.contains(statusCode);
+    }
+
+
+    /**
+     * Retrieves the delay that a server requested via the Retry-After header,
+     * which contains either a number of seconds or an HTTP date.
+     *
+     * @param connection the connection of the failed request
+     *
+     * @return the requested delay in milliseconds, or -1 if none was requested
+     */
+    public static long getRetryAfterMillis(final HttpURLConnection connection)
+    {
+        final String retryAfter = connection.getHeaderField(FaoRetryConstants.RETRY_AFTER_HEADER);
+
+        if (retryAfter == null)
+            return -1;
+
+        final String value = retryAfter.trim();
+
+        if (value.matches(FaoRetryConstants.RETRY_AFTER_SECONDS_PATTERN))
+            return Long.parseLong(value) * 1000L;
+
+        try {
+            final ZonedDateTime retryDate = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, retryDate.toInstant().toEpochMilli() - System.currentTimeMillis());
+
+        } catch (final DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
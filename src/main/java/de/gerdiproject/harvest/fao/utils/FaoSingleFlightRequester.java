@@ -0,0 +1,136 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+
+/**
+ * This class wraps a {@linkplain FaoHttpClient} and coalesces concurrent requests.
+ * If a URL is requested while another request for the same URL and charset is
+ * in flight, the caller waits for the pending request instead of sending
+ * a duplicate request. Requests are coalesced across all instances of this class,
+ * so that the extractors of different ETLs share their identical requests.
+ * The immutable response is shared by all waiting callers, each of which parses
+ * its own copy of the response body.
+ * Responses are not cached beyond the duration of the request.
+ *
+ * @author Robin Weiss
+ */
+public class FaoSingleFlightRequester
+{
+    private static final Map<String, CompletableFuture<FaoHttpResponse>> IN_FLIGHT_REQUESTS = new ConcurrentHashMap<>();
+    private final FaoHttpClient httpClient;
+
+
+    /**
+     * Constructor
+     *
+     * @param httpClient the client that sends the actual requests
+     */
+    public FaoSingleFlightRequester(final FaoHttpClient httpClient)
+    {
+        this.httpClient = httpClient;
+    }
+
+
+    /**
+     * Sends a GET request to a URL, or waits for the response of an identical
+     * request that is already in flight.
+     *
+     * @param url the URL that is to be requested
+     * @param timeoutMillis the maximum number of milliseconds to wait for the connection
+     *         and for each read, or for a pending request, or zero if the request does not time out
+     *
+     * @throws SocketTimeoutException if the request exceeded its timeout
+     * @throws CancellationException if the thread was interrupted while waiting
+     *         for a pending request
+     *
+     * @return the response, which has no body if the request failed
+     */
+    public FaoHttpResponse get(final String url, final int timeoutMillis) throws SocketTimeoutException
+    {
+        final String requestKey = String.format(FaoExtractorConstants.REQUEST_KEY_FORMAT, httpClient.getCharset(), url);
+        final CompletableFuture<FaoHttpResponse> ownRequest = new CompletableFuture<>();
+        final CompletableFuture<FaoHttpResponse> pendingRequest = IN_FLIGHT_REQUESTS.putIfAbsent(requestKey, ownRequest);
+
+        if (pendingRequest != null)
+            return await(pendingRequest, url, timeoutMillis);
+
+        try {
+            final FaoHttpResponse response = httpClient.get(url, timeoutMillis);
+            ownRequest.complete(response);
+            return response;
+
+        } catch (final SocketTimeoutException | RuntimeException | Error e) {
+            ownRequest.completeExceptionally(e);
+            throw e;
+
+        } finally {
+            IN_FLIGHT_REQUESTS.remove(requestKey, ownRequest);
+        }
+    }
+
+
+    /**
+     * Waits for the response of a pending request.
+     *
+     * @param pendingRequest the request that is in flight
+     * @param url the requested URL
+     * @param timeoutMillis the maximum number of milliseconds to wait, or zero if there is no limit
+     *
+     * @throws SocketTimeoutException if the pending request or the waiting timed out
+     * @throws CancellationException if the thread was interrupted while waiting
+     *
+     * @return the response of the pending request
+     */
+    private static FaoHttpResponse await(final CompletableFuture<FaoHttpResponse> pendingRequest, final String url, final int timeoutMillis)
+    throws SocketTimeoutException
+    {
+        try {
+            return timeoutMillis > 0
+                   ? pendingRequest.get(timeoutMillis, TimeUnit.MILLISECONDS)
+                   : pendingRequest.get();
+
+        } catch (final TimeoutException e) {
+            throw new SocketTimeoutException(url);
+
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof SocketTimeoutException)
+                throw (SocketTimeoutException) e.getCause();
+
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+
+            throw e.getCause() instanceof RuntimeException
+            ? (RuntimeException) e.getCause()
+            : new IllegalStateException(e.getCause());
+
+        } catch (final InterruptedException e) {
+            // waiting callers can be cancelled without affecting the pending request
+            Thread.currentThread().interrupt();
+            throw new CancellationException(FaoExtractorConstants.HARVEST_ABORTED_ERROR);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+import de.gerdiproject.harvest.fao.constants.FaoBulkDownloadConstants;
+
+/**
+ * This class lists the files of remote ZIP archives without downloading them.
+ * It uses HTTP range requests to only retrieve the end of central directory record
+ * and the central directory, which usually amount to a few kilobytes.
+ *
+ * @author Robin Weiss
+ */
+public class FaoZipProbe
+{
+    /**
+     * Retrieves all CSV files that are contained in a remote ZIP archive.
+     *
+     * @param zipUrl the URL of the ZIP archive
+     *
+     * @throws IOException if the archive could not be read or the server does not support range requests
+     *
+     * @return a list of CSV files within the archive
+     */
+    public List<FaoZipEntry> getCsvEntries(final String zipUrl) throws IOException
+    {
+        final List<FaoZipEntry> csvEntries = new LinkedList<>();
+
+        for (final FaoZipEntry entry : getEntries(zipUrl)) {
+            if (entry.getName().toLowerCase(Locale.ENGLISH).endsWith(FaoBulkDownloadConstants.CSV_SUFFIX))
+                csvEntries.add(entry);
+        }
+
+        return csvEntries;
+    }
+
+
+    /**
+     * Retrieves all files that are contained in a remote ZIP archive.
+     *
+     * @param zipUrl the URL of the ZIP archive
+     *
+     * @throws IOException if the archive could not be read or the server does not support range requests
+     *
+     * @return a list of files within the archive
+     */
+    public List<FaoZipEntry> getEntries(final String zipUrl) throws IOException
+    {
+        // the end of central directory record is located within the last 64KiB of the archive
+        final RangeResponse tail = requestRange(
+                                       zipUrl,
+                                       String.format(FaoBulkDownloadConstants.SUFFIX_RANGE, FaoBulkDownloadConstants.EOCD_MAX_SIZE));
+        final ByteBuffer tailBuffer = ByteBuffer.wrap(tail.content).order(ByteOrder.LITTLE_ENDIAN);
+        final long tailOffset = tail.totalLength - tail.content.length;
+
+        final int eocdPosition = findEndOfCentralDirectory(tailBuffer);
+
+        if (eocdPosition < 0)
+            throw new IOException(String.format(FaoBulkDownloadConstants.NO_EOCD_ERROR, zipUrl));
+
+        long entryCount = Short.toUnsignedLong(tailBuffer.getShort(eocdPosition + 10));
+        long directorySize = Integer.toUnsignedLong(tailBuffer.getInt(eocdPosition + 12));
+        long directoryOffset = Integer.toUnsignedLong(tailBuffer.getInt(eocdPosition + 16));
+
+        // ZIP64 archives store the real values in a separate record
+        final int locatorPosition = eocdPosition - FaoBulkDownloadConstants.ZIP64_LOCATOR_SIZE;
+
+        if (locatorPosition >= 0 && tailBuffer.getInt(locatorPosition) == FaoBulkDownloadConstants.ZIP64_LOCATOR_SIGNATURE) {
+            final long zip64EocdOffset = tailBuffer.getLong(locatorPosition + 8);
+            final ByteBuffer zip64Eocd = getBytes(
+                                             zipUrl,
+                                             tailBuffer,
+                                             tailOffset,
+                                             zip64EocdOffset,
+                                             FaoBulkDownloadConstants.ZIP64_EOCD_SIZE);
+
+            if (zip64Eocd.getInt(0) == FaoBulkDownloadConstants.ZIP64_EOCD_SIGNATURE) {
+                entryCount = zip64Eocd.getLong(32);
+                directorySize = zip64Eocd.getLong(40);
+                directoryOffset = zip64Eocd.getLong(48);
+            }
+        }
+
+        final ByteBuffer directory = getBytes(zipUrl, tailBuffer, tailOffset, directoryOffset, (int) directorySize);
+        return parseCentralDirectory(zipUrl, directory, entryCount);
+    }
+
+
+    /**
+     * Searches a buffer backwards for the signature of the end of central directory record.
+     *
+     * @param buffer a buffer that contains the end of a ZIP archive
+     *
+     * @return the position of the record within the buffer, or -1 if it was not found
+     */
+    private int findEndOfCentralDirectory(final ByteBuffer buffer)
+    {
+        for (int i = buffer.limit() - FaoBulkDownloadConstants.EOCD_MIN_SIZE; i >= 0; i--) {
+            if (buffer.getInt(i) == FaoBulkDownloadConstants.EOCD_SIGNATURE)
+                return i;
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Retrieves a range of bytes of the archive, either from the already retrieved tail,
+     * or by sending another range request.
+     *
+     * @param zipUrl the URL of the ZIP archive
+     * @param tail the last bytes of the archive
+     * @param tailOffset the position of the tail within the archive
+     * @param offset the position of the first requested byte within the archive
+     * @param length the number of requested bytes
+     *
+     * @throws IOException if the bytes could not be retrieved
+     *
+     * @return a little-endian buffer containing the requested bytes
+     */
+    private ByteBuffer getBytes(final String zipUrl, final ByteBuffer tail, final long tailOffset, final long offset, final int length) throws IOException
+    {
+        if (offset >= tailOffset && offset + length <= tailOffset + tail.limit()) {
+            final ByteBuffer slice = tail.duplicate();
+            slice.position((int)(offset - tailOffset));
+            slice.limit(slice.position() + length);
+            return slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        final RangeResponse response = requestRange(
+                                           zipUrl,
+                                           String.format(FaoBulkDownloadConstants.BYTE_RANGE, offset, offset + length - 1));
+        return ByteBuffer.wrap(response.content).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+
+    /**
+     * Parses the file headers of a central directory.
+     *
+     * @param zipUrl the URL of the ZIP archive
+     * @param directory a buffer that contains the central directory
+     * @param entryCount the number of file headers within the central directory
+     *
+     * @throws IOException if the central directory is corrupt
+     *
+     * @return a list of files within the archive
+     */
+    private List<FaoZipEntry> parseCentralDirectory(final String zipUrl, final ByteBuffer directory, final long entryCount) throws IOException
+    {
+        final List<FaoZipEntry> entries = new LinkedList<>();
+        int position = 0;
+
+        for (long i = 0; i < entryCount; i++) {
+            if (position + FaoBulkDownloadConstants.CENTRAL_FILE_HEADER_SIZE > directory.limit()
+                || directory.getInt(position) != FaoBulkDownloadConstants.CENTRAL_FILE_HEADER_SIGNATURE)
+                throw new IOException(String.format(FaoBulkDownloadConstants.INVALID_CENTRAL_DIRECTORY_ERROR, zipUrl));
+
+            long compressedSize = Integer.toUnsignedLong(directory.getInt(position + 20));
+            long uncompressedSize = Integer.toUnsignedLong(directory.getInt(position + 24));
+            final int nameLength = Short.toUnsignedInt(directory.getShort(position + 28));
+            final int extraLength = Short.toUnsignedInt(directory.getShort(position + 30));
+            final int commentLength = Short.toUnsignedInt(directory.getShort(position + 32));
+
+            final byte[] nameBytes = new byte[nameLength];
+            final ByteBuffer nameBuffer = directory.duplicate();
+            nameBuffer.position(position + FaoBulkDownloadConstants.CENTRAL_FILE_HEADER_SIZE);
+            nameBuffer.get(nameBytes);
+
+            // ZIP64 extra fields contain the sizes that did not fit into four bytes
+            int extraPosition = position + FaoBulkDownloadConstants.CENTRAL_FILE_HEADER_SIZE + nameLength;
+            final int extraEnd = extraPosition + extraLength;
+
+            while (extraPosition + 4 <= extraEnd) {
+                final int fieldId = Short.toUnsignedInt(directory.getShort(extraPosition));
+                final int fieldSize = Short.toUnsignedInt(directory.getShort(extraPosition + 2));
+
+                if (fieldId == FaoBulkDownloadConstants.ZIP64_EXTRA_FIELD_ID) {
+                    int fieldPosition = extraPosition + 4;
+
+                    if (uncompressedSize == FaoBulkDownloadConstants.ZIP64_MAGIC) {
+                        uncompressedSize = directory.getLong(fieldPosition);
+                        fieldPosition += 8;
+                    }
+
+                    if (compressedSize == FaoBulkDownloadConstants.ZIP64_MAGIC)
+                        compressedSize = directory.getLong(fieldPosition);
+                }
+
+                extraPosition += 4 + fieldSize;
+            }
+
+            entries.add(new FaoZipEntry(new String(nameBytes, StandardCharsets.UTF_8), compressedSize, uncompressedSize));
+            position = extraEnd + commentLength;
+        }
+
+        return entries;
+    }
+
+
+    /**
+     * Sends a range request and reads the partial content.
+     *
+     * @param url the URL of the requested resource
+     * @param range the value of the range request header
+     *
+     * @throws IOException if the request failed or the server ignored the range
+     *
+     * @return the partial content and total length of the resource
+     */
+    private RangeResponse requestRange(final String url, final String range) throws IOException
+    {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(FaoBulkDownloadConstants.CONNECT_TIMEOUT);
+        connection.setReadTimeout(FaoBulkDownloadConstants.READ_TIMEOUT);
+        connection.setRequestProperty(FaoBulkDownloadConstants.RANGE_HEADER, range);
+
+        try {
+            // never download complete archives
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL)
+                throw new IOException(String.format(FaoBulkDownloadConstants.RANGE_NOT_SUPPORTED_ERROR, url));
+
+            final String contentRange = connection.getHeaderField(FaoBulkDownloadConstants.CONTENT_RANGE_HEADER);
+
+            if (contentRange == null)
+                throw new IOException(String.format(FaoBulkDownloadConstants.RANGE_NOT_SUPPORTED_ERROR, url));
+
+            final long totalLength = Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1).trim());
+
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+            try (InputStream input = connection.getInputStream()) {
+                final byte[] buffer = new byte[8192];
+                int readBytes;
+
+                while ((readBytes = input.read(buffer)) != -1)
+                    content.write(buffer, 0, readBytes);
+            }
+
+            return new RangeResponse(content.toByteArray(), totalLength);
+
+        } catch (final NumberFormatException e) {
+            throw new IOException(String.format(FaoBulkDownloadConstants.RANGE_NOT_SUPPORTED_ERROR, url), e);
+
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+
+    /**
+     * This class holds the content of a range request.
+     *
+     * @author Robin Weiss
+     */
+    private static class RangeResponse
+    {
+        private final byte[] content;
+        private final long totalLength;
+
+
+        /**
+         * Constructor
+         *
+         * @param content the retrieved bytes
+         * @param totalLength the total length of the resource
+         */
+        RangeResponse(final byte[] content, final long totalLength)
+        {
+            this.content = content;
+            this.totalLength = totalLength;
+        }
+    }
+}
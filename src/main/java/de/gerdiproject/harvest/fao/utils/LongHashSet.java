@@ -0,0 +1,172 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+/**
+ * This class is a minimal open addressing hash set of primitive longs that avoids
+ * boxing. In order to cap memory usage, the set stops growing once it reaches a
+ * maximum size, after which it is marked as saturated.
+ *
+ * @author Robin Weiss
+ */
+public class LongHashSet
+{
+    private static final long FREE = 0;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxSize;
+    private long[] slots = new long[INITIAL_CAPACITY];
+    private boolean containsFree;
+    private int size;
+    private boolean saturated;
+
+
+    /**
+     * Constructor
+     *
+     * @param maxSize the maximum number of values that are stored
+     */
+    public LongHashSet(final int maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+
+    /**
+     * Adds a value to the set, unless the set is saturated.
+     *
+     * @param value the value that is to be added
+     */
+    public void add(final long value)
+    {
+        if (value == FREE) {
+            if (!containsFree && checkCapacity()) {
+                containsFree = true;
+                size++;
+            }
+
+            return;
+        }
+
+        final int mask = slots.length - 1;
+        int index = mix(value) & mask;
+
+        while (slots[index] != FREE) {
+            if (slots[index] == value)
+                return;
+
+            index = (index + 1) & mask;
+        }
+
+        if (!checkCapacity())
+            return;
+
+        slots[index] = value;
+        size++;
+
+        // keep the load factor at or below 50%
+        if (size * 2 > slots.length)
+            grow();
+    }
+
+
+    /**
+     * Retrieves the number of distinct values in the set.
+     *
+     * @return the number of distinct values
+     */
+    public int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * Checks if values were dropped, because the set reached its maximum size.
+     *
+     * @return true if the set is saturated
+     */
+    public boolean isSaturated()
+    {
+        return saturated;
+    }
+
+
+    /**
+     * Removes all values and frees the memory.
+     */
+    public void clear()
+    {
+        slots = new long[INITIAL_CAPACITY];
+        containsFree = false;
+        size = 0;
+        saturated = false;
+    }
+
+
+    /**
+     * Checks if another value can be added, marking the set as saturated otherwise.
+     *
+     * @return true if another value can be added
+     */
+    private boolean checkCapacity()
+    {
+        if (size >= maxSize) {
+            saturated = true;
+            return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Doubles the number of slots and re-inserts all values.
+     */
+    private void grow()
+    {
+        final long[] oldSlots = slots;
+        slots = new long[oldSlots.length * 2];
+
+        final int mask = slots.length - 1;
+
+        for (final long value : oldSlots) {
+            if (value == FREE)
+                continue;
+
+            int index = mix(value) & mask;
+
+            while (slots[index] != FREE)
+                index = (index + 1) & mask;
+
+            slots[index] = value;
+        }
+    }
+
+
+    /**
+     * Spreads the bits of a value in order to avoid clustering of similar values.
+     *
+     * @param value the value that is to be hashed
+     *
+     * @return a hash of the value
+     */
+    private static int mix(final long value)
+    {
+        final long h = value * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,343 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.gerdiproject.harvest.etls.FaoStatETL;
+import de.gerdiproject.harvest.fao.constants.FaoCacheConstants;
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+import de.gerdiproject.harvest.fao.enums.FaoEndpoint;
+import de.gerdiproject.harvest.fao.utils.FaoHttpClient;
+import de.gerdiproject.harvest.fao.utils.FaoHttpResponse;
+import de.gerdiproject.harvest.fao.utils.FaoResponseStore;
+import de.gerdiproject.harvest.fao.utils.FaoSingleFlightRequester;
+
+/**
+ * This class provides Unit Tests for the stale-while-revalidate mode of the
+ * {@linkplain FaoStatRequestPipeline}. The requests are answered by an HTTP client
+ * that holds back its responses until they are released.
+ *
+ * @author Robin Weiss
+ */
+public class FaoStatRequestPipelineTest
+{
+    private static final String DOMAIN_CODE = "ABC";
+    private static final String STORED_BODY = "\"stored\"";
+    private static final String CURRENT_BODY = "\"current\"";
+    private static final long MAX_FINISH_MILLIS = 5000;
+
+    private File cacheFolder;
+    private MockedETL etl;
+
+
+    /**
+     * Creates an empty cache folder and an ETL that serves stale responses.
+     *
+     * @throws IOException if the cache folder could not be created
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.cacheFolder = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        this.etl = new MockedETL();
+    }
+
+
+    /**
+     * Unregisters the metrics of the ETL.
+     */
+    @After
+    public void tearDown()
+    {
+        etl.unregisterMetrics();
+    }
+
+
+    /**
+     * Tests if a stored response is served while its request is still pending,
+     * and if the stored response is replaced by the response of the background request.
+     *
+     * @throws InterruptedException if the test was interrupted
+     */
+    @Test
+    public void testServesStoredResponseWhileRevalidating() throws InterruptedException
+    {
+        final String url = "http://example.org/faostat/revalidated";
+        storeResponse(url, STORED_BODY);
+
+        final MockedHttpClient httpClient = new MockedHttpClient(CURRENT_BODY);
+        final FaoStatRequestPipeline pipeline = createPipeline(httpClient);
+
+        assertEquals("stored", pipeline.request(url, String.class, FaoEndpoint.METADATA, DOMAIN_CODE, FaoExtractorConstants.NO_DEADLINE));
+        assertTrue(etl.getProgressTracker().getProgress().getStaleDomains().contains(DOMAIN_CODE));
+
+        // the response is held back until the stored response was served
+        assertTrue(httpClient.requestStarted.await(MAX_FINISH_MILLIS, TimeUnit.MILLISECONDS));
+        httpClient.releaseResponses.countDown();
+        pipeline.finish();
+
+        assertEquals(1, httpClient.requestCount.get());
+        assertEquals("current", createPipeline(new MockedHttpClient(CURRENT_BODY))
+                     .request(url, String.class, FaoEndpoint.METADATA, DOMAIN_CODE, FaoExtractorConstants.NO_DEADLINE));
+    }
+
+
+    /**
+     * Tests if a background request that does not respond is given up
+     * when it exceeds the revalidation timeout, keeping the stored response.
+     */
+    @Test
+    public void testRevalidationIsBoundedByTimeout()
+    {
+        final String url = "http://example.org/faostat/timedOut";
+        storeResponse(url, STORED_BODY);
+        etl.revalidationTimeout = 1;
+
+        final FaoStatRequestPipeline pipeline = createPipeline(new MockedHttpClient(CURRENT_BODY));
+        assertEquals("stored", pipeline.request(url, String.class, FaoEndpoint.METADATA, DOMAIN_CODE, FaoExtractorConstants.NO_DEADLINE));
+
+        final long finishStart = System.nanoTime();
+        pipeline.finish();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - finishStart) < MAX_FINISH_MILLIS);
+        assertEquals("stored", createPipeline(new MockedHttpClient(CURRENT_BODY))
+                     .request(url, String.class, FaoEndpoint.METADATA, DOMAIN_CODE, FaoExtractorConstants.NO_DEADLINE));
+    }
+
+
+    /**
+     * Tests if aborting the harvest cancels a pending background request
+     * without retrying it, keeping the stored response.
+     *
+     * @throws InterruptedException if the test was interrupted
+     */
+    @Test
+    public void testAbortCancelsRevalidation() throws InterruptedException
+    {
+        final String url = "http://example.org/faostat/aborted";
+        storeResponse(url, STORED_BODY);
+        etl.requestRetries = 2;
+
+        final MockedHttpClient httpClient = new MockedHttpClient(CURRENT_BODY);
+        final FaoStatRequestPipeline pipeline = createPipeline(httpClient);
+        assertEquals("stored", pipeline.request(url, String.class, FaoEndpoint.METADATA, DOMAIN_CODE, FaoExtractorConstants.NO_DEADLINE));
+        assertTrue(httpClient.requestStarted.await(MAX_FINISH_MILLIS, TimeUnit.MILLISECONDS));
+
+        etl.getAbortSignal().abort();
+        pipeline.cancelRevalidation();
+
+        final long finishStart = System.nanoTime();
+        pipeline.finish();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - finishStart) < MAX_FINISH_MILLIS);
+        assertEquals(1, httpClient.requestCount.get());
+
+        etl.getAbortSignal().reset();
+        assertEquals("stored", createPipeline(new MockedHttpClient(CURRENT_BODY))
+                     .request(url, String.class, FaoEndpoint.METADATA, DOMAIN_CODE, FaoExtractorConstants.NO_DEADLINE));
+    }
+
+
+    /**
+     * Stores the response of a URL, as if it was retrieved by a previous harvest.
+     *
+     * @param url the URL of the response
+     * @param body the unparsed JSON response
+     */
+    private void storeResponse(final String url, final String body)
+    {
+        new FaoResponseStore(new File(cacheFolder, FaoCacheConstants.RESPONSE_STORE_FOLDER), StandardCharsets.UTF_8).put(url, body);
+    }
+
+
+    /**
+     * Creates a request pipeline for a new harvest.
+     *
+     * @param httpClient the client that answers the requests
+     *
+     * @return a new request pipeline
+     */
+    private FaoStatRequestPipeline createPipeline(final FaoHttpClient httpClient)
+    {
+        return new FaoStatRequestPipeline(etl, new FaoSingleFlightRequester(httpClient), cacheFolder);
+    }
+
+
+    /**
+     * This ETL provides the request parameters of the tests without
+     * requiring a registered configuration.
+     *
+     * @author Robin Weiss
+     */
+    private static class MockedETL extends FaoStatETL
+    {
+        private int revalidationTimeout = 60;
+        private int requestRetries;
+
+
+        /**
+         * Constructor
+         */
+        MockedETL()
+        {
+            super(Collections.singletonList("TEST"));
+        }
+
+
+        @Override
+        public boolean isServingStaleResponses()
+        {
+            return true;
+        }
+
+
+        @Override
+        public int getRevalidationTimeout()
+        {
+            return revalidationTimeout;
+        }
+
+
+        @Override
+        public int getRequestConcurrency()
+        {
+            return 1;
+        }
+
+
+        @Override
+        public int getRequestTimeout()
+        {
+            return 0;
+        }
+
+
+        @Override
+        public String getEndpointTimeouts()
+        {
+            return "";
+        }
+
+
+        @Override
+        public int getRequestRetries()
+        {
+            return requestRetries;
+        }
+
+
+        @Override
+        public int getRetryBaseDelay()
+        {
+            return 1;
+        }
+
+
+        @Override
+        public int getRetryMaxDelay()
+        {
+            return 1;
+        }
+
+
+        @Override
+        public int getCircuitFailureThreshold()
+        {
+            return 0;
+        }
+
+
+        @Override
+        public int getCircuitOpenSeconds()
+        {
+            return 60;
+        }
+
+
+        @Override
+        public boolean isReportingCosts()
+        {
+            return false;
+        }
+    }
+
+
+    /**
+     * This HTTP client counts its requests and holds back each response until
+     * it is released. Requests time out like connections do, and fail
+     * if their thread is interrupted.
+     *
+     * @author Robin Weiss
+     */
+    private static class MockedHttpClient extends FaoHttpClient
+    {
+        private final String body;
+        private final AtomicInteger requestCount = new AtomicInteger();
+        private final CountDownLatch requestStarted = new CountDownLatch(1);
+        private final CountDownLatch releaseResponses = new CountDownLatch(1);
+
+
+        /**
+         * Constructor
+         *
+         * @param body the body of all responses
+         */
+        MockedHttpClient(final String body)
+        {
+            super(StandardCharsets.UTF_8);
+            this.body = body;
+        }
+
+
+        @Override
+        public FaoHttpResponse get(final String url, final int timeoutMillis) throws SocketTimeoutException
+        {
+            requestCount.incrementAndGet();
+            requestStarted.countDown();
+
+            try {
+                final boolean isReleased = timeoutMillis > 0
+                                           ? releaseResponses.await(timeoutMillis, TimeUnit.MILLISECONDS)
+                                           : releaseResponses.await(1, TimeUnit.MINUTES);
+
+                if (!isReleased)
+                    throw new SocketTimeoutException(url);
+
+                return new FaoHttpResponse(200, body, -1);
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new FaoHttpResponse(FaoExtractorConstants.NO_STATUS_CODE, null, -1);
+            }
+        }
+    }
+}
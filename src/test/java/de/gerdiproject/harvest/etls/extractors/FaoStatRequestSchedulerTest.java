@@ -0,0 +1,316 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+import de.gerdiproject.harvest.fao.json.FaoBulkDownload;
+import de.gerdiproject.harvest.fao.json.FaoDimension;
+import de.gerdiproject.harvest.fao.json.FaoDocument;
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+import de.gerdiproject.harvest.fao.json.FaoFilter;
+import de.gerdiproject.harvest.fao.json.FaoMetadata;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoStatRequestScheduler}.
+ * The requests are answered by an extractor that does not send any HTTP requests.
+ *
+ * @author Robin Weiss
+ */
+public class FaoStatRequestSchedulerTest
+{
+    private static final int CONCURRENCY = 2;
+    private static final String FAILURE_MESSAGE = "request failed";
+    private static final String DIMENSIONS_REQUEST = "dimensions";
+    private static final String FILTERS_REQUEST = "filters";
+
+
+    /**
+     * Tests if every domain is emitted once, with the filters of each dimension
+     * and without filters for the years dimension.
+     */
+    @Test
+    public void testAllDomainsAreAssembled()
+    {
+        final MockedExtractor extractor = new MockedExtractor();
+        final Map<String, FaoStatDomainVO> domainVOs = harvest(extractor, "A", "B", "C", "D", "E");
+
+        assertEquals(Arrays.asList("A", "B", "C", "D", "E"), new ArrayList<>(domainVOs.keySet()));
+
+        for (final FaoStatDomainVO domainVO : domainVOs.values()) {
+            final String domainCode = domainVO.getDomain().getDomainCode();
+
+            assertFalse(domainVO.isUnavailable());
+            assertEquals(3, domainVO.getDimensions().size());
+            assertEquals(createFilters(domainCode, "area"), domainVO.getFilters().get(0));
+            assertEquals(Collections.emptyList(), domainVO.getFilters().get(1));
+            assertEquals(createFilters(domainCode, "item"), domainVO.getFilters().get(2));
+            assertEquals(1, domainVO.getDocuments().size());
+            assertEquals(1, domainVO.getMetadata().size());
+            assertEquals(1, domainVO.getBulkDownloads().size());
+        }
+    }
+
+
+    /**
+     * Tests if the filters of a domain are only requested after its dimensions
+     * were retrieved, and if the concurrency limit is kept.
+     */
+    @Test
+    public void testDependenciesAndConcurrencyAreKept()
+    {
+        final MockedExtractor extractor = new MockedExtractor();
+        harvest(extractor, "A", "B", "C", "D", "E", "F", "G", "H");
+
+        final List<String> requests = new ArrayList<>(extractor.requests);
+
+        for (final String domainCode : Arrays.asList("A", "B", "C", "D", "E", "F", "G", "H")) {
+            final int dimensionsIndex = requests.indexOf(domainCode + DIMENSIONS_REQUEST);
+            assertTrue(dimensionsIndex >= 0);
+
+            for (int i = 0; i < requests.size(); i++) {
+                if (requests.get(i).equals(domainCode + FILTERS_REQUEST))
+                    assertTrue(i > dimensionsIndex);
+            }
+        }
+
+        assertEquals(2, Collections.frequency(requests, "A" + FILTERS_REQUEST));
+        assertTrue(extractor.maxConcurrentRequests.get() <= CONCURRENCY);
+    }
+
+
+    /**
+     * Tests if a domain that exceeds its deadline is retried without a deadline
+     * after all other domains were admitted.
+     */
+    @Test
+    public void testExceededDomainIsDeferred()
+    {
+        final MockedExtractor extractor = new MockedExtractor();
+        extractor.exceedingDomains.add("B");
+
+        final Map<String, FaoStatDomainVO> domainVOs = harvest(extractor, "A", "B", "C");
+
+        assertEquals(3, domainVOs.size());
+        assertFalse(domainVOs.get("B").isUnavailable());
+        assertEquals(2, Collections.frequency(extractor.requests, "B" + DIMENSIONS_REQUEST));
+        assertEquals(1, Collections.frequency(extractor.requests, "C" + DIMENSIONS_REQUEST));
+    }
+
+
+    /**
+     * Tests if a domain that fails even when it is retried is marked as unavailable,
+     * instead of failing the harvest.
+     */
+    @Test
+    public void testFailingDeferredDomainIsUnavailable()
+    {
+        final MockedExtractor extractor = new MockedExtractor();
+        extractor.unavailableDomains.add("B");
+
+        final Map<String, FaoStatDomainVO> domainVOs = harvest(extractor, "A", "B", "C");
+
+        assertEquals(3, domainVOs.size());
+        assertTrue(domainVOs.get("B").isUnavailable());
+        assertFalse(domainVOs.get("C").isUnavailable());
+    }
+
+
+    /**
+     * Tests if an unexpected error of a request fails the harvest.
+     */
+    @Test
+    public void testUnexpectedErrorFailsHarvest()
+    {
+        final MockedExtractor extractor = new MockedExtractor();
+        extractor.failingDomains.add("A");
+
+        try {
+            harvest(extractor, "A", "B");
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals(FAILURE_MESSAGE, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Retrieves all domains via a request scheduler.
+     *
+     * @param extractor the extractor that answers the requests
+     * @param domainCodes the codes of the domains that are to be retrieved
+     *
+     * @return the retrieved domains, mapped by their codes in the order in which they were emitted
+     */
+    private static Map<String, FaoStatDomainVO> harvest(final MockedExtractor extractor, final String... domainCodes)
+    {
+        final List<FaoDomain> domains = new ArrayList<>();
+
+        for (final String domainCode : domainCodes)
+            domains.add(new FaoDomain("G", "G", domainCode, domainCode, null, null, null, null, null, null, null, null));
+
+        final FaoStatRequestScheduler scheduler = new FaoStatRequestScheduler(extractor, domains.iterator(), domains.size(), CONCURRENCY, false);
+        final Map<String, FaoStatDomainVO> domainVOs = new LinkedHashMap<>();
+
+        try {
+            while (scheduler.hasNext()) {
+                final FaoStatDomainVO domainVO = scheduler.next();
+                domainVOs.put(domainVO.getDomain().getDomainCode(), domainVO);
+            }
+        } finally {
+            scheduler.cancel();
+        }
+
+        return domainVOs;
+    }
+
+
+    /**
+     * Creates the filters of a dimension of a domain.
+     *
+     * @param domainCode the code of the domain
+     * @param dimensionId the identifier of the dimension
+     *
+     * @return a list of filters
+     */
+    private static List<FaoFilter> createFilters(final String domainCode, final String dimensionId)
+    {
+        return Arrays.asList(
+                   new FaoFilter("1", domainCode + dimensionId + "1", "0"),
+                   new FaoFilter("2", domainCode + dimensionId + "2", "0"));
+    }
+
+
+    /**
+     * This extractor answers all requests of the scheduler without sending HTTP requests.
+     * It records the order of the requests and the number of concurrent requests.
+     *
+     * @author Robin Weiss
+     */
+    private static class MockedExtractor extends FaoStatExtractor
+    {
+        private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger concurrentRequests = new AtomicInteger();
+        private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+        private final Set<String> exceedingDomains = ConcurrentHashMap.newKeySet();
+        private final Set<String> unavailableDomains = ConcurrentHashMap.newKeySet();
+        private final Set<String> failingDomains = ConcurrentHashMap.newKeySet();
+
+
+        @Override
+        long createDomainDeadline()
+        {
+            return System.nanoTime();
+        }
+
+
+        @Override
+        List<FaoDimension> getDimensions(final String domainCode, final long deadline)
+        {
+            onRequest(domainCode, DIMENSIONS_REQUEST, deadline);
+            return Arrays.asList(
+                       new FaoDimension("area", "Area", null, null, new JsonArray()),
+                       new FaoDimension(FaoExtractorConstants.YEAR_DIMENSION_ID, "Year", null, null, new JsonArray()),
+                       new FaoDimension("item", "Item", null, null, new JsonArray()));
+        }
+
+
+        @Override
+        List<FaoFilter> getFilters(final FaoDimension dimension, final String domainCode, final long deadline)
+        {
+            onRequest(domainCode, FILTERS_REQUEST, deadline);
+            return createFilters(domainCode, dimension.getId());
+        }
+
+
+        @Override
+        List<FaoBulkDownload> getBulkDownloads(final String domainCode, final long deadline)
+        {
+            onRequest(domainCode, "bulkDownloads", deadline);
+            return Arrays.asList((FaoBulkDownload) null);
+        }
+
+
+        @Override
+        List<FaoMetadata> getMetaData(final String domainCode, final long deadline)
+        {
+            onRequest(domainCode, "metadata", deadline);
+            return Arrays.asList((FaoMetadata) null);
+        }
+
+
+        @Override
+        List<FaoDocument> getDocuments(final String domainCode, final long deadline)
+        {
+            onRequest(domainCode, "documents", deadline);
+            return Arrays.asList((FaoDocument) null);
+        }
+
+
+        /**
+         * Records a request and fails it if its domain is meant to fail.
+         *
+         * @param domainCode the domain of the request
+         * @param requestType the type of the request
+         * @param deadline the deadline of the domain
+         */
+        private void onRequest(final String domainCode, final String requestType, final long deadline)
+        {
+            maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+
+            try {
+                requests.add(domainCode + requestType);
+                Thread.sleep(1);
+
+                if (failingDomains.contains(domainCode))
+                    throw new IllegalStateException(FAILURE_MESSAGE);
+
+                if (unavailableDomains.contains(domainCode))
+                    throw new EndpointUnavailableException(FAILURE_MESSAGE);
+
+                // only requests with a deadline exceed it
+                if (exceedingDomains.contains(domainCode) && deadline != FaoExtractorConstants.NO_DEADLINE)
+                    throw new DomainDeadlineException(FAILURE_MESSAGE);
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+            } finally {
+                concurrentRequests.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.etls.transformers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.gerdiproject.harvest.etls.FaoStatETL;
+import de.gerdiproject.harvest.etls.extractors.FaoStatDomainVO;
+import de.gerdiproject.harvest.fao.constants.FaoLinkConstants;
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+import de.gerdiproject.json.datacite.DataCiteJson;
+
+/**
+ * This class provides Unit Tests for the change detection mode of the {@linkplain FaoStatTransformer}.
+ * It asserts that the loader only receives documents that are to be indexed.
+ *
+ * @author Robin Weiss
+ */
+public class FaoStatTransformerChangesTest
+{
+    private MockedETL etl;
+    private FaoStatTransformer transformer;
+
+
+    /**
+     * Creates a transformer that only emits changed documents.
+     */
+    @Before
+    public void setUp()
+    {
+        this.etl = new MockedETL();
+        this.transformer = new FaoStatTransformer();
+        transformer.init(etl);
+    }
+
+
+    /**
+     * Unregisters the metrics of the ETL.
+     */
+    @After
+    public void tearDown()
+    {
+        etl.unregisterMetrics();
+    }
+
+
+    /**
+     * Tests if a domain that was removed from FAOSTAT does not produce a document,
+     * and if its hash is forgotten after the harvest.
+     */
+    @Test
+    public void testRemovedDomainIsNotEmitted()
+    {
+        final FaoDomain domain = createDomain("QCL");
+        etl.getHashRegistry().update(domain, new DataCiteJson("QCL"));
+        etl.getHashRegistry().commit();
+
+        final Iterator<DataCiteJson> documents =
+            transformer.transform(Collections.singletonList(FaoStatDomainVO.createDeleted(domain)).iterator());
+
+        assertFalse(documents.hasNext());
+
+        transformer.clear();
+        assertEquals(Collections.emptyList(), etl.getHashRegistry().getRemovedDomains(Collections.<FaoDomain>emptyList()));
+    }
+
+
+    /**
+     * Tests if domains that were removed or could not be retrieved do not
+     * produce any element, not even a null element.
+     */
+    @Test
+    public void testSkippedDomainsAreNotEmitted()
+    {
+        final Iterator<DataCiteJson> documents = transformer.transform(Arrays.asList(
+                                                                           FaoStatDomainVO.createUnavailable(createDomain("QCL")),
+                                                                           FaoStatDomainVO.createDeleted(createDomain("QV")),
+                                                                           FaoStatDomainVO.createUnavailable(createDomain("TM"))).iterator());
+        assertFalse(documents.hasNext());
+    }
+
+
+    /**
+     * Creates a domain without metadata.
+     *
+     * @param domainCode the code of the domain
+     *
+     * @return a domain of the group "G"
+     */
+    private static FaoDomain createDomain(final String domainCode)
+    {
+        return new FaoDomain("G", "G", domainCode, domainCode, null, null, null, null, null, null, null, null);
+    }
+
+
+    /**
+     * This ETL only emits changed documents and disables all optional parts of the transformation.
+     *
+     * @author Robin Weiss
+     */
+    private static class MockedETL extends FaoStatETL
+    {
+        /**
+         * Constructor
+         */
+        MockedETL()
+        {
+            super(Collections.singletonList("TEST"));
+        }
+
+
+        @Override
+        public String getLanguage()
+        {
+            return "en";
+        }
+
+
+        @Override
+        public boolean isChangesOnly()
+        {
+            return true;
+        }
+
+
+        @Override
+        public boolean isProbingBulkDownloads()
+        {
+            return false;
+        }
+
+
+        @Override
+        public boolean isProfilingBulkDownloads()
+        {
+            return false;
+        }
+
+
+        @Override
+        public int getProfileThreads()
+        {
+            return 1;
+        }
+
+
+        @Override
+        public int getProfileMemory()
+        {
+            return 1;
+        }
+
+
+        @Override
+        public String getLinkValidation()
+        {
+            return FaoLinkConstants.MODE_OFF;
+        }
+
+
+        @Override
+        public int getLinkThreads()
+        {
+            return 1;
+        }
+
+
+        @Override
+        public int getLinkRequestsPerSecond()
+        {
+            return 1;
+        }
+
+
+        @Override
+        public int getLinkCacheHours()
+        {
+            return 0;
+        }
+
+
+        @Override
+        public int getLinkDocumentTimeout()
+        {
+            return 0;
+        }
+
+
+        @Override
+        public int getLinkHarvestBudget()
+        {
+            return 0;
+        }
+
+
+        @Override
+        public boolean isReportingCosts()
+        {
+            return false;
+        }
+
+
+        @Override
+        public int getDocumentSizeBudget()
+        {
+            return 0;
+        }
+    }
+}
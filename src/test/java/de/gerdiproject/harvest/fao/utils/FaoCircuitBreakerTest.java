@@ -0,0 +1,130 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoCircuitBreaker}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoCircuitBreakerTest
+{
+    private static final int FAILURE_THRESHOLD = 3;
+
+
+    /**
+     * Tests if the circuit stays closed until the failure threshold is reached.
+     */
+    @Test
+    public void testOpensAfterThreshold()
+    {
+        final FaoCircuitBreaker circuitBreaker = new FaoCircuitBreaker(FAILURE_THRESHOLD, 60);
+
+        for (int i = 1; i < FAILURE_THRESHOLD; i++)
+            assertFalse(circuitBreaker.onFailure());
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.onFailure());
+        assertTrue(circuitBreaker.isOpen());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+
+    /**
+     * Tests if a success resets the consecutive failures.
+     */
+    @Test
+    public void testSuccessResetsFailures()
+    {
+        final FaoCircuitBreaker circuitBreaker = new FaoCircuitBreaker(FAILURE_THRESHOLD, 60);
+
+        for (int i = 1; i < FAILURE_THRESHOLD; i++)
+            circuitBreaker.onFailure();
+
+        circuitBreaker.onSuccess();
+
+        assertFalse(circuitBreaker.onFailure());
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+
+    /**
+     * Tests if only a single trial request is allowed after the circuit was open
+     * long enough, and if its success closes the circuit.
+     */
+    @Test
+    public void testTrialRequestClosesCircuit()
+    {
+        final FaoCircuitBreaker circuitBreaker = openCircuit();
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.onSuccess());
+        assertFalse(circuitBreaker.isOpen());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+
+    /**
+     * Tests if the circuit stays open if the trial request fails.
+     */
+    @Test
+    public void testFailedTrialKeepsCircuitOpen()
+    {
+        final FaoCircuitBreaker circuitBreaker = openCircuit();
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.onFailure());
+        assertTrue(circuitBreaker.isOpen());
+    }
+
+
+    /**
+     * Tests if a circuit without a failure threshold never opens.
+     */
+    @Test
+    public void testDisabledCircuitNeverOpens()
+    {
+        final FaoCircuitBreaker circuitBreaker = new FaoCircuitBreaker(0, 60);
+
+        for (int i = 0; i < FAILURE_THRESHOLD * 2; i++)
+            assertFalse(circuitBreaker.onFailure());
+
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+
+    /**
+     * Creates a circuit breaker that is open, but allows a trial request immediately.
+     *
+     * @return an open circuit breaker
+     */
+    private static FaoCircuitBreaker openCircuit()
+    {
+        final FaoCircuitBreaker circuitBreaker = new FaoCircuitBreaker(FAILURE_THRESHOLD, 0);
+
+        for (int i = 0; i < FAILURE_THRESHOLD; i++)
+            circuitBreaker.onFailure();
+
+        assertTrue(circuitBreaker.isOpen());
+        return circuitBreaker;
+    }
+}
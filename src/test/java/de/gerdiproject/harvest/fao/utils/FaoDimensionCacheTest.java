@@ -0,0 +1,106 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.etls.extractors.FaoStatDomainVO;
+import de.gerdiproject.harvest.fao.json.FaoDimension;
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+import de.gerdiproject.harvest.fao.json.FaoFilter;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoDimensionCache}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDimensionCacheTest
+{
+    private final FaoDimensionCache cache = new FaoDimensionCache();
+
+
+    /**
+     * Tests if two domains with equal dimensions and filters hold the same
+     * dimension list and filter list instances.
+     */
+    @Test
+    public void testEqualDomainsShareLists()
+    {
+        final FaoStatDomainVO firstDomain = createDomain("AB");
+        final FaoStatDomainVO secondDomain = createDomain("CD");
+
+        assertSame(firstDomain.getDimensions(), secondDomain.getDimensions());
+        assertSame(firstDomain.getFilters().get(0), secondDomain.getFilters().get(0));
+        assertEquals(2, cache.getFilterListCount());
+        assertEquals(1, cache.getSharedFilterListCount());
+        assertEquals(1, cache.getSharedDimensionListCount());
+    }
+
+
+    /**
+     * Tests if filter lists with different content are not shared,
+     * while their equal filters are.
+     */
+    @Test
+    public void testDifferentListsShareFilters()
+    {
+        final List<FaoFilter> firstList = cache.getFilters(Arrays.asList(createFilter("1"), createFilter("2")));
+        final List<FaoFilter> secondList = cache.getFilters(Arrays.asList(createFilter("1")));
+
+        assertNotSame(firstList, secondList);
+        assertSame(firstList.get(0), secondList.get(0));
+        assertEquals(0, cache.getSharedFilterListCount());
+    }
+
+
+    /**
+     * Creates a domain the way the extractor does, using freshly parsed dimensions and filters.
+     *
+     * @param domainCode the code of the domain
+     *
+     * @return a domain that has a single dimension with two filters
+     */
+    private FaoStatDomainVO createDomain(final String domainCode)
+    {
+        final FaoDomain domain = new FaoDomain("X", "Group", domainCode, domainCode, null, null, null, null, null, null, null, null);
+        final List<FaoDimension> dimensions = cache.getDimensions(
+                                                  Collections.singletonList(new FaoDimension("area", "Area", "/codes/area/", "area", null)));
+        final List<FaoFilter> filters = cache.getFilters(Arrays.asList(createFilter("1"), createFilter("2")));
+
+        return new FaoStatDomainVO(domain, null, null, null, dimensions, Collections.singletonList(filters), false, false);
+    }
+
+
+    /**
+     * Creates a new filter instance.
+     *
+     * @param code the code of the filter
+     *
+     * @return a new filter
+     */
+    private static FaoFilter createFilter(final String code)
+    {
+        return new FaoFilter(code, "Filter " + code, "0");
+    }
+}
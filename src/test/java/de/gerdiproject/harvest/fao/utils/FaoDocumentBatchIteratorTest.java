@@ -0,0 +1,208 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import de.gerdiproject.json.GsonUtils;
+import de.gerdiproject.json.datacite.DataCiteJson;
+import de.gerdiproject.json.datacite.Title;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoDocumentBatchIterator}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDocumentBatchIteratorTest
+{
+    private static final Gson GSON = GsonUtils.createGerdiDocumentGsonBuilder().create();
+    private static final String FAILURE_MESSAGE = "retrieval failed";
+
+
+    /**
+     * Tests if batches are split when they reach the maximum number of documents.
+     */
+    @Test
+    public void testSplitByDocumentCount()
+    {
+        final List<List<DataCiteJson>> batches = collect(createDocuments("a", "b", "c", "d", "e"), 2, 0);
+
+        assertEquals(Arrays.asList(2, 2, 1), getBatchSizes(batches));
+    }
+
+
+    /**
+     * Tests if batches are split before their JSON representations exceed the maximum size.
+     */
+    @Test
+    public void testSplitBySize()
+    {
+        final List<DataCiteJson> documents = createDocuments("a", "b", "c", "d", "e");
+        final long documentBytes = FaoJsonSize.measure(GSON, documents.get(0));
+
+        final List<List<DataCiteJson>> batches = collect(documents, 0, 2 * documentBytes + 1);
+
+        assertEquals(Arrays.asList(2, 2, 1), getBatchSizes(batches));
+    }
+
+
+    /**
+     * Tests if a document that exceeds the maximum size on its own forms a batch of its own.
+     */
+    @Test
+    public void testOversizedDocumentFormsOwnBatch()
+    {
+        final char[] longTitle = new char[1000];
+        Arrays.fill(longTitle, 'x');
+        final List<DataCiteJson> documents = createDocuments("a", new String(longTitle), "b", "c");
+        final long documentBytes = FaoJsonSize.measure(GSON, documents.get(0));
+
+        final List<List<DataCiteJson>> batches = collect(documents, 0, 2 * documentBytes);
+
+        assertEquals(Arrays.asList(1, 1, 2), getBatchSizes(batches));
+        assertEquals(documents.get(1), batches.get(1).get(0));
+    }
+
+
+    /**
+     * Tests if all documents form a single batch if no limit is set,
+     * and if skipped documents are not part of any batch.
+     */
+    @Test
+    public void testUnlimitedBatchSkipsMissingDocuments()
+    {
+        final List<DataCiteJson> documents = createDocuments("a", "b", "c");
+        documents.add(1, null);
+
+        final List<List<DataCiteJson>> batches = collect(documents, 0, 0);
+
+        assertEquals(Arrays.asList(3), getBatchSizes(batches));
+    }
+
+
+    /**
+     * Tests if the documents that were retrieved before a failure are handed on
+     * before the failure is thrown.
+     */
+    @Test
+    public void testFailureIsThrownAfterRetrievedDocuments()
+    {
+        final Iterator<DataCiteJson> failingDocuments = new Iterator<DataCiteJson>()
+        {
+            private final Iterator<DataCiteJson> documents = createDocuments("a", "b").iterator();
+
+
+            @Override
+            public boolean hasNext()
+            {
+                return true;
+            }
+
+
+            @Override
+            public DataCiteJson next()
+            {
+                if (documents.hasNext())
+                    return documents.next();
+
+                throw new IllegalStateException(FAILURE_MESSAGE);
+            }
+        };
+        final FaoDocumentBatchIterator batches = new FaoDocumentBatchIterator(failingDocuments, 0, 0, 0);
+
+        assertEquals(2, batches.next().size());
+
+        try {
+            batches.next();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals(FAILURE_MESSAGE, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Groups documents into batches and retrieves all batches.
+     *
+     * @param documents the documents that are to be grouped
+     * @param maxDocuments the maximum number of documents per batch
+     * @param maxBytes the maximum size of a batch in bytes
+     *
+     * @return all batches
+     */
+    private static List<List<DataCiteJson>> collect(final List<DataCiteJson> documents, final int maxDocuments, final long maxBytes)
+    {
+        final FaoDocumentBatchIterator iterator = new FaoDocumentBatchIterator(documents.iterator(), maxDocuments, maxBytes, 0);
+        final List<List<DataCiteJson>> batches = new ArrayList<>();
+
+        while (iterator.hasNext())
+            batches.add(iterator.next());
+
+        assertFalse(iterator.hasNext());
+        return batches;
+    }
+
+
+    /**
+     * Retrieves the number of documents of each batch.
+     *
+     * @param batches the batches of documents
+     *
+     * @return the number of documents per batch
+     */
+    private static List<Integer> getBatchSizes(final List<List<DataCiteJson>> batches)
+    {
+        final List<Integer> sizes = new ArrayList<>();
+
+        for (final List<DataCiteJson> batch : batches)
+            sizes.add(batch.size());
+
+        return sizes;
+    }
+
+
+    /**
+     * Creates documents that each have a single title.
+     *
+     * @param titles the titles of the documents
+     *
+     * @return a modifiable list of documents
+     */
+    private static List<DataCiteJson> createDocuments(final String... titles)
+    {
+        final List<DataCiteJson> documents = new ArrayList<>();
+
+        for (final String title : titles) {
+            final DataCiteJson document = new DataCiteJson(title);
+            document.addTitles(Collections.singletonList(new Title(title)));
+            documents.add(document);
+        }
+
+        return documents;
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+import de.gerdiproject.json.datacite.DataCiteJson;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoDocumentHashRegistry}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDocumentHashRegistryTest
+{
+    private static final Gson GSON = new Gson();
+    private static final FaoDomain DOMAIN_A = createDomain("A");
+    private static final FaoDomain DOMAIN_B = createDomain("B");
+
+    private final FaoDocumentHashRegistry registry = new FaoDocumentHashRegistry();
+
+
+    /**
+     * Tests if the order of object fields and array elements does not affect the hash.
+     */
+    @Test
+    public void testHashIgnoresOrder()
+    {
+        final String hash = FaoDocumentHashRegistry.createHash(parse("{\"a\":1,\"b\":[\"x\",\"y\"],\"c\":{\"d\":2,\"e\":3}}"));
+        final String reorderedHash = FaoDocumentHashRegistry.createHash(parse("{\"c\":{\"e\":3,\"d\":2},\"b\":[\"y\",\"x\"],\"a\":1}"));
+
+        assertEquals(hash, reorderedHash);
+    }
+
+
+    /**
+     * Tests if changed values alter the hash.
+     */
+    @Test
+    public void testHashDetectsChangedValues()
+    {
+        final String hash = FaoDocumentHashRegistry.createHash(parse("{\"a\":1,\"b\":[\"x\",\"y\"]}"));
+        final String changedHash = FaoDocumentHashRegistry.createHash(parse("{\"a\":1,\"b\":[\"x\",\"z\"]}"));
+
+        assertNotEquals(hash, changedHash);
+    }
+
+
+    /**
+     * Tests if duplicate array elements are part of the hash.
+     */
+    @Test
+    public void testHashKeepsDuplicates()
+    {
+        final String hash = FaoDocumentHashRegistry.createHash(parse("[\"x\"]"));
+        final String duplicateHash = FaoDocumentHashRegistry.createHash(parse("[\"x\",\"x\"]"));
+
+        assertNotEquals(hash, duplicateHash);
+    }
+
+
+    /**
+     * Tests if documents are only detected as unchanged after their hash was committed.
+     */
+    @Test
+    public void testChangeDetection()
+    {
+        final DataCiteJson document = new DataCiteJson("A_en");
+
+        assertTrue(registry.update(DOMAIN_A, document));
+        assertTrue(registry.update(DOMAIN_A, document));
+
+        registry.commit();
+
+        assertFalse(registry.update(DOMAIN_A, document));
+        assertTrue(registry.update(DOMAIN_A, new DataCiteJson("A_fr")));
+    }
+
+
+    /**
+     * Tests if the hashes of a failed harvest are discarded.
+     */
+    @Test
+    public void testDiscardKeepsPreviousHashes()
+    {
+        registry.update(DOMAIN_A, new DataCiteJson("A_en"));
+        registry.commit();
+
+        registry.update(DOMAIN_A, new DataCiteJson("A_fr"));
+        registry.discard();
+
+        assertFalse(registry.update(DOMAIN_A, new DataCiteJson("A_en")));
+    }
+
+
+    /**
+     * Tests if domains that are no longer listed are detected as removed
+     * until their removal is committed.
+     */
+    @Test
+    public void testRemovalDetection()
+    {
+        registry.update(DOMAIN_A, new DataCiteJson("A_en"));
+        registry.update(DOMAIN_B, new DataCiteJson("B_en"));
+        registry.commit();
+
+        final List<FaoDomain> currentDomains = Collections.singletonList(DOMAIN_A);
+        assertEquals(Arrays.asList(DOMAIN_B), registry.getRemovedDomains(currentDomains));
+
+        registry.remove(DOMAIN_B);
+        assertEquals(Arrays.asList(DOMAIN_B), registry.getRemovedDomains(currentDomains));
+
+        registry.commit();
+        assertTrue(registry.getRemovedDomains(currentDomains).isEmpty());
+    }
+
+
+    /**
+     * Parses a JSON string.
+     *
+     * @param json the JSON string that is to be parsed
+     *
+     * @return the parsed JSON element
+     */
+    private static JsonElement parse(final String json)
+    {
+        return GSON.fromJson(json, JsonElement.class);
+    }
+
+
+    /**
+     * Creates a domain.
+     *
+     * @param domainCode the code of the domain
+     *
+     * @return a domain with the specified code
+     */
+    private static FaoDomain createDomain(final String domainCode)
+    {
+        return new FaoDomain("X", "Group", domainCode, domainCode, null, null, null, null, null, null, null, null);
+    }
+}
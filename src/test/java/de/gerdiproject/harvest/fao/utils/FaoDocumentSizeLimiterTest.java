@@ -0,0 +1,184 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import de.gerdiproject.harvest.fao.constants.FaoDocumentSizeConstants;
+import de.gerdiproject.json.GsonUtils;
+import de.gerdiproject.json.datacite.DataCiteJson;
+import de.gerdiproject.json.datacite.Subject;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoDocumentSizeLimiter}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDocumentSizeLimiterTest
+{
+    private static final Gson GSON = GsonUtils.createGerdiDocumentGsonBuilder().create();
+    private static final String ETL_NAME = "FaoDocumentSizeLimiterTest";
+
+    private final FaoDocumentSizeLimiter limiter = new FaoDocumentSizeLimiter();
+    private final DataCiteJson document = new DataCiteJson("document");
+    private final List<Subject> subjects = createSubjects("alpha", "bravo", "charlie", "delta");
+
+
+    /**
+     * Unregisters the JMX metrics of the limiter.
+     */
+    @After
+    public void after()
+    {
+        limiter.unregister();
+    }
+
+
+    /**
+     * Tests if no subjects are removed if the document size is not limited.
+     */
+    @Test
+    public void testUnlimitedBudgetKeepsAllSubjects()
+    {
+        limiter.start(ETL_NAME, 0);
+
+        assertSame(subjects, limiter.limitSubjects(document, subjects));
+        assertEquals(0, limiter.getTrimmedSubjectCount());
+        assertEquals(0, limiter.getTrimmedDocumentCount());
+    }
+
+
+    /**
+     * Tests if no subjects are removed if the document fits into the budget exactly.
+     */
+    @Test
+    public void testFittingDocumentKeepsAllSubjects()
+    {
+        limiter.start(ETL_NAME, getSizeWithSubjects(subjects.size()));
+
+        assertEquals(subjects, limiter.limitSubjects(document, subjects));
+        assertEquals(0, limiter.getTrimmedDocumentCount());
+    }
+
+
+    /**
+     * Tests if the last subjects are removed if the document exceeds the budget.
+     */
+    @Test
+    public void testExceedingDocumentLosesLastSubjects()
+    {
+        limiter.start(ETL_NAME, getSizeWithSubjects(2) + 1);
+
+        assertEquals(subjects.subList(0, 2), limiter.limitSubjects(document, subjects));
+        assertEquals(2, limiter.getTrimmedSubjectCount());
+        assertEquals(1, limiter.getTrimmedDocumentCount());
+    }
+
+
+    /**
+     * Tests if all subjects are removed if the document exceeds the budget without any subjects.
+     */
+    @Test
+    public void testTooSmallBudgetRemovesAllSubjects()
+    {
+        limiter.start(ETL_NAME, 1);
+
+        assertEquals(0, limiter.limitSubjects(document, subjects).size());
+        assertEquals(subjects.size(), limiter.getTrimmedSubjectCount());
+    }
+
+
+    /**
+     * Tests if removed duplicate subjects are counted, and if a new harvest resets the counter.
+     */
+    @Test
+    public void testDuplicateSubjectsAreCountedPerHarvest()
+    {
+        limiter.start(ETL_NAME, 0);
+        limiter.onDuplicateSubjects(2);
+        limiter.onDuplicateSubjects(3);
+        assertEquals(5, limiter.getDuplicateSubjectCount());
+
+        limiter.start(ETL_NAME, 0);
+        assertEquals(0, limiter.getDuplicateSubjectCount());
+    }
+
+
+    /**
+     * Tests if the average and largest document sizes are measured.
+     */
+    @Test
+    public void testDocumentSizesAreMeasured()
+    {
+        final DataCiteJson largerDocument = new DataCiteJson("larger document");
+        final long documentBytes = FaoJsonSize.measure(GSON, document);
+        final long largerDocumentBytes = FaoJsonSize.measure(GSON, largerDocument);
+
+        limiter.start(ETL_NAME, 0);
+        limiter.onDocument(document);
+        limiter.onDocument(largerDocument);
+
+        assertEquals(2, limiter.getDocumentCount());
+        assertEquals((documentBytes + largerDocumentBytes) / 2, limiter.getAverageDocumentBytes());
+        assertEquals(largerDocumentBytes, limiter.getLargestDocumentBytes());
+    }
+
+
+    /**
+     * Calculates the size of the test document with a number of its subjects,
+     * the same way the limiter estimates it.
+     *
+     * @param subjectCount the number of subjects that are part of the document
+     *
+     * @return the estimated size of the document in bytes
+     */
+    private long getSizeWithSubjects(final int subjectCount)
+    {
+        long bytes = FaoJsonSize.measure(GSON, document) + FaoDocumentSizeConstants.SUBJECT_LIST_OVERHEAD;
+
+        for (final Subject s : subjects.subList(0, subjectCount))
+            bytes += FaoJsonSize.measure(GSON, s) + 1;
+
+        return bytes;
+    }
+
+
+    /**
+     * Creates subjects of the given values.
+     *
+     * @param values the values of the subjects
+     *
+     * @return a list of subjects
+     */
+    private static List<Subject> createSubjects(final String... values)
+    {
+        final List<Subject> subjectList = new ArrayList<>();
+
+        for (final String value : values)
+            subjectList.add(new Subject(value));
+
+        return subjectList;
+    }
+}
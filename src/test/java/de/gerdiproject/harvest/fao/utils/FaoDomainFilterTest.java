@@ -0,0 +1,161 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoDomainFilter}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDomainFilterTest
+{
+    private static final FaoDomain QCL = createDomain("Q", "QCL");
+    private static final FaoDomain QV = createDomain("Q", "QV");
+    private static final FaoDomain TCL = createDomain("T", "TCL");
+
+
+    /**
+     * Tests if a filter without codes accepts all domains.
+     */
+    @Test
+    public void testEmptyFilterAcceptsAll()
+    {
+        final FaoDomainFilter filter = new FaoDomainFilter("", " , ", null, "");
+
+        assertTrue(filter.isEmpty());
+        assertTrue(filter.accepts(QCL));
+        assertTrue(filter.accepts(TCL));
+    }
+
+
+    /**
+     * Tests if '*' matches any number of characters, including none.
+     */
+    @Test
+    public void testAsteriskMatchesAnyCharacters()
+    {
+        final FaoDomainFilter filter = new FaoDomainFilter("Q*", "", "", "");
+
+        assertFalse(filter.isEmpty());
+        assertTrue(filter.accepts(QCL));
+        assertTrue(filter.accepts(QV));
+        assertFalse(filter.accepts(TCL));
+        assertTrue(new FaoDomainFilter("QV*", "", "", "").accepts(QV));
+    }
+
+
+    /**
+     * Tests if '?' matches exactly one character.
+     */
+    @Test
+    public void testQuestionMarkMatchesSingleCharacter()
+    {
+        final FaoDomainFilter filter = new FaoDomainFilter("?CL", "", "", "");
+
+        assertTrue(filter.accepts(QCL));
+        assertTrue(filter.accepts(TCL));
+        assertFalse(filter.accepts(QV));
+        assertFalse(new FaoDomainFilter("Q?", "", "", "").accepts(QCL));
+    }
+
+
+    /**
+     * Tests if patterns must match whole codes, ignoring case.
+     */
+    @Test
+    public void testPatternsMatchWholeCodesIgnoringCase()
+    {
+        assertTrue(new FaoDomainFilter("qcl", "", "", "").accepts(QCL));
+        assertFalse(new FaoDomainFilter("QC", "", "", "").accepts(QCL));
+        assertFalse(new FaoDomainFilter("CL", "", "", "").accepts(QCL));
+    }
+
+
+    /**
+     * Tests if regular expression characters are matched literally.
+     */
+    @Test
+    public void testRegexCharactersAreLiteral()
+    {
+        assertFalse(new FaoDomainFilter("Q.L", "", "", "").accepts(QCL));
+        assertFalse(new FaoDomainFilter("Q[C]L", "", "", "").accepts(QCL));
+        assertTrue(new FaoDomainFilter("Q.L", "", "", "").accepts(createDomain("Q", "Q.L")));
+    }
+
+
+    /**
+     * Tests if any pattern of a comma-separated list may match.
+     */
+    @Test
+    public void testListOfPatterns()
+    {
+        final FaoDomainFilter filter = new FaoDomainFilter(" QV , T* ", "", "", "");
+
+        assertTrue(filter.accepts(QV));
+        assertTrue(filter.accepts(TCL));
+        assertFalse(filter.accepts(QCL));
+    }
+
+
+    /**
+     * Tests if exclusions take precedence over inclusions.
+     */
+    @Test
+    public void testExclusionsTakePrecedence()
+    {
+        final FaoDomainFilter filter = new FaoDomainFilter("*", "QV", "Q", "");
+
+        assertTrue(filter.accepts(QCL));
+        assertFalse(filter.accepts(QV));
+        assertFalse(filter.accepts(TCL));
+        assertFalse(new FaoDomainFilter("QCL", "", "", "Q*").accepts(QCL));
+    }
+
+
+    /**
+     * Tests if domains must match both the included domains and the included groups.
+     */
+    @Test
+    public void testDomainAndGroupInclusionsAreCombined()
+    {
+        final FaoDomainFilter filter = new FaoDomainFilter("*CL", "", "T", "");
+
+        assertTrue(filter.accepts(TCL));
+        assertFalse(filter.accepts(QCL));
+        assertFalse(filter.accepts(createDomain("T", "TP")));
+    }
+
+
+    /**
+     * Creates a domain.
+     *
+     * @param groupCode the code of the group of the domain
+     * @param domainCode the code of the domain
+     *
+     * @return a domain with the specified codes
+     */
+    private static FaoDomain createDomain(final String groupCode, final String domainCode)
+    {
+        return new FaoDomain(groupCode, groupCode, domainCode, domainCode, null, null, null, null, null, null, null, null);
+    }
+}
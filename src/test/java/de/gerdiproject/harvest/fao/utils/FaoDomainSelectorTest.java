@@ -0,0 +1,125 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.fao.json.FaoDomain;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoDomainSelector}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoDomainSelectorTest
+{
+    private static final FaoDomainFilter NO_FILTER = new FaoDomainFilter("", "", "", "");
+    private static final Set<String> ALL = Collections.emptySet();
+
+
+    /**
+     * Tests if a selector without any restrictions accepts all domains.
+     */
+    @Test
+    public void testEmptySelectorAcceptsAll()
+    {
+        final FaoDomainSelector selector = new FaoDomainSelector(ALL, 0, 1, NO_FILTER, ALL);
+
+        assertTrue(selector.isEmpty());
+        assertTrue(selector.accepts(createDomain("Q", "QC")));
+    }
+
+
+    /**
+     * Tests if only domains of the harvested groups are accepted.
+     */
+    @Test
+    public void testGroups()
+    {
+        final FaoDomainSelector selector = new FaoDomainSelector(Collections.singleton("Q"), 0, 1, NO_FILTER, ALL);
+
+        assertTrue(selector.accepts(createDomain("Q", "QC")));
+        assertFalse(selector.accepts(createDomain("T", "TP")));
+    }
+
+
+    /**
+     * Tests if only the domains of a restricted harvest are accepted.
+     */
+    @Test
+    public void testRestriction()
+    {
+        final FaoDomainSelector selector = new FaoDomainSelector(ALL, 0, 1, NO_FILTER, Collections.singleton("QC"));
+
+        assertTrue(selector.accepts(createDomain("Q", "QC")));
+        assertFalse(selector.accepts(createDomain("Q", "QA")));
+    }
+
+
+    /**
+     * Tests if the domain and group filters are applied.
+     */
+    @Test
+    public void testFilter()
+    {
+        final FaoDomainSelector selector = new FaoDomainSelector(ALL, 0, 1, new FaoDomainFilter("", "QA", "", ""), ALL);
+
+        assertTrue(selector.accepts(createDomain("Q", "QC")));
+        assertFalse(selector.accepts(createDomain("Q", "QA")));
+    }
+
+
+    /**
+     * Tests if every domain belongs to exactly one shard.
+     */
+    @Test
+    public void testShardsPartitionDomains()
+    {
+        final int shardCount = 3;
+
+        for (final String domainCode : new String[] {"QC", "QA", "TP", "RL", "FS", "EI"}) {
+            int acceptingShards = 0;
+
+            for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+                if (new FaoDomainSelector(ALL, shardIndex, shardCount, NO_FILTER, ALL).accepts(createDomain("X", domainCode)))
+                    acceptingShards++;
+            }
+
+            assertEquals(1, acceptingShards);
+        }
+    }
+
+
+    /**
+     * Creates a domain.
+     *
+     * @param groupCode the code of the group of the domain
+     * @param domainCode the code of the domain
+     *
+     * @return a domain with the specified codes
+     */
+    private static FaoDomain createDomain(final String groupCode, final String domainCode)
+    {
+        return new FaoDomain(groupCode, groupCode, domainCode, domainCode, null, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoProgressTracker}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoProgressTrackerTest
+{
+    private static final String ETL_NAME = "FaoProgressTrackerTest";
+    private static final List<String> DOMAIN_CODES = Arrays.asList("A", "B");
+    private static final double DELTA = 0.001;
+
+    private final FaoProgressTracker tracker = new FaoProgressTracker();
+    private File requestCountFile;
+
+
+    /**
+     * Starts tracking a harvest of two domains.
+     *
+     * @throws IOException if the temporary folder could not be created
+     */
+    @Before
+    public void before() throws IOException
+    {
+        requestCountFile = new File(Files.createTempDirectory(ETL_NAME).toFile(), "requestCounts.json");
+        tracker.start(ETL_NAME, requestCountFile, StandardCharsets.UTF_8, DOMAIN_CODES, 1);
+    }
+
+
+    /**
+     * Unregisters the tracker and removes the temporary folder.
+     */
+    @After
+    public void after()
+    {
+        tracker.unregister();
+        requestCountFile.delete();
+        requestCountFile.getParentFile().delete();
+    }
+
+
+    /**
+     * Tests if a harvest of all domains is reported as complete.
+     */
+    @Test
+    public void testCompleteHarvest()
+    {
+        tracker.onDomainHarvested("A", 1);
+        tracker.onDomainHarvested("B", 1);
+        tracker.finish(false);
+
+        assertFalse(tracker.isAborted());
+        assertEquals(100, tracker.getProgressPercent(), DELTA);
+    }
+
+
+    /**
+     * Tests if an aborted harvest keeps the progress it reached.
+     */
+    @Test
+    public void testAbortedHarvestKeepsProgress()
+    {
+        tracker.onDomainHarvested("A", 1);
+        tracker.finish(true);
+
+        assertTrue(tracker.isAborted());
+        assertEquals(50, tracker.getProgressPercent(), DELTA);
+    }
+
+
+    /**
+     * Tests if a harvest that stopped before all domains were harvested is marked as aborted,
+     * even if it was not aborted explicitly.
+     */
+    @Test
+    public void testFailedHarvestIsMarkedAsAborted()
+    {
+        tracker.onDomainHarvested("A", 1);
+        tracker.finish(false);
+
+        assertTrue(tracker.isAborted());
+        assertEquals(50, tracker.getProgressPercent(), DELTA);
+    }
+
+
+    /**
+     * Tests if a new harvest resets the aborted state.
+     */
+    @Test
+    public void testRestartResetsAbortedState()
+    {
+        tracker.finish(true);
+        tracker.start(ETL_NAME, requestCountFile, StandardCharsets.UTF_8, DOMAIN_CODES, 1);
+
+        assertFalse(tracker.isAborted());
+        assertEquals(0, tracker.getProgressPercent(), DELTA);
+    }
+}
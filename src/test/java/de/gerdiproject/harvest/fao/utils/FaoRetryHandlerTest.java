@@ -0,0 +1,244 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.etls.extractors.EndpointUnavailableException;
+import de.gerdiproject.harvest.fao.constants.FaoExtractorConstants;
+import de.gerdiproject.harvest.fao.enums.FaoEndpoint;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoRetryHandler}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoRetryHandlerTest
+{
+    private static final String URL = "http://example.org/faostat";
+    private static final FaoHttpResponse SUCCESS = new FaoHttpResponse(200, "{}", -1);
+    private static final FaoHttpResponse UNAVAILABLE = new FaoHttpResponse(503, null, -1);
+    private static final FaoHttpResponse NOT_FOUND = new FaoHttpResponse(404, null, -1);
+    private static final long MAX_WAIT_MILLIS = 5000;
+    private static final FaoHttpResponse NO_RESPONSE = new FaoHttpResponse(FaoExtractorConstants.NO_STATUS_CODE, null, -1);
+
+
+    /**
+     * Tests if transient failures are retried until the request succeeds.
+     */
+    @Test
+    public void testRetriesUntilSuccess()
+    {
+        final FaoRetryHandler handler = new FaoRetryHandler(new FaoRetryPolicy(3, 1, 1), new FaoAbortSignal(), 0, 60);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final FaoHttpResponse response = handler.call(FaoEndpoint.METADATA, URL, FaoExtractorConstants.NO_DEADLINE, () ->
+                                                      attempts.incrementAndGet() < 3 ? NO_RESPONSE : SUCCESS);
+
+        assertTrue(response.isSuccessful());
+        assertEquals(3, attempts.get());
+        assertEquals(2, handler.getRetryCount());
+    }
+
+
+    /**
+     * Tests if the last failed response is returned when all attempts are used up.
+     */
+    @Test
+    public void testGivesUpAfterMaxAttempts()
+    {
+        final FaoRetryHandler handler = new FaoRetryHandler(new FaoRetryPolicy(2, 1, 1), new FaoAbortSignal(), 0, 60);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final FaoHttpResponse response = handler.call(FaoEndpoint.METADATA, URL, FaoExtractorConstants.NO_DEADLINE, () -> {
+            attempts.incrementAndGet();
+            return UNAVAILABLE;
+        });
+
+        assertFalse(response.isSuccessful());
+        assertEquals(2, attempts.get());
+    }
+
+
+    /**
+     * Tests if permanent failures are not retried.
+     */
+    @Test
+    public void testPermanentFailureIsNotRetried()
+    {
+        final FaoRetryHandler handler = new FaoRetryHandler(new FaoRetryPolicy(3, 1, 1), new FaoAbortSignal(), 1, 60);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        handler.call(FaoEndpoint.METADATA, URL, FaoExtractorConstants.NO_DEADLINE, () -> {
+            attempts.incrementAndGet();
+            return NOT_FOUND;
+        });
+
+        assertEquals(1, attempts.get());
+        assertEquals(0, handler.getOpenCircuitCount());
+    }
+
+
+    /**
+     * Tests if the requests of an endpoint type are rejected while its circuit is open,
+     * while other endpoint types can still be requested.
+     */
+    @Test
+    public void testOpenCircuitRejectsEndpointType()
+    {
+        final FaoRetryHandler handler = new FaoRetryHandler(new FaoRetryPolicy(3, 1, 1), new FaoAbortSignal(), 2, 60);
+
+        try {
+            handler.call(FaoEndpoint.CODES, URL, FaoExtractorConstants.NO_DEADLINE, () -> UNAVAILABLE);
+            fail("The circuit should have opened!");
+        } catch (final EndpointUnavailableException e) {
+            assertTrue(e.getMessage().contains(FaoEndpoint.CODES.getKey()));
+        }
+
+        assertEquals(1, handler.getOpenedCircuitCount());
+        assertEquals(1, handler.getOpenCircuitCount());
+
+        try {
+            handler.call(FaoEndpoint.CODES, URL, FaoExtractorConstants.NO_DEADLINE, () -> SUCCESS);
+            fail("The request should have been rejected!");
+        } catch (final EndpointUnavailableException e) {
+            assertTrue(e.getMessage().contains(FaoEndpoint.CODES.getKey()));
+        }
+
+        assertEquals(1, handler.getRejectedRequestCount());
+        assertTrue(handler.call(FaoEndpoint.METADATA, URL, FaoExtractorConstants.NO_DEADLINE, () -> SUCCESS).isSuccessful());
+    }
+
+
+    /**
+     * Tests if a trial request that yields a permanent failure closes the circuit,
+     * because the server responded.
+     */
+    @Test
+    public void testPermanentFailureClosesCircuit()
+    {
+        final FaoRetryHandler handler = new FaoRetryHandler(new FaoRetryPolicy(1, 1, 1), new FaoAbortSignal(), 1, 0);
+        openCircuit(handler);
+
+        assertEquals(404, handler.call(FaoEndpoint.CODES, URL, FaoExtractorConstants.NO_DEADLINE, () -> NOT_FOUND).getStatusCode());
+        assertEquals(0, handler.getOpenCircuitCount());
+        assertTrue(handler.call(FaoEndpoint.CODES, URL, FaoExtractorConstants.NO_DEADLINE, () -> SUCCESS).isSuccessful());
+    }
+
+
+    /**
+     * Tests if a trial request that is given up due to an exception lets
+     * the next request become the trial request.
+     */
+    @Test
+    public void testAbandonedTrialIsReleased()
+    {
+        final FaoRetryHandler handler = new FaoRetryHandler(new FaoRetryPolicy(1, 1, 1), new FaoAbortSignal(), 1, 0);
+        openCircuit(handler);
+
+        try {
+            handler.call(FaoEndpoint.CODES, URL, FaoExtractorConstants.NO_DEADLINE, () -> {
+                throw new CancellationException(FaoExtractorConstants.HARVEST_ABORTED_ERROR);
+            });
+            fail("The exception should have been propagated!");
+        } catch (final CancellationException e) {
+            assertEquals(1, handler.getOpenCircuitCount());
+        }
+
+        assertTrue(handler.call(FaoEndpoint.CODES, URL, FaoExtractorConstants.NO_DEADLINE, () -> SUCCESS).isSuccessful());
+        assertEquals(0, handler.getOpenCircuitCount());
+    }
+
+
+    /**
+     * Tests if the delay before a retry does not exceed the deadline of the request.
+     */
+    @Test
+    public void testRetryDelayIsCappedByDeadline()
+    {
+        final FaoRetryHandler handler = new FaoRetryHandler(new FaoRetryPolicy(2, 60000, 60000), new FaoAbortSignal(), 0, 60);
+        final AtomicInteger attempts = new AtomicInteger();
+        final long startTime = System.nanoTime();
+        final long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(100);
+
+        handler.call(FaoEndpoint.METADATA, URL, deadline, () -> {
+            attempts.incrementAndGet();
+            return UNAVAILABLE;
+        });
+
+        assertEquals(2, attempts.get());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) < MAX_WAIT_MILLIS);
+    }
+
+
+    /**
+     * Tests if aborting the harvest ends the delay before a retry,
+     * without sending the retry.
+     */
+    @Test
+    public void testAbortEndsRetryDelay()
+    {
+        final FaoAbortSignal abortSignal = new FaoAbortSignal();
+        final FaoRetryHandler handler = new FaoRetryHandler(new FaoRetryPolicy(2, 60000, 60000), abortSignal, 0, 60);
+        final AtomicInteger attempts = new AtomicInteger();
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        final long startTime = System.nanoTime();
+
+        try {
+            executor.schedule(abortSignal::abort, 100, TimeUnit.MILLISECONDS);
+
+            handler.call(FaoEndpoint.METADATA, URL, FaoExtractorConstants.NO_DEADLINE, () -> {
+                attempts.incrementAndGet();
+                return UNAVAILABLE;
+            });
+            fail("The retry should have been cancelled!");
+
+        } catch (final CancellationException e) {
+            assertEquals(1, attempts.get());
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) < MAX_WAIT_MILLIS);
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Opens the circuit of the codes endpoint type with a single failed request.
+     *
+     * @param handler a retry handler whose circuits open after a single failure
+     */
+    private static void openCircuit(final FaoRetryHandler handler)
+    {
+        try {
+            handler.call(FaoEndpoint.CODES, URL, FaoExtractorConstants.NO_DEADLINE, () -> UNAVAILABLE);
+            fail("The circuit should have opened!");
+        } catch (final EndpointUnavailableException e) {
+            assertEquals(1, handler.getOpenCircuitCount());
+        }
+    }
+}
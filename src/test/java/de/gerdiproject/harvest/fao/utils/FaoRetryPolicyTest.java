@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoRetryPolicy}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoRetryPolicyTest
+{
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_DELAY = 100;
+    private static final long MAX_DELAY = 1000;
+    private static final int SAMPLES = 100;
+
+    private final FaoRetryPolicy policy = new FaoRetryPolicy(MAX_ATTEMPTS, BASE_DELAY, MAX_DELAY);
+
+
+    /**
+     * Tests if the delay of the first retry lies between half and all of the base delay.
+     */
+    @Test
+    public void testFirstDelayIsJittered()
+    {
+        for (int i = 0; i < SAMPLES; i++) {
+            final long delay = policy.getDelayMillis(1, -1);
+            assertTrue("The delay " + delay + " is too short!", delay >= BASE_DELAY / 2);
+            assertTrue("The delay " + delay + " is too long!", delay <= BASE_DELAY);
+        }
+    }
+
+
+    /**
+     * Tests if the delay grows exponentially, but never exceeds the maximum delay.
+     */
+    @Test
+    public void testDelayIsCappedByMaxDelay()
+    {
+        for (int i = 0; i < SAMPLES; i++) {
+            assertTrue(policy.getDelayMillis(3, -1) >= 4 * BASE_DELAY / 2);
+            assertTrue(policy.getDelayMillis(100, -1) <= MAX_DELAY);
+        }
+    }
+
+
+    /**
+     * Tests if a delay that was requested via the Retry-After header is honored.
+     */
+    @Test
+    public void testRetryAfterIsHonored()
+    {
+        final long retryAfter = 800;
+
+        for (int i = 0; i < SAMPLES; i++)
+            assertTrue(policy.getDelayMillis(1, retryAfter) >= retryAfter);
+    }
+
+
+    /**
+     * Tests if a delay that was requested via the Retry-After header
+     * is capped by the maximum delay.
+     */
+    @Test
+    public void testRetryAfterIsCappedByMaxDelay()
+    {
+        assertEquals(MAX_DELAY, policy.getDelayMillis(1, 60 * MAX_DELAY));
+    }
+
+
+    /**
+     * Tests if only transient HTTP status codes are retried.
+     */
+    @Test
+    public void testRetryableStatusCodes()
+    {
+        assertTrue(FaoRetryPolicy.isRetryable(503));
+        assertTrue(FaoRetryPolicy.isRetryable(429));
+        assertFalse(FaoRetryPolicy.isRetryable(404));
+        assertFalse(FaoRetryPolicy.isRetryable(400));
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoSingleFlightRequester}.
+ *
+ * @author Robin Weiss
+ */
+public class FaoSingleFlightRequesterTest
+{
+    private static final String URL = "http://example.org/faostat/api/v1/en/groupsanddomains?section=download";
+    private static final int TIMEOUT = 5000;
+
+
+    /**
+     * Tests if identical requests of two extractors, each of which has
+     * its own requester and HTTP client, result in a single request.
+     *
+     * @throws Exception if the requests could not be awaited
+     */
+    @Test
+    public void testCoalescesRequestsOfDifferentExtractors() throws Exception
+    {
+        final AtomicInteger sentRequests = new AtomicInteger();
+        final CountDownLatch requestStarted = new CountDownLatch(1);
+        final CountDownLatch releaseResponse = new CountDownLatch(1);
+
+        final FaoSingleFlightRequester firstRequester =
+            new FaoSingleFlightRequester(new BlockingHttpClient(StandardCharsets.UTF_8, sentRequests, requestStarted, releaseResponse));
+        final FaoSingleFlightRequester secondRequester =
+            new FaoSingleFlightRequester(new BlockingHttpClient(StandardCharsets.UTF_8, sentRequests, requestStarted, releaseResponse));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            final Future<FaoHttpResponse> firstResponse = executor.submit(() -> firstRequester.get(URL, TIMEOUT));
+            assertTrue(requestStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+            final Future<FaoHttpResponse> secondResponse = executor.submit(() -> secondRequester.get(URL, TIMEOUT));
+
+            // give the second request time to join the pending one
+            Thread.sleep(100);
+            releaseResponse.countDown();
+
+            assertSame(firstResponse.get(), secondResponse.get());
+            assertEquals(1, sentRequests.get());
+        } finally {
+            releaseResponse.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Tests if the same URL is requested separately for different charsets.
+     *
+     * @throws Exception if the requests could not be awaited
+     */
+    @Test
+    public void testDoesNotCoalesceDifferentCharsets() throws Exception
+    {
+        final AtomicInteger sentRequests = new AtomicInteger();
+        final CountDownLatch requestStarted = new CountDownLatch(2);
+        final CountDownLatch releaseResponse = new CountDownLatch(1);
+
+        final FaoSingleFlightRequester utf8Requester =
+            new FaoSingleFlightRequester(new BlockingHttpClient(StandardCharsets.UTF_8, sentRequests, requestStarted, releaseResponse));
+        final FaoSingleFlightRequester latinRequester =
+            new FaoSingleFlightRequester(new BlockingHttpClient(StandardCharsets.ISO_8859_1, sentRequests, requestStarted, releaseResponse));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            final Future<FaoHttpResponse> utf8Response = executor.submit(() -> utf8Requester.get(URL, TIMEOUT));
+            final Future<FaoHttpResponse> latinResponse = executor.submit(() -> latinRequester.get(URL, TIMEOUT));
+
+            assertTrue(requestStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+            releaseResponse.countDown();
+
+            utf8Response.get();
+            latinResponse.get();
+            assertEquals(2, sentRequests.get());
+        } finally {
+            releaseResponse.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * This HTTP client counts its requests and holds back each response
+     * until it is released.
+     *
+     * @author Robin Weiss
+     */
+    private static class BlockingHttpClient extends FaoHttpClient
+    {
+        private final AtomicInteger sentRequests;
+        private final CountDownLatch requestStarted;
+        private final CountDownLatch releaseResponse;
+
+
+        /**
+         * Constructor
+         *
+         * @param charset the charset of the response bodies
+         * @param sentRequests the counter of requests that are shared by all clients
+         * @param requestStarted a latch that is counted down when a request is sent
+         * @param releaseResponse a latch that holds back the responses
+         */
+        BlockingHttpClient(final Charset charset, final AtomicInteger sentRequests, final CountDownLatch requestStarted, final CountDownLatch releaseResponse)
+        {
+            super(charset);
+            this.sentRequests = sentRequests;
+            this.requestStarted = requestStarted;
+            this.releaseResponse = releaseResponse;
+        }
+
+
+        @Override
+        public FaoHttpResponse get(final String url, final int timeoutMillis) throws SocketTimeoutException
+        {
+            sentRequests.incrementAndGet();
+            requestStarted.countDown();
+
+            try {
+                releaseResponse.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return new FaoHttpResponse(200, "{}", -1);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.fao.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.gerdiproject.harvest.fao.constants.FaoBulkDownloadConstants;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FaoZipProbe}.
+ * The archives are served by a local HTTP server that supports range requests.
+ *
+ * @author Robin Weiss
+ */
+public class FaoZipProbeTest
+{
+    private static final String ARCHIVE_PATH = "/archive.zip";
+    private static final long LARGE_SIZE = 5L * 1024L * 1024L * 1024L;
+
+    private final FaoZipProbe probe = new FaoZipProbe();
+    private HttpServer server;
+    private volatile byte[] archive;
+    private volatile boolean isSupportingRanges = true;
+    private volatile int rangeRequestCount;
+
+
+    /**
+     * Starts a local HTTP server that serves the current archive.
+     *
+     * @throws IOException if the server could not be started
+     */
+    @Before
+    public void before() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(ARCHIVE_PATH, this::serveArchive);
+        server.start();
+    }
+
+
+    /**
+     * Stops the local HTTP server.
+     */
+    @After
+    public void after()
+    {
+        server.stop(0);
+    }
+
+
+    /**
+     * Tests if the files of a regular archive with a comment are listed.
+     *
+     * @throws IOException if the archive could not be probed
+     */
+    @Test
+    public void testRegularArchive() throws IOException
+    {
+        archive = createArchive("The end of central directory record is followed by this comment.",
+                                "data.csv", "readme.txt", "flags.CSV");
+
+        final List<FaoZipEntry> entries = probe.getEntries(getUrl());
+
+        assertEquals(3, entries.size());
+        assertEquals("data.csv", entries.get(0).getName());
+        assertEquals("readme.txt", entries.get(1).getName());
+        assertEquals("flags.CSV", entries.get(2).getName());
+        assertEquals(getContent("readme.txt").length, entries.get(1).getUncompressedSize());
+        assertEquals(1, rangeRequestCount);
+    }
+
+
+    /**
+     * Tests if only CSV files are listed, regardless of the case of their extension.
+     *
+     * @throws IOException if the archive could not be probed
+     */
+    @Test
+    public void testCsvEntries() throws IOException
+    {
+        archive = createArchive(null, "data.csv", "readme.txt", "flags.CSV");
+
+        final List<FaoZipEntry> entries = probe.getCsvEntries(getUrl());
+
+        assertEquals(2, entries.size());
+        assertEquals("data.csv", entries.get(0).getName());
+        assertEquals("flags.CSV", entries.get(1).getName());
+    }
+
+
+    /**
+     * Tests if the entry count, the central directory location, and the file sizes
+     * are read from the ZIP64 records, and if a central directory that is not part
+     * of the tail of the archive is requested separately.
+     *
+     * @throws IOException if the archive could not be probed
+     */
+    @Test
+    public void testZip64Archive() throws IOException
+    {
+        archive = createZip64Archive("huge.csv", FaoBulkDownloadConstants.EOCD_MAX_SIZE + 1024);
+
+        final List<FaoZipEntry> entries = probe.getEntries(getUrl());
+
+        assertEquals(1, entries.size());
+        assertEquals("huge.csv", entries.get(0).getName());
+        assertEquals(LARGE_SIZE, entries.get(0).getUncompressedSize());
+        assertEquals(LARGE_SIZE / 2, entries.get(0).getCompressedSize());
+        assertEquals(2, rangeRequestCount);
+    }
+
+
+    /**
+     * Tests if data without an end of central directory record is rejected.
+     */
+    @Test
+    public void testMissingEndOfCentralDirectory()
+    {
+        archive = new byte[1024];
+
+        try {
+            probe.getEntries(getUrl());
+            fail();
+        } catch (final IOException e) {
+            assertEquals(String.format(FaoBulkDownloadConstants.NO_EOCD_ERROR, getUrl()), e.getMessage());
+        }
+    }
+
+
+    /**
+     * Tests if servers that ignore range requests are rejected, instead of downloading the archive.
+     *
+     * @throws IOException if the test archive could not be created
+     */
+    @Test
+    public void testMissingRangeSupport() throws IOException
+    {
+        archive = createArchive(null, "data.csv");
+        isSupportingRanges = false;
+
+        try {
+            probe.getEntries(getUrl());
+            fail();
+        } catch (final IOException e) {
+            assertEquals(String.format(FaoBulkDownloadConstants.RANGE_NOT_SUPPORTED_ERROR, getUrl()), e.getMessage());
+        }
+    }
+
+
+    /**
+     * Retrieves the URL of the archive on the local HTTP server.
+     *
+     * @return the URL of the archive
+     */
+    private String getUrl()
+    {
+        return "http://localhost:" + server.getAddress().getPort() + ARCHIVE_PATH;
+    }
+
+
+    /**
+     * Responds to a request with the requested range of the current archive,
+     * or with the whole archive if ranges are not supported.
+     *
+     * @param exchange the HTTP request and response
+     *
+     * @throws IOException if the response could not be sent
+     */
+    private void serveArchive(final HttpExchange exchange) throws IOException
+    {
+        final byte[] content = archive;
+        final String range = exchange.getRequestHeaders().getFirst(FaoBulkDownloadConstants.RANGE_HEADER);
+        int start = 0;
+        int end = content.length - 1;
+
+        if (isSupportingRanges && range != null) {
+            rangeRequestCount++;
+            final String[] bounds = range.substring("bytes=".length()).split("-", -1);
+
+            if (bounds[0].isEmpty())
+                start = Math.max(0, content.length - Integer.parseInt(bounds[1]));
+            else {
+                start = Integer.parseInt(bounds[0]);
+                end = Math.min(end, Integer.parseInt(bounds[1]));
+            }
+
+            exchange.getResponseHeaders().set(
+                FaoBulkDownloadConstants.CONTENT_RANGE_HEADER,
+                String.format("bytes %d-%d/%d", start, end, content.length));
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_PARTIAL, end - start + 1);
+        } else
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, content.length);
+
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(content, start, end - start + 1);
+        }
+    }
+
+
+    /**
+     * Creates a regular ZIP archive.
+     *
+     * @param comment the archive comment, or null
+     * @param fileNames the names of the files within the archive
+     *
+     * @throws IOException if the archive could not be created
+     *
+     * @return the bytes of the archive
+     */
+    private static byte[] createArchive(final String comment, final String... fileNames) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            if (comment != null)
+                zip.setComment(comment);
+
+            for (final String fileName : fileNames) {
+                zip.putNextEntry(new ZipEntry(fileName));
+                zip.write(getContent(fileName));
+                zip.closeEntry();
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Retrieves the content of a file of a regular test archive.
+     *
+     * @param fileName the name of the file
+     *
+     * @return the content of the file
+     */
+    private static byte[] getContent(final String fileName)
+    {
+        return ("Content of " + fileName).getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Creates the central directory and end records of a ZIP64 archive with a single
+     * file that is larger than 4GiB. The file data is replaced by padding, and another
+     * padding separates the central directory from the end records.
+     *
+     * @param fileName the name of the file
+     * @param gapLength the number of bytes between the central directory and the end records
+     *
+     * @return the bytes of the archive
+     */
+    private static byte[] createZip64Archive(final String fileName, final int gapLength)
+    {
+        final byte[] name = fileName.getBytes(StandardCharsets.UTF_8);
+        final int extraLength = 4 + 16;
+        final int directoryOffset = 128;
+        final int directorySize = FaoBulkDownloadConstants.CENTRAL_FILE_HEADER_SIZE + name.length + extraLength;
+        final int zip64EocdOffset = directoryOffset + directorySize + gapLength;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(
+                                      zip64EocdOffset
+                                      + FaoBulkDownloadConstants.ZIP64_EOCD_SIZE
+                                      + FaoBulkDownloadConstants.ZIP64_LOCATOR_SIZE
+                                      + FaoBulkDownloadConstants.EOCD_MIN_SIZE)
+                                  .order(ByteOrder.LITTLE_ENDIAN);
+        final byte[] fileData = new byte[directoryOffset];
+        Arrays.fill(fileData, (byte) 'x');
+        buffer.put(fileData);
+
+        // central file header with sizes that are stored in the ZIP64 extra field
+        buffer.putInt(FaoBulkDownloadConstants.CENTRAL_FILE_HEADER_SIGNATURE);
+        buffer.put(new byte[16]);
+        buffer.putInt((int) FaoBulkDownloadConstants.ZIP64_MAGIC);
+        buffer.putInt((int) FaoBulkDownloadConstants.ZIP64_MAGIC);
+        buffer.putShort((short) name.length);
+        buffer.putShort((short) extraLength);
+        buffer.put(new byte[14]);
+        buffer.put(name);
+        buffer.putShort((short) FaoBulkDownloadConstants.ZIP64_EXTRA_FIELD_ID);
+        buffer.putShort((short) 16);
+        buffer.putLong(LARGE_SIZE);
+        buffer.putLong(LARGE_SIZE / 2);
+        buffer.put(new byte[gapLength]);
+
+        // ZIP64 end of central directory record
+        buffer.putInt(FaoBulkDownloadConstants.ZIP64_EOCD_SIGNATURE);
+        buffer.putLong(FaoBulkDownloadConstants.ZIP64_EOCD_SIZE - 12L);
+        buffer.put(new byte[12]);
+        buffer.putLong(1);
+        buffer.putLong(1);
+        buffer.putLong(directorySize);
+        buffer.putLong(directoryOffset);
+
+        // ZIP64 end of central directory locator
+        buffer.putInt(FaoBulkDownloadConstants.ZIP64_LOCATOR_SIGNATURE);
+        buffer.putInt(0);
+        buffer.putLong(zip64EocdOffset);
+        buffer.putInt(1);
+
+        // end of central directory record that defers to the ZIP64 record
+        buffer.putInt(FaoBulkDownloadConstants.EOCD_SIGNATURE);
+        buffer.put(new byte[6]);
+        buffer.putShort((short) 0xFFFF);
+        buffer.putInt((int) FaoBulkDownloadConstants.ZIP64_MAGIC);
+        buffer.putInt((int) FaoBulkDownloadConstants.ZIP64_MAGIC);
+        buffer.putShort((short) 0);
+
+        return buffer.array();
+    }
+}